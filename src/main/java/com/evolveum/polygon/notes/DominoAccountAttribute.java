@@ -56,6 +56,11 @@ public enum DominoAccountAttribute implements DominoAttribute {
     DEFAULT_PASSWORD_EXP("defaultPasswordExp", Integer.class, NOT_READABLE, NOT_RETURNED_BY_DEFAULT),
     DENY_GROUPS("DenyGroups"),
     DEPARTMENT("Department"),
+    /**
+     * Computed attribute, display names of all groups containing user directly or through nested groups.
+     */
+    EFFECTIVE_GROUPS("effectiveGroups", String.class, NOT_CREATABLE, NOT_UPDATEABLE, NOT_RETURNED_BY_DEFAULT,
+            MULTIVALUED),
     EMPLOYEE_ID("EmployeeID"),
     END_DATE("EndDate", Integer.class, NOT_READABLE, NOT_RETURNED_BY_DEFAULT),
     FIRST_NAME("FirstName"),
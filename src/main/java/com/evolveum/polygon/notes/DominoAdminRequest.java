@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes;
+
+/**
+ * Administration process request posted by connector, identified by note id of the request
+ * document in admin4.nsf.
+ */
+public class DominoAdminRequest {
+
+    private String noteId;
+    private String action;
+    private String target;
+    private long created;
+
+    private String unid;
+
+    public DominoAdminRequest(String noteId, String action, String target) {
+        this.noteId = noteId;
+        this.action = action;
+        this.target = target;
+        this.created = System.currentTimeMillis();
+    }
+
+    public String getNoteId() {
+        return noteId;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public String getTarget() {
+        return target;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    String getUnid() {
+        return unid;
+    }
+
+    void setUnid(String unid) {
+        this.unid = unid;
+    }
+
+    @Override
+    public String toString() {
+        return "DominoAdminRequest{noteId=" + noteId + ", action=" + action + ", target=" + target + "}";
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes;
+
+/**
+ * State of an administration process request posted to admin4.nsf.
+ */
+public enum DominoAdminRequestStatus {
+
+    /**
+     * Request document exists, but AdminP didn't create any response document yet.
+     */
+    PENDING,
+
+    /**
+     * AdminP processed the request, at least one response document exists.
+     */
+    PROCESSED,
+
+    /**
+     * Request document wasn't found, it was already purged or the note id is invalid.
+     */
+    NOT_FOUND
+}
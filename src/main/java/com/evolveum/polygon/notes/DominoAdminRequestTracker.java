@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes;
+
+import lotus.domino.Database;
+import lotus.domino.Document;
+import lotus.domino.DocumentCollection;
+import lotus.domino.NotesError;
+import lotus.domino.NotesException;
+import org.apache.commons.lang.StringUtils;
+import org.identityconnectors.common.logging.Log;
+
+import java.util.*;
+
+import static com.evolveum.polygon.notes.util.DominoUtils.recycleQuietly;
+
+/**
+ * Keeps track of administration process requests posted by connector. Status of many requests
+ * is resolved by one search for AdminP response documents in admin4.nsf, so callers don't have
+ * to poll Domino directory to find out whether change was already processed.
+ */
+public class DominoAdminRequestTracker {
+
+    private static final Log LOG = Log.getLog(DominoAdminRequestTracker.class);
+
+    private static final int MAX_TRACKED_REQUESTS = 10000;
+
+    private final Map<String, DominoAdminRequest> requests = new LinkedHashMap<String, DominoAdminRequest>() {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, DominoAdminRequest> eldest) {
+            return size() > MAX_TRACKED_REQUESTS;
+        }
+    };
+
+    public synchronized void record(String noteId, String action, String target) {
+        if (StringUtils.isEmpty(noteId)) {
+            return;
+        }
+
+        LOG.ok("AdminP request {0} posted, action {1}, target {2}.", noteId, action, target);
+        requests.put(noteId, new DominoAdminRequest(noteId, action, target));
+    }
+
+    public synchronized List<DominoAdminRequest> getOutstanding() {
+        return new ArrayList<DominoAdminRequest>(requests.values());
+    }
+
+    /**
+     * @param adminDb admin4.nsf database
+     * @param noteIds note ids of request documents, doesn't have to be tracked by this tracker
+     * @return status for every note id, processed and not found requests are no longer tracked
+     * @throws NotesException
+     */
+    public synchronized Map<String, DominoAdminRequestStatus> getStatus(Database adminDb, Collection<String> noteIds)
+            throws NotesException {
+        Map<String, DominoAdminRequestStatus> result = new LinkedHashMap<String, DominoAdminRequestStatus>();
+        if (noteIds == null || noteIds.isEmpty()) {
+            return result;
+        }
+
+        // request document unid -> note id, unid is resolved only once per tracked request
+        Map<String, String> unids = new HashMap<String, String>();
+        for (String noteId : noteIds) {
+            DominoAdminRequest request = requests.get(noteId);
+            String unid = request != null ? request.getUnid() : null;
+            if (unid == null) {
+                unid = findRequestUnid(adminDb, noteId);
+            }
+
+            if (unid == null) {
+                result.put(noteId, DominoAdminRequestStatus.NOT_FOUND);
+                requests.remove(noteId);
+                continue;
+            }
+
+            if (request != null) {
+                request.setUnid(unid);
+            }
+            result.put(noteId, DominoAdminRequestStatus.PENDING);
+            unids.put(unid, noteId);
+        }
+
+        if (unids.isEmpty()) {
+            return result;
+        }
+
+        DocumentCollection responses = null;
+        try {
+            responses = adminDb.search(createResponseQuery(unids.keySet()));
+            Document response = responses.getFirstDocument();
+            while (response != null) {
+                String noteId = unids.get(response.getParentDocumentUNID());
+                if (noteId != null) {
+                    result.put(noteId, DominoAdminRequestStatus.PROCESSED);
+                    requests.remove(noteId);
+                }
+                recycleQuietly(response);
+                response = responses.getNextDocument();
+            }
+        } finally {
+            recycleQuietly(responses);
+        }
+
+        LOG.ok("AdminP request status: {0}", result);
+        return result;
+    }
+
+    private String findRequestUnid(Database adminDb, String noteId) throws NotesException {
+        Document request = null;
+        try {
+            request = adminDb.getDocumentByID(noteId);
+            if (request == null || !request.isValid()) {
+                return null;
+            }
+
+            return request.getUniversalID();
+        } catch (NotesException ex) {
+            if (NotesError.NOTES_ERR_BAD_UNID != ex.id) {
+                throw ex;
+            }
+            return null;
+        } finally {
+            recycleQuietly(request);
+        }
+    }
+
+    private String createResponseQuery(Collection<String> unids) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("@IsResponseDoc & @Text($Ref) = ");
+
+        Iterator<String> iterator = unids.iterator();
+        while (iterator.hasNext()) {
+            sb.append('"').append(iterator.next()).append('"');
+            if (iterator.hasNext()) {
+                sb.append(':');
+            }
+        }
+
+        return sb.toString();
+    }
+}
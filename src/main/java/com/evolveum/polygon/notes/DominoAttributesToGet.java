@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes;
+
+import org.identityconnectors.framework.common.objects.Name;
+import org.identityconnectors.framework.common.objects.Uid;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Attributes requested by one search, resolved against object class metadata once per search.
+ */
+public final class DominoAttributesToGet {
+
+    private static final Set<String> IDENTIFIERS = new HashSet<String>(Arrays.asList(Uid.NAME, Name.NAME));
+
+    private final DominoObjectClassInfo info;
+    private final BitSet wanted;
+    /**
+     * Requested names which are not defined in schema, items with these names are returned as they are.
+     */
+    private final Set<String> others;
+    /**
+     * Maximal number of values of membership attributes, -1 if there's no limit
+     */
+    private final int maxValues;
+    /**
+     * True if only UID and name were requested, e.g. by correlation or shadow existence check
+     */
+    private final boolean identifiersOnly;
+
+    public DominoAttributesToGet(DominoObjectClassInfo info, Set<String> names) {
+        this(info, names, null);
+    }
+
+    public DominoAttributesToGet(DominoObjectClassInfo info, Set<String> names, Integer maxValues) {
+        this.info = info;
+        this.maxValues = maxValues != null && maxValues >= 0 ? maxValues : -1;
+        this.wanted = info.createWanted(names);
+
+        Set<String> set = new HashSet<String>();
+        for (String name : names) {
+            if (info.getAttribute(name) == null) {
+                set.add(name);
+            }
+        }
+        this.others = set.isEmpty() ? Collections.<String>emptySet() : set;
+        this.identifiersOnly = !names.isEmpty() && IDENTIFIERS.containsAll(names);
+    }
+
+    public DominoObjectClassInfo getInfo() {
+        return info;
+    }
+
+    public boolean isWanted(DominoAttribute attr) {
+        return wanted.get(DominoObjectClassInfo.getIndex(attr));
+    }
+
+    public boolean isOtherWanted(String name) {
+        return others.contains(name);
+    }
+
+    public boolean isIdentifiersOnly() {
+        return identifiersOnly;
+    }
+
+    public int getMaxValues() {
+        return maxValues;
+    }
+
+    /**
+     * @param count number of values already read
+     * @return true if another value of membership attribute should be read
+     */
+    public boolean isBelowMaxValues(int count) {
+        return maxValues < 0 || count < maxValues;
+    }
+}
@@ -66,6 +66,19 @@ public class DominoConfiguration extends AbstractConfiguration {
     private String disableDenyGroup;
     private Boolean useIDVault = true;
     private Boolean syncInetPswd = false;
+    private Integer groupMembershipFlushInterval = 0;
+    private String groupMembersView = "($ServerAccess)";
+    private Integer maxParallelRequests = 1;
+    private Integer groupGraphRefreshInterval = 300;
+    private Integer denyGroupRefreshInterval = 300;
+    private Integer memberLogSize = 100000;
+    private Integer documentWriteFlushInterval = 0;
+    private Boolean warmUpOnInit = false;
+    private Integer iorRefreshInterval = 300;
+    private Integer maxReconnectAttempts = 3;
+    private Integer dxlReadBlockSize = 0;
+    private Integer slowOperationThreshold = 10000;
+    private String[] sortViews = {"FullName=($VIMPeople)", "ListName=($VIMGroups)"};
 
     @Override
     public void validate() {
@@ -81,6 +94,54 @@ public class DominoConfiguration extends AbstractConfiguration {
             throw new ConfigurationException("Possible values for ID type: 0 (flat), 1 (hierarchical), 2 (certifier).");
         }
 
+        if (getMaxParallelRequests() < 1) {
+            throw new ConfigurationException("Max parallel requests must be greater than 0.");
+        }
+
+        if (getGroupMembershipFlushInterval() < 0) {
+            throw new ConfigurationException("Group membership flush interval must not be negative.");
+        }
+
+        if (getSlowOperationThreshold() < 0) {
+            throw new ConfigurationException("Slow operation threshold must not be negative.");
+        }
+
+        if (getDxlReadBlockSize() < 0) {
+            throw new ConfigurationException("DXL read block size must not be negative.");
+        }
+
+        if (getMaxReconnectAttempts() < 0) {
+            throw new ConfigurationException("Max reconnect attempts must not be negative.");
+        }
+
+        if (getIorRefreshInterval() < 0) {
+            throw new ConfigurationException("IOR refresh interval must not be negative.");
+        }
+
+        if (getDocumentWriteFlushInterval() < 0) {
+            throw new ConfigurationException("Document write flush interval must not be negative.");
+        }
+
+        if (getGroupGraphRefreshInterval() < 0) {
+            throw new ConfigurationException("Group graph refresh interval must not be negative.");
+        }
+
+        if (getDenyGroupRefreshInterval() < 0) {
+            throw new ConfigurationException("Deny group refresh interval must not be negative.");
+        }
+
+        if (getMemberLogSize() < 1) {
+            throw new ConfigurationException("Member log size must be greater than 0.");
+        }
+
+        for (String sortView : getSortViews()) {
+            int index = sortView != null ? sortView.indexOf('=') : -1;
+            if (index < 1 || index == sortView.length() - 1) {
+                throw new ConfigurationException("Sort view '" + sortView
+                        + "' must be in format <attribute name>=<view name>.");
+            }
+        }
+
         isNotEmpty(getIorHost(), "Ior host url must not be empty.");
         isNotEmpty(getUserDatabaseName(), "User database name must not be empty.");
         isNotEmpty(getAdministrationServer(), "Administration server must not be empty.");
@@ -439,6 +500,251 @@ public class DominoConfiguration extends AbstractConfiguration {
         return syncInetPswd;
     }
 
+    /**
+     * Interval in seconds during which group membership changes are collected and then written
+     * as one AdminP request (or one Members update) per group. 0 means that changes are written
+     * at the end of each operation.
+     *
+     * @return 0 by default
+     */
+    @ConfigurationProperty(displayMessageKey = "UI_GROUP_MEMBERSHIP_FLUSH_INTERVAL",
+            helpMessageKey = "UI_GROUP_MEMBERSHIP_FLUSH_INTERVAL_HELP")
+    public Integer getGroupMembershipFlushInterval() {
+        if (groupMembershipFlushInterval == null) {
+            groupMembershipFlushInterval = 0;
+        }
+        return groupMembershipFlushInterval;
+    }
+
+    public void setGroupMembershipFlushInterval(Integer groupMembershipFlushInterval) {
+        this.groupMembershipFlushInterval = groupMembershipFlushInterval;
+    }
+
+    /**
+     * Name of the view in user database sorted by group members (one entry per member). It's used
+     * to find all groups of a member with one indexed lookup. Empty value disables the lookup and
+     * groups are searched one by one.
+     *
+     * @return ($ServerAccess) by default
+     */
+    @ConfigurationProperty(displayMessageKey = "UI_GROUP_MEMBERS_VIEW",
+            helpMessageKey = "UI_GROUP_MEMBERS_VIEW_HELP")
+    public String getGroupMembersView() {
+        return groupMembersView;
+    }
+
+    public void setGroupMembersView(String groupMembersView) {
+        this.groupMembersView = groupMembersView;
+    }
+
+    /**
+     * Maximal number of DIIOP requests executed in parallel (document reads during search, group
+     * member classification, group lookups). Every parallel request uses its own session, so value
+     * should not exceed DIIOP session limit of the server.
+     *
+     * @return 1 by default (no parallel requests)
+     */
+    @ConfigurationProperty(displayMessageKey = "UI_MAX_PARALLEL_REQUESTS",
+            helpMessageKey = "UI_MAX_PARALLEL_REQUESTS_HELP")
+    public Integer getMaxParallelRequests() {
+        if (maxParallelRequests == null) {
+            maxParallelRequests = 1;
+        }
+        return maxParallelRequests;
+    }
+
+    public void setMaxParallelRequests(Integer maxParallelRequests) {
+        this.maxParallelRequests = maxParallelRequests;
+    }
+
+    /**
+     * Views used for sorted searches, every value is in format &lt;attribute name&gt;=&lt;view name&gt;,
+     * where first column of view is sorted by attribute, e.g. FullName=($VIMPeople).
+     *
+     * @return views for FullName and ListName by default
+     */
+    @ConfigurationProperty(displayMessageKey = "UI_SORT_VIEWS",
+            helpMessageKey = "UI_SORT_VIEWS_HELP")
+    public String[] getSortViews() {
+        if (sortViews == null) {
+            sortViews = new String[0];
+        }
+        return sortViews;
+    }
+
+    public void setSortViews(String[] sortViews) {
+        this.sortViews = sortViews;
+    }
+
+    /**
+     * Interval in seconds after which group graph used for effectiveGroups and effectiveMembers attributes
+     * is refreshed with groups modified since last refresh.
+     *
+     * @return 300 by default
+     */
+    @ConfigurationProperty(displayMessageKey = "UI_GROUP_GRAPH_REFRESH_INTERVAL",
+            helpMessageKey = "UI_GROUP_GRAPH_REFRESH_INTERVAL_HELP")
+    public Integer getGroupGraphRefreshInterval() {
+        if (groupGraphRefreshInterval == null) {
+            groupGraphRefreshInterval = 300;
+        }
+        return groupGraphRefreshInterval;
+    }
+
+    public void setGroupGraphRefreshInterval(Integer groupGraphRefreshInterval) {
+        this.groupGraphRefreshInterval = groupGraphRefreshInterval;
+    }
+
+    /**
+     * Interval in seconds after which set of deny list only groups (GroupType 3) used to compute enabled
+     * status of accounts is loaded again.
+     *
+     * @return 300 by default
+     */
+    @ConfigurationProperty(displayMessageKey = "UI_DENY_GROUP_REFRESH_INTERVAL",
+            helpMessageKey = "UI_DENY_GROUP_REFRESH_INTERVAL_HELP")
+    public Integer getDenyGroupRefreshInterval() {
+        if (denyGroupRefreshInterval == null) {
+            denyGroupRefreshInterval = 300;
+        }
+        return denyGroupRefreshInterval;
+    }
+
+    public void setDenyGroupRefreshInterval(Integer denyGroupRefreshInterval) {
+        this.denyGroupRefreshInterval = denyGroupRefreshInterval;
+    }
+
+    /**
+     * Number of added and removed group members retained in log used by sync of groups. Sync with
+     * older token returns all members of all groups.
+     *
+     * @return 100000 by default
+     */
+    @ConfigurationProperty(displayMessageKey = "UI_MEMBER_LOG_SIZE",
+            helpMessageKey = "UI_MEMBER_LOG_SIZE_HELP")
+    public Integer getMemberLogSize() {
+        if (memberLogSize == null) {
+            memberLogSize = 100000;
+        }
+        return memberLogSize;
+    }
+
+    public void setMemberLogSize(Integer memberLogSize) {
+        this.memberLogSize = memberLogSize;
+    }
+
+    /**
+     * Interval in seconds during which item changes from account and group updates are collected per
+     * document, every changed document is then saved once.
+     *
+     * @return 0 by default (documents are saved by every update)
+     */
+    @ConfigurationProperty(displayMessageKey = "UI_DOCUMENT_WRITE_FLUSH_INTERVAL",
+            helpMessageKey = "UI_DOCUMENT_WRITE_FLUSH_INTERVAL_HELP")
+    public Integer getDocumentWriteFlushInterval() {
+        if (documentWriteFlushInterval == null) {
+            documentWriteFlushInterval = 0;
+        }
+        return documentWriteFlushInterval;
+    }
+
+    public void setDocumentWriteFlushInterval(Integer documentWriteFlushInterval) {
+        this.documentWriteFlushInterval = documentWriteFlushInterval;
+    }
+
+    /**
+     * If true, session, user database and lookup views (group members view, sort views) are opened
+     * when connector is initialized instead of by first operation.
+     *
+     * @return false by default
+     */
+    @ConfigurationProperty(displayMessageKey = "UI_WARM_UP_ON_INIT",
+            helpMessageKey = "UI_WARM_UP_ON_INIT_HELP")
+    public Boolean getWarmUpOnInit() {
+        if (warmUpOnInit == null) {
+            warmUpOnInit = false;
+        }
+        return warmUpOnInit;
+    }
+
+    public void setWarmUpOnInit(Boolean warmUpOnInit) {
+        this.warmUpOnInit = warmUpOnInit;
+    }
+
+    /**
+     * Interval in seconds after which cached IOR is fetched again in background.
+     *
+     * @return 300 by default
+     */
+    @ConfigurationProperty(displayMessageKey = "UI_IOR_REFRESH_INTERVAL",
+            helpMessageKey = "UI_IOR_REFRESH_INTERVAL_HELP")
+    public Integer getIorRefreshInterval() {
+        if (iorRefreshInterval == null) {
+            iorRefreshInterval = 300;
+        }
+        return iorRefreshInterval;
+    }
+
+    public void setIorRefreshInterval(Integer iorRefreshInterval) {
+        this.iorRefreshInterval = iorRefreshInterval;
+    }
+
+    /**
+     * Maximal number of reconnects during one search when DIIOP connection breaks, search is then
+     * resumed after last returned object.
+     *
+     * @return 3 by default
+     */
+    @ConfigurationProperty(displayMessageKey = "UI_MAX_RECONNECT_ATTEMPTS",
+            helpMessageKey = "UI_MAX_RECONNECT_ATTEMPTS_HELP")
+    public Integer getMaxReconnectAttempts() {
+        if (maxReconnectAttempts == null) {
+            maxReconnectAttempts = 3;
+        }
+        return maxReconnectAttempts;
+    }
+
+    public void setMaxReconnectAttempts(Integer maxReconnectAttempts) {
+        this.maxReconnectAttempts = maxReconnectAttempts;
+    }
+
+    /**
+     * Number of documents exported by one DXL export call during search, items of exported documents
+     * are parsed locally instead of being read one by one. Also size of blocks of bulk export.
+     *
+     * @return 0 by default (DXL export is not used, bulk export uses default block size)
+     */
+    @ConfigurationProperty(displayMessageKey = "UI_DXL_READ_BLOCK_SIZE",
+            helpMessageKey = "UI_DXL_READ_BLOCK_SIZE_HELP")
+    public Integer getDxlReadBlockSize() {
+        if (dxlReadBlockSize == null) {
+            dxlReadBlockSize = 0;
+        }
+        return dxlReadBlockSize;
+    }
+
+    public void setDxlReadBlockSize(Integer dxlReadBlockSize) {
+        this.dxlReadBlockSize = dxlReadBlockSize;
+    }
+
+    /**
+     * Operations which take longer are logged as warning with time spent in particular Domino calls.
+     *
+     * @return 10000 (milliseconds) by default, 0 disables logging
+     */
+    @ConfigurationProperty(displayMessageKey = "UI_SLOW_OPERATION_THRESHOLD",
+            helpMessageKey = "UI_SLOW_OPERATION_THRESHOLD_HELP")
+    public Integer getSlowOperationThreshold() {
+        if (slowOperationThreshold == null) {
+            slowOperationThreshold = 10000;
+        }
+        return slowOperationThreshold;
+    }
+
+    public void setSlowOperationThreshold(Integer slowOperationThreshold) {
+        this.slowOperationThreshold = slowOperationThreshold;
+    }
+
     public void setSyncInetPswd(Boolean syncInetPswd) {
         this.syncInetPswd = syncInetPswd;
     }
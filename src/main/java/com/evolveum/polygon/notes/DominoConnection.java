@@ -16,40 +16,170 @@
 
 package com.evolveum.polygon.notes;
 
+import com.evolveum.polygon.notes.util.DominoFlightRecorder;
 import com.evolveum.polygon.notes.util.DominoUtils;
 import com.evolveum.polygon.notes.util.GuardedStringAccessor;
 import lotus.domino.*;
 import org.identityconnectors.common.logging.Log;
 import org.identityconnectors.framework.common.exceptions.ConnectorIOException;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * DIIOP session and objects opened through it must not be used by more threads at once. Every
+ * thread works with its own session context, context is bound to thread on first use and it's
+ * returned to idle contexts by {@link #release()}, so it can be reused by another thread later.
+ * Operations should be wrapped with {@link #acquire()} and {@link #release()} calls.
+ */
 public class DominoConnection {
 
     private static final Log LOG = Log.getLog(DominoConnection.class);
 
+    private static final long RECONNECT_BASE_DELAY = 500;
+    private static final long RECONNECT_MAX_DELAY = 30000;
+
+    /**
+     * CORBA system exceptions (wrapped in {@link NotesException#internal}) caused by broken connection.
+     */
+    private static final Set<String> CONNECTION_ERRORS = new HashSet<String>(Arrays.asList(
+            "org.omg.CORBA.COMM_FAILURE", "org.omg.CORBA.TRANSIENT", "org.omg.CORBA.OBJECT_NOT_EXIST",
+            "org.omg.CORBA.NO_RESPONSE"));
+
     private DominoConfiguration config;
 
-    private Session session;
-    private Database userDatabase;
-    private AdministrationProcess administrationProcess;
+    private DominoIorCache iorCache = DominoIorCache.getInstance();
+
+    private final ThreadLocal<SessionContext> current = new ThreadLocal<SessionContext>();
+    private final Queue<SessionContext> idle = new ConcurrentLinkedQueue<SessionContext>();
+    private final Set<SessionContext> contexts =
+            Collections.newSetFromMap(new ConcurrentHashMap<SessionContext, Boolean>());
+
+    private static class SessionContext {
+
+        private Session session;
+        private Database userDatabase;
+        private Database administrationDatabase;
+        private Map<String, View> views = new HashMap<String, View>();
+
+        private int leases;
+        /**
+         * Set by reconnect in another thread, session has to be replaced before context is used again
+         */
+        private volatile boolean dead;
+    }
 
     public DominoConnection(DominoConfiguration config) {
         this.config = config;
     }
 
+    private SessionContext getContext() {
+        SessionContext context = current.get();
+        if (context != null && !contexts.contains(context)) {
+            // context was disposed meanwhile
+            current.remove();
+            context = null;
+        }
+
+        if (context == null) {
+            context = idle.poll();
+            if (context == null) {
+                context = new SessionContext();
+                contexts.add(context);
+            }
+            current.set(context);
+        }
+
+        if (context.dead && context.leases == 0) {
+            LOG.ok("Session context was marked dead by reconnect, opening new session.");
+            recycleQuietly(context);
+        }
+
+        return context;
+    }
+
+    /**
+     * Binds session context to current thread until matching {@link #release()} call. Calls can be nested.
+     */
+    public void acquire() {
+        getContext().leases++;
+    }
+
+    /**
+     * Unbinds session context from current thread after last lease was released, context (and its opened
+     * session) is then available for other threads.
+     */
+    public void release() {
+        SessionContext context = current.get();
+        if (context == null) {
+            return;
+        }
+
+        if (context.leases > 0) {
+            context.leases--;
+        }
+
+        if (context.leases > 0) {
+            return;
+        }
+
+        current.remove();
+        if (contexts.contains(context)) {
+            idle.offer(context);
+        }
+    }
+
     public Session getSession() {
-        if (session == null) {
+        SessionContext context = getContext();
+        if (context.session == null) {
             LOG.ok("Opening session.");
+            DominoFlightRecorder.Event event = DominoFlightRecorder.begin(DominoFlightRecorder.Type.SESSION_OPEN);
             try {
-                String ior = NotesFactory.getIOR(config.getIorHost());
-                String password = GuardedStringAccessor.getString(config.getAdminPassword());
-                session = NotesFactory.createSessionWithIOR(ior, config.getAdminName(), password);
+                context.session = createSession();
             } catch (NotesException ex) {
                 throw new ConnectorIOException("Couldn't open session through IOR on '" + config.getIorHost()
                         + "', reason: " + DominoUtils.getExceptionMessage(ex), ex);
+            } finally {
+                event.commit(config.getIorHost(), config.getAdminName());
             }
         }
 
-        return session;
+        return context.session;
+    }
+
+    /**
+     * Creates session with cached IOR. If it fails, IOR is fetched again (server could be restarted
+     * meanwhile) and session creation is retried once with the fresh IOR.
+     */
+    protected Session createSession() throws NotesException {
+        String host = config.getIorHost();
+        String password = GuardedStringAccessor.getString(config.getAdminPassword());
+
+        String ior = iorCache.getIor(host, config.getIorRefreshInterval() * 1000L);
+        try {
+            return NotesFactory.createSessionWithIOR(ior, config.getAdminName(), password);
+        } catch (NotesException ex) {
+            LOG.ok("Couldn't open session with cached IOR, fetching IOR again, reason: {0}",
+                    DominoUtils.getExceptionMessage(ex));
+
+            String freshIor;
+            try {
+                freshIor = iorCache.fetch(host);
+            } catch (NotesException fetchEx) {
+                LOG.ok("Couldn't fetch IOR, reason: {0}", DominoUtils.getExceptionMessage(fetchEx));
+                throw ex;
+            }
+
+            if (freshIor.equals(ior)) {
+                throw ex;
+            }
+            return NotesFactory.createSessionWithIOR(freshIor, config.getAdminName(), password);
+        }
     }
 
     public void checkAlive() {
@@ -59,8 +189,9 @@ public class DominoConnection {
     }
 
     public Database getUserDatabase() {
-        if (userDatabase != null) {
-            return userDatabase;
+        SessionContext context = getContext();
+        if (context.userDatabase != null) {
+            return context.userDatabase;
         }
 
         Session session = getSession();
@@ -68,26 +199,98 @@ public class DominoConnection {
         String registrationServer = config.getRegistrationServer();
         try {
             LOG.ok("Opening user database {0} on registration server {1}.", userDB, registrationServer);
-            userDatabase = session.getDatabase(registrationServer, userDB, false);
+            context.userDatabase = session.getDatabase(registrationServer, userDB, false);
         } catch (NotesException ex) {
             throw new ConnectorIOException("Couldn't open database '" + userDB + "' on server '" + registrationServer
                     + "', reason: " + DominoUtils.getExceptionMessage(ex), ex);
         }
 
-        if (userDatabase == null) {
+        if (context.userDatabase == null) {
             throw new ConnectorIOException("Couldn't open database '" + userDB + "' on server '"
                     + registrationServer + "'.");
         }
 
-        return userDatabase;
+        return context.userDatabase;
+    }
+
+    /**
+     * @param name view name in user database
+     * @return cached view, null if view doesn't exist
+     */
+    public View getView(String name) {
+        SessionContext context = getContext();
+        View view = context.views.get(name);
+        if (view != null) {
+            return view;
+        }
+
+        Database database = getUserDatabase();
+        try {
+            LOG.ok("Opening view {0}.", name);
+            view = database.getView(name);
+        } catch (NotesException ex) {
+            throw new ConnectorIOException("Couldn't open view '" + name + "', reason: "
+                    + DominoUtils.getExceptionMessage(ex), ex);
+        }
+
+        if (view != null) {
+            context.views.put(name, view);
+        }
+
+        return view;
+    }
+
+    /**
+     * Opens session, user database and views for current thread, so that first operation doesn't have to.
+     *
+     * @param viewNames views in user database to be opened and cached
+     */
+    public void warmUp(Collection<String> viewNames) {
+        acquire();
+        try {
+            getUserDatabase();
+            for (String viewName : viewNames) {
+                if (getView(viewName) == null) {
+                    LOG.warn("View {0} doesn't exist in user database.", viewName);
+                }
+            }
+        } finally {
+            release();
+        }
+    }
+
+    public Database getAdministrationDatabase() {
+        SessionContext context = getContext();
+        if (context.administrationDatabase != null) {
+            return context.administrationDatabase;
+        }
+
+        Session session = getSession();
+        String server = config.getAdministrationServer();
+        try {
+            LOG.ok("Opening administration requests database on server {0}.", server);
+            context.administrationDatabase = session.getDatabase(server, DominoConstants.ADMIN_DATABASE, false);
+        } catch (NotesException ex) {
+            throw new ConnectorIOException("Couldn't open database '" + DominoConstants.ADMIN_DATABASE
+                    + "' on server '" + server + "', reason: " + DominoUtils.getExceptionMessage(ex), ex);
+        }
+
+        if (context.administrationDatabase == null) {
+            throw new ConnectorIOException("Couldn't open database '" + DominoConstants.ADMIN_DATABASE
+                    + "' on server '" + server + "'.");
+        }
+
+        return context.administrationDatabase;
     }
 
     public AdministrationProcess getAdministrationProcess() {
         Session session = getSession();
+        AdministrationProcess administrationProcess = null;
         try {
             administrationProcess = session.createAdministrationProcess(config.getAdministrationServer());
             administrationProcess.setCertifierFile(config.getCertifierIdFile());
             administrationProcess.setCertifierPassword(DominoUtils.decode(config.getCertifierPassword()));
+            administrationProcess = createRecordedProcess(administrationProcess);
         } catch (NotesException ex) {
             DominoUtils.handleException(ex, "Couldn't create administration process", LOG);
         }
@@ -95,17 +298,160 @@ public class DominoConnection {
         return administrationProcess;
     }
 
+    /**
+     * @return proxy which records AdminP requests as spans of current operation and as JFR events
+     */
+    private static AdministrationProcess createRecordedProcess(final AdministrationProcess process) {
+        InvocationHandler handler = new InvocationHandler() {
+
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if (method.getDeclaringClass() == Object.class || "recycle".equals(method.getName())) {
+                    return invokeProcess(process, method, args);
+                }
+
+                DominoOperationTrace.Span span = DominoOperationTrace.span("adminp." + method.getName());
+                DominoFlightRecorder.Event event = DominoFlightRecorder.begin(DominoFlightRecorder.Type.ADMINP_REQUEST);
+                try {
+                    return invokeProcess(process, method, args);
+                } finally {
+                    span.end();
+                    event.commit(method.getName(), getRequestTarget(args));
+                }
+            }
+        };
+
+        return (AdministrationProcess) Proxy.newProxyInstance(AdministrationProcess.class.getClassLoader(),
+                new Class[]{AdministrationProcess.class}, handler);
+    }
+
+    private static Object invokeProcess(AdministrationProcess process, Method method, Object[] args)
+            throws Throwable {
+        try {
+            return method.invoke(process, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * @return first string argument of AdminP request, which is user, group or database name
+     */
+    private static String getRequestTarget(Object[] args) {
+        if (args == null) {
+            return null;
+        }
+
+        for (Object arg : args) {
+            if (arg instanceof String) {
+                return (String) arg;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Session opening failures are wrapped in {@link ConnectorIOException}, therefore causes of exception
+     * are checked too. Other connector exceptions (e.g. database or view which can't be opened) are not
+     * connection errors, reconnect wouldn't help.
+     *
+     * @return true if exception was caused by closed session or broken DIIOP connection
+     */
+    public static boolean isConnectionError(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (!(cause instanceof NotesException)) {
+                continue;
+            }
+
+            NotesException notesEx = (NotesException) cause;
+            if (notesEx.id == NotesError.NOTES_ERR_SESSION_CLOSED) {
+                return true;
+            }
+            if (notesEx.internal != null && CONNECTION_ERRORS.contains(notesEx.internal.getClass().getName())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * If exception was caused by broken connection and attempts weren't exhausted, waits (exponential
+     * backoff) and recycles session of current thread's context, so that next call opens new session.
+     * Contexts of other threads may be in use, they're only marked dead and their sessions are replaced
+     * on next acquire.
+     *
+     * @param ex      exception thrown by operation
+     * @param attempt number of reconnects already done for operation
+     * @return true if operation can be retried
+     */
+    public boolean reconnect(Exception ex, int attempt) {
+        if (!isConnectionError(ex) || attempt >= config.getMaxReconnectAttempts()) {
+            return false;
+        }
+
+        long delay = Math.min(RECONNECT_MAX_DELAY, RECONNECT_BASE_DELAY << Math.min(attempt, 16));
+        LOG.warn("Domino connection is broken, reconnecting in {0} ms (attempt {1}), reason: {2}", delay,
+                attempt + 1, ex instanceof NotesException ? DominoUtils.getExceptionMessage((NotesException) ex)
+                        : ex.getMessage());
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        SessionContext currentContext = getContext();
+        for (SessionContext context : contexts) {
+            if (context != currentContext) {
+                context.dead = true;
+            }
+        }
+        recycleQuietly(currentContext);
+
+        return true;
+    }
+
+    /**
+     * Recycles sessions of all contexts, also contexts bound to other threads.
+     */
     public void dispose() {
-        if (session == null) {
-            return;
+        current.remove();
+        idle.clear();
+
+        NotesException exception = null;
+        for (SessionContext context : new ArrayList<SessionContext>(contexts)) {
+            contexts.remove(context);
+            try {
+                recycle(context);
+            } catch (NotesException ex) {
+                exception = ex;
+            }
+        }
+
+        if (exception != null) {
+            throw new ConnectorIOException("Couldn't recycle notes session, reason: "
+                    + DominoUtils.getExceptionMessage(exception), exception);
         }
+    }
 
+    private static void recycleQuietly(SessionContext context) {
         try {
-            session.recycle();
-            session = null;
+            recycle(context);
         } catch (NotesException ex) {
-            throw new ConnectorIOException("Couldn't recycle notes session, reason: "
-                    + DominoUtils.getExceptionMessage(ex), ex);
+            // session is already broken
+        }
+    }
+
+    private static void recycle(SessionContext context) throws NotesException {
+        context.dead = false;
+        context.userDatabase = null;
+        context.administrationDatabase = null;
+        context.views.clear();
+
+        Session session = context.session;
+        context.session = null;
+        if (session != null) {
+            session.recycle();
         }
     }
 }
@@ -16,6 +16,7 @@
 
 package com.evolveum.polygon.notes;
 
+import com.evolveum.polygon.notes.util.DominoFlightRecorder;
 import com.evolveum.polygon.notes.util.DominoUtils;
 import com.evolveum.polygon.notes.util.RegistrationBuilder;
 import lotus.domino.*;
@@ -25,6 +26,7 @@ import org.identityconnectors.common.logging.Log;
 import org.identityconnectors.common.security.GuardedString;
 import org.identityconnectors.framework.common.exceptions.AlreadyExistsException;
 import org.identityconnectors.framework.common.exceptions.ConnectorException;
+import org.identityconnectors.framework.common.exceptions.ConnectorIOException;
 import org.identityconnectors.framework.common.exceptions.UnknownUidException;
 import org.identityconnectors.framework.common.objects.*;
 import org.identityconnectors.framework.common.objects.Name;
@@ -35,9 +37,19 @@ import org.identityconnectors.framework.common.objects.filter.FilterTranslator;
 import org.identityconnectors.framework.spi.Configuration;
 import org.identityconnectors.framework.spi.ConnectorClass;
 import org.identityconnectors.framework.spi.PoolableConnector;
+import org.identityconnectors.framework.spi.SearchResultsHandler;
+import org.identityconnectors.framework.spi.SyncTokenResultsHandler;
 import org.identityconnectors.framework.spi.operations.*;
 
+import javax.xml.stream.XMLStreamException;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -53,7 +65,7 @@ import static com.evolveum.polygon.notes.util.DominoUtils.*;
 @ConnectorClass(displayNameKey = "UI_CONNECTOR_NAME",
         configurationClass = DominoConfiguration.class)
 public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, TestOp, DeleteOp,
-        UpdateAttributeValuesOp, SearchOp<String> {
+        UpdateAttributeValuesOp, SearchOp<String>, SyncOp {
 
     private static final Log LOG = Log.getLog(DominoConnector.class);
 
@@ -66,6 +78,23 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
     private static final String RENAME_NO_CHANGE = "*";
     private static final String NEW_HOME_SERVER_MAIL_PATH = "mail";
 
+    /**
+     * Number of documents read in one parallel batch per parallel request.
+     */
+    private static final int PARALLEL_BATCH_FACTOR = 10;
+    /**
+     * Number of documents exported by one DXL export call in bulk export, if DXL read block size isn't set.
+     */
+    private static final int EXPORT_BLOCK_SIZE = 500;
+
+    /**
+     * Interval in milliseconds in which background flusher checks if buffered writes are due
+     */
+    private static final long FLUSH_CHECK_INTERVAL = 1000L;
+    private static final int MEMBER_CHUNK_SIZE = 50;
+
+    private static final Schema SCHEMA = createSchema();
+
     private static final Pattern GET_QUERY;
 
     static {
@@ -75,6 +104,19 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
     private DominoConfiguration config;
     private DominoConnection connection;
 
+    private final DominoAdminRequestTracker adminRequests = new DominoAdminRequestTracker();
+    private DominoMembershipAggregator membershipChanges;
+    private DominoExecutor executor;
+    /**
+     * Sort view names by attribute name
+     */
+    private Map<String, String> sortViews;
+    private DominoGroupGraph groupGraph;
+    private DominoDenyGroups denyGroupCache;
+    private DominoMemberLog memberLog;
+    private DominoWriteBuffer writeBuffer;
+    private ScheduledExecutorService flusher;
+
     public DominoConfiguration getConfiguration() {
         return config;
     }
@@ -83,10 +125,17 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
         LOG.info("checkAlive::start");
         if (connection != null) {
             LOG.ok("Checking if domino connection is alive.");
-            connection.checkAlive();
+            connection.acquire();
+            try {
+                connection.checkAlive();
+            } finally {
+                connection.release();
+            }
         } else {
             LOG.ok("Creating new domino connection.");
-            connection = new DominoConnection(this.config);
+            connection = createConnection(this.config);
+            executor = new DominoExecutor(connection, this.config.getMaxParallelRequests());
+            warmUp();
         }
         LOG.info("checkAlive::finish");
     }
@@ -100,15 +149,139 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
                 + config.getClass().getName() + "'.");
 
         this.config = (DominoConfiguration) config;
-        this.connection = new DominoConnection(this.config);
+        this.connection = createConnection(this.config);
+        this.executor = new DominoExecutor(this.connection, this.config.getMaxParallelRequests());
+        this.membershipChanges = new DominoMembershipAggregator(
+                this.config.getGroupMembershipFlushInterval() * 1000L);
+
+        this.writeBuffer = new DominoWriteBuffer(this.config.getDocumentWriteFlushInterval() * 1000L);
+        this.groupGraph = new DominoGroupGraph(this.config.getGroupGraphRefreshInterval() * 1000L);
+        this.denyGroupCache = new DominoDenyGroups(this.config.getDenyGroupRefreshInterval() * 1000L);
+        if (this.writeBuffer.isEnabled() || this.config.getGroupMembershipFlushInterval() > 0) {
+            startFlusher();
+        }
+
+        this.sortViews = new HashMap<String, String>();
+        for (String sortView : this.config.getSortViews()) {
+            int index = sortView.indexOf('=');
+            sortViews.put(sortView.substring(0, index).trim(), sortView.substring(index + 1).trim());
+        }
+
+        warmUp();
 
         LOG.info("init::finish");
     }
 
+    /**
+     * @return connection used by this connector instance, tests may provide connection to another session source
+     */
+    protected DominoConnection createConnection(DominoConfiguration config) {
+        return new DominoConnection(config);
+    }
+
+    /**
+     * Buffered writes are flushed by background thread when their flush interval elapses, so that they aren't
+     * kept by idle pooled connector until its next operation. Thread is daemon and it's stopped by dispose.
+     */
+    private void startFlusher() {
+        flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "domino-write-flush");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        flusher.scheduleWithFixedDelay(new Runnable() {
+
+            public void run() {
+                flushDueWrites();
+            }
+        }, FLUSH_CHECK_INTERVAL, FLUSH_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    private void flushDueWrites() {
+        if (!writeBuffer.isFlushDue() && !membershipChanges.isFlushDue()) {
+            return;
+        }
+
+        connection.acquire();
+        try {
+            flushDocumentWrites(false);
+            flushMembershipChanges(false);
+        } catch (NotesException ex) {
+            LOG.error(ex, "Couldn't flush pending writes, reason: {0}", getExceptionMessage(ex));
+        } catch (RuntimeException ex) {
+            LOG.error(ex, "Couldn't flush pending writes, reason: {0}", ex.getMessage());
+        } finally {
+            connection.release();
+        }
+    }
+
+    private void stopFlusher() {
+        if (flusher == null) {
+            return;
+        }
+
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        flusher = null;
+    }
+
+    /**
+     * Writes all buffered changes before read, so that read doesn't return stale data.
+     */
+    private void flushPendingWrites() throws NotesException {
+        flushDocumentWrites(true);
+        flushMembershipChanges(true);
+    }
+
+    /**
+     * Opens session, user database and lookup views if warm up is enabled. Failure is only logged,
+     * connection is opened again by first operation.
+     */
+    private void warmUp() {
+        if (!config.getWarmUpOnInit()) {
+            return;
+        }
+
+        LOG.ok("Warming up domino connection.");
+        Set<String> views = new HashSet<String>(sortViews.values());
+        if (StringUtils.isNotEmpty(config.getGroupMembersView())) {
+            views.add(config.getGroupMembersView());
+        }
+
+        try {
+            connection.warmUp(views);
+        } catch (RuntimeException ex) {
+            LOG.warn(ex, "Couldn't warm up domino connection, reason: {0}", ex.getMessage());
+        }
+    }
+
     public void dispose() {
         LOG.info("dispose::start");
+        stopFlusher();
         if (connection != null) {
-            connection.dispose();
+            connection.acquire();
+            try {
+                flushDocumentWrites(true);
+            } catch (NotesException ex) {
+                LOG.error(ex, "Couldn't flush pending document writes, reason: {0}", getExceptionMessage(ex));
+            }
+            try {
+                flushMembershipChanges(true);
+            } catch (NotesException ex) {
+                LOG.error(ex, "Couldn't flush pending group membership changes, reason: {0}",
+                        getExceptionMessage(ex));
+            } finally {
+                connection.release();
+                executor.dispose();
+                connection.dispose();
+            }
         }
         LOG.info("dispose::finish");
     }
@@ -116,19 +289,220 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
     public void test() {
         LOG.info("test::start");
         config.validate();
-        connection.checkAlive();
+        connection.acquire();
+        try {
+            connection.checkAlive();
+        } finally {
+            connection.release();
+        }
         LOG.info("test::finish");
     }
 
+    /**
+     * @return administration process requests posted by this connector which weren't yet resolved
+     * as processed by {@link #getAdminRequestStatus(java.util.Collection)}
+     */
+    public List<DominoAdminRequest> getOutstandingAdminRequests() {
+        return adminRequests.getOutstanding();
+    }
+
+    /**
+     * Resolves status of administration process requests using one search in admin4.nsf.
+     *
+     * @param noteIds note ids of AdminP request documents
+     * @return map note id -> request status
+     */
+    public Map<String, DominoAdminRequestStatus> getAdminRequestStatus(Collection<String> noteIds) {
+        LOG.info("getAdminRequestStatus::start");
+        LOG.ok("Parameters: noteIds: {0}", noteIds);
+
+        Map<String, DominoAdminRequestStatus> status = null;
+        connection.acquire();
+        try {
+            status = adminRequests.getStatus(connection.getAdministrationDatabase(), noteIds);
+        } catch (NotesException ex) {
+            handleException(ex, "Couldn't get status of administration requests", LOG);
+        } finally {
+            connection.release();
+        }
+
+        LOG.info("getAdminRequestStatus::finish");
+        return status;
+    }
+
+    /**
+     * Returns member changes of groups since token, group members are not read again. Group created since
+     * token is returned with all members, updated group with membersAdded and membersRemoved attributes
+     * only. If token is null or it can't be used (log of member changes was restarted or changes were
+     * already dropped), all groups are returned with all members. Deltas of such snapshot carry the
+     * original token (current token if there's none) and current token is returned only when snapshot
+     * wasn't stopped by handler, so that incomplete snapshot is started again by next sync.
+     */
+    public void sync(ObjectClass oclass, SyncToken token, SyncResultsHandler handler, OperationOptions options) {
+        LOG.info("sync::start");
+        LOG.ok("Parameters: oc: {0}, t: {1}, op: {2}", oclass, token, options);
+
+        Validate.notNull(handler, "Sync results handler must not be null.");
+        validateSyncObjectClass(oclass);
+
+        DominoOperationTrace trace = DominoOperationTrace.start("sync " + oclass.getObjectClassValue(),
+                config.getSlowOperationThreshold());
+        connection.acquire();
+        try {
+            flushPendingWrites();
+            DominoMemberLog log = getMemberLog();
+            log.refresh(connection.getUserDatabase());
+
+            String originalToken = token != null ? token.getValue().toString() : null;
+            String lastToken = log.getToken();
+            List<DominoMemberLog.Change> changes = originalToken != null ? log.getChanges(originalToken) : null;
+            boolean full = changes == null;
+            if (full) {
+                LOG.ok("No usable token ({0}), returning all groups.", token);
+                changes = log.getSnapshot();
+            }
+
+            int count = 0;
+            for (DominoMemberLog.Change change : changes) {
+                lastToken = change.getToken();
+                count++;
+                String deltaToken = full && originalToken != null ? originalToken : change.getToken();
+                if (!handler.handle(createSyncDelta(change, deltaToken, full))) {
+                    if (full && count < changes.size()) {
+                        LOG.ok("Snapshot was stopped by handler, current token is not returned.");
+                        lastToken = originalToken;
+                    }
+                    break;
+                }
+            }
+
+            if (handler instanceof SyncTokenResultsHandler && lastToken != null) {
+                ((SyncTokenResultsHandler) handler).handleResult(new SyncToken(lastToken));
+            }
+            LOG.info("Sync returned {0} changes.", count);
+        } catch (NotesException ex) {
+            handleException(ex, "Couldn't sync " + oclass.getObjectClassValue(), LOG);
+        } finally {
+            connection.release();
+            trace.finish(LOG);
+        }
+
+        LOG.info("sync::finish");
+    }
+
+    public SyncToken getLatestSyncToken(ObjectClass oclass) {
+        LOG.info("getLatestSyncToken::start");
+        LOG.ok("Parameters: oc: {0}", oclass);
+
+        validateSyncObjectClass(oclass);
+
+        SyncToken token = null;
+        connection.acquire();
+        try {
+            flushPendingWrites();
+            DominoMemberLog log = getMemberLog();
+            log.refresh(connection.getUserDatabase());
+            token = new SyncToken(log.getToken());
+        } catch (NotesException ex) {
+            handleException(ex, "Couldn't get latest sync token", LOG);
+        } finally {
+            connection.release();
+        }
+
+        LOG.info("getLatestSyncToken::finish");
+        return token;
+    }
+
+    private void validateSyncObjectClass(ObjectClass oclass) {
+        Validate.notNull(oclass, "Object class must not be null.");
+        if (!ObjectClass.GROUP.equals(oclass)) {
+            throw new IllegalArgumentException("Sync is supported only for object class '" + ObjectClass.GROUP
+                    + "', not for '" + oclass + "'.");
+        }
+    }
+
+    /**
+     * Log of member changes is shared by connector instances working with the same user database.
+     */
+    private DominoMemberLog getMemberLog() throws NotesException {
+        if (memberLog == null) {
+            String key = config.getRegistrationServer() + "!!" + connection.getUserDatabase().getReplicaID();
+            memberLog = DominoMemberLog.getInstance(key, config.getMemberLogSize());
+        }
+        return memberLog;
+    }
+
+    private SyncDelta createSyncDelta(DominoMemberLog.Change change, String token, boolean full)
+            throws NotesException {
+        SyncDeltaBuilder delta = new SyncDeltaBuilder();
+        delta.setToken(new SyncToken(token));
+        delta.setObjectClass(ObjectClass.GROUP);
+        delta.setUid(new Uid(change.getName()));
+        if (DominoMemberLog.ChangeType.DELETE == change.getType()) {
+            delta.setDeltaType(SyncDeltaType.DELETE);
+            return delta.build();
+        }
+
+        if (change.getPreviousName() != null) {
+            delta.setPreviousUid(new Uid(change.getPreviousName()));
+        }
+
+        ConnectorObjectBuilder object = new ConnectorObjectBuilder();
+        object.setObjectClass(ObjectClass.GROUP);
+        object.setUid(change.getName());
+        object.setName(change.getName());
+        if (full) {
+            delta.setDeltaType(SyncDeltaType.CREATE_OR_UPDATE);
+            object.addAttribute(build(MEMBERS, getAbbreviatedNames(change.getAdded()).toArray()));
+        } else if (DominoMemberLog.ChangeType.CREATE == change.getType()) {
+            delta.setDeltaType(SyncDeltaType.CREATE);
+            object.addAttribute(build(MEMBERS, getAbbreviatedNames(change.getAdded()).toArray()));
+        } else {
+            delta.setDeltaType(SyncDeltaType.UPDATE);
+            if (!change.getAdded().isEmpty()) {
+                object.addAttribute(build(MEMBERS_ADDED, getAbbreviatedNames(change.getAdded()).toArray()));
+            }
+            if (!change.getRemoved().isEmpty()) {
+                object.addAttribute(build(MEMBERS_REMOVED, getAbbreviatedNames(change.getRemoved()).toArray()));
+            }
+        }
+        delta.setObject(object.build());
+
+        return delta.build();
+    }
+
+    private List<String> getAbbreviatedNames(List<String> names) throws NotesException {
+        List<String> abbreviated = new ArrayList<String>(names.size());
+        for (String name : names) {
+            abbreviated.add(getAbbreviated(connection, name));
+        }
+        return abbreviated;
+    }
+
     public Schema schema() {
         LOG.info("schema::start");
+        Schema retVal = SCHEMA;
+        LOG.info("schema::finish");
+        return retVal;
+    }
+
+    /**
+     * Schema doesn't depend on configuration, therefore it's built only once.
+     */
+    private static Schema createSchema() {
         SchemaBuilder schema = new SchemaBuilder(DominoConnector.class);
         //account
         Set<AttributeInfo> attributes = createAttributes(DominoAccountAttribute.class);
-        schema.defineObjectClass(ObjectClass.ACCOUNT_NAME, attributes);
+        ObjectClassInfoBuilder objectClassInfo = new ObjectClassInfoBuilder();
+        objectClassInfo.setType(ObjectClass.ACCOUNT_NAME);
+        objectClassInfo.addAllAttributeInfo(attributes);
+        ObjectClassInfo account = objectClassInfo.build();
+        schema.defineObjectClass(account);
+        // only member changes of groups are synchronized
+        schema.removeSupportedObjectClass(SyncOp.class, account);
         //group
         attributes = createAttributes(DominoGroupAttribute.class);
-        ObjectClassInfoBuilder objectClassInfo = new ObjectClassInfoBuilder();
+        objectClassInfo = new ObjectClassInfoBuilder();
         objectClassInfo.setType(ObjectClass.GROUP_NAME);
         objectClassInfo.addAllAttributeInfo(attributes);
         ObjectClassInfo group = objectClassInfo.build();
@@ -137,20 +511,30 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
         for (DominoOperationOption option : DominoOperationOption.values()) {
             schema.defineOperationOption(option.getInfo());
         }
+        // framework options have to be defined too, before they're marked as supported
+        OperationOptionInfo sortKeys = OperationOptionInfoBuilder.buildSortKeys();
+        OperationOptionInfo pageSize = OperationOptionInfoBuilder.buildPageSize();
+        OperationOptionInfo pagedResultsOffset = OperationOptionInfoBuilder.buildPagedResultsOffset();
+        schema.defineOperationOption(sortKeys);
+        schema.defineOperationOption(pageSize);
+        schema.defineOperationOption(pagedResultsOffset);
 
         schema.clearSupportedOptionsByOperation();
         schema.addSupportedOperationOption(CreateOp.class, DominoOperationOption.SYNCH_INTERNET_PASSWORD.getInfo());
         schema.addSupportedOperationOption(CreateOp.class, DominoOperationOption.MAIL_OWNER_ACCESS.getInfo());
         schema.addSupportedOperationOption(DeleteOp.class, DominoOperationOption.MAIL_FILE_ACTION.getInfo());
         schema.addSupportedOperationOption(DeleteOp.class, DominoOperationOption.DELETE_WINDOWS_USER.getInfo());
-
-        Schema retVal = schema.build();
-
-        LOG.info("schema::finish");
-        return retVal;
+        schema.addSupportedOperationOption(SearchOp.class, DominoOperationOption.COUNT_ONLY.getInfo());
+        schema.addSupportedOperationOption(SearchOp.class, DominoOperationOption.MAX_VALUES.getInfo());
+        schema.addSupportedOperationOption(SearchOp.class, DominoOperationOption.BULK_EXPORT.getInfo());
+        schema.addSupportedOperationOption(SearchOp.class, sortKeys);
+        schema.addSupportedOperationOption(SearchOp.class, pageSize);
+        schema.addSupportedOperationOption(SearchOp.class, pagedResultsOffset);
+
+        return schema.build();
     }
 
-    private Set<AttributeInfo> createAttributes(Class<? extends DominoAttribute> type) {
+    private static Set<AttributeInfo> createAttributes(Class<? extends DominoAttribute> type) {
         Set<AttributeInfo> infos = new HashSet<AttributeInfo>();
         for (DominoAttribute attr : type.getEnumConstants()) {
             if (attr.getAttribute() != null) {
@@ -180,8 +564,22 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
         Validate.notNull(oclass, "Object class must not be null.");
         Validate.notNull(handler, "Results handler must not be null.");
 
+        if (options != null && getOperationOptionValue(options, COUNT_ONLY, false)) {
+            int count = count(oclass, query);
+            if (handler instanceof SearchResultsHandler) {
+                ((SearchResultsHandler) handler).handleResult(new SearchResult(null, count));
+            }
+
+            LOG.info("executeQuery::finish");
+            return;
+        }
+
         String realQuery = createRealQuery(oclass, query);
+        DominoOperationTrace trace = DominoOperationTrace.start("executeQuery " + oclass.getObjectClassValue(),
+                config.getSlowOperationThreshold());
+        connection.acquire();
         try {
+            flushPendingWrites();
             Database userDatabase = connection.getUserDatabase();
             Matcher matcher = null;
             if (query != null) {
@@ -189,10 +587,10 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
             }
             if (query != null && matcher.matches()) {
                 try {
-                    Document document = userDatabase.getDocumentByUNID(matcher.group(1));
+                    Document document = openDocument(userDatabase, matcher.group(1));
 
-                    Set<String> attributes = createAttributesToGet(oclass, options);
-                    ConnectorObject object = createConnectorObject(document, oclass, attributes);
+                    DominoAttributesToGet attributes = createAttributesToGet(oclass, options);
+                    ConnectorObject object = createConnectorObject(document, attributes);
                     handler.handle(object);
                     LOG.info("Search returned 1 object (get document by UNID).");
                 } catch (NotesException ex) {
@@ -201,28 +599,506 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
                     }
                 }
             } else {
-                DocumentCollection collection = userDatabase.search(realQuery);
-                Document document = collection.getFirstDocument();
-
-                int count = 0;
-                Set<String> attributes = createAttributesToGet(oclass, options);
-                while (document != null) {
-                    count++;
-                    ConnectorObject object = createConnectorObject(document, oclass, attributes);
-                    if (!handler.handle(object)) {
+                DominoAttributesToGet attributes = createAttributesToGet(oclass, options);
+
+                Integer offset = options != null ? options.getPagedResultsOffset() : null;
+                Integer pageSize = options != null ? options.getPageSize() : null;
+                DominoPage page = new DominoPage(offset, pageSize);
+
+                SortKey sortKey = getSortKey(options);
+                boolean bulk = options != null && getOperationOptionValue(options, BULK_EXPORT, false);
+
+                CountingResultsHandler counter = new CountingResultsHandler(handler);
+                int total;
+                for (int attempt = 0; ; attempt++) {
+                    try {
+                        // documents could be created or deleted meanwhile, therefore page is searched again
+                        // from its start and objects already passed to handler are skipped by uid
+                        total = search(realQuery, sortKey, page, attributes, bulk, counter);
                         break;
+                    } catch (NotesException ex) {
+                        if (counter.stopped || !connection.reconnect(ex, attempt)) {
+                            throw ex;
+                        }
+                    } catch (ConnectorIOException ex) {
+                        if (counter.stopped || !connection.reconnect(ex, attempt)) {
+                            throw ex;
+                        }
                     }
-                    document = collection.getNextDocument();
+                    LOG.info("Resuming search after {0} objects.", counter.count);
+                }
+                LOG.info("Search returned {0} objects.", counter.count);
+
+                if (page.isPaged() && handler instanceof SearchResultsHandler) {
+                    int remaining = Math.max(0, total - page.getOffset() + 1 - counter.count);
+                    ((SearchResultsHandler) handler).handleResult(new SearchResult(null, remaining));
                 }
-                LOG.info("Search returned {0} objects.", count);
             }
         } catch (NotesException ex) {
             handleException(ex, "Couldn't execute query", LOG);
+        } finally {
+            connection.release();
+            trace.finish(LOG);
         }
 
         LOG.info("executeQuery::finish");
     }
 
+    /**
+     * Searches documents and passes connector objects created for documents from page to handler.
+     *
+     * @return number of documents matching query, -1 if it's not needed (page is not defined)
+     */
+    private int search(String realQuery, SortKey sortKey, DominoPage page, DominoAttributesToGet attributes,
+                       boolean bulk, ResultsHandler handler) throws NotesException {
+        DocumentCollection collection = searchDocuments(connection.getUserDatabase(), realQuery);
+        View sortView = bulk ? null : getSortView(attributes.getInfo(), sortKey);
+
+        int total;
+        if (bulk) {
+            total = page.isPaged() ? collection.getCount() : -1;
+            handleExport(collection, page, attributes, handler);
+        } else if (sortView != null) {
+            ViewEntryCollection entries = sortView.getAllEntries();
+            entries.intersect(collection);
+            // view may contain more entries for one document, page and total count are in documents
+            total = collection.getCount();
+            handleEntries(entries, sortKey.isAscendingOrder(), total, page, attributes, handler);
+            recycleQuietly(entries);
+        } else {
+            total = page.isPaged() ? collection.getCount() : -1;
+            // identifiers are read with one call per document, opening documents again in batches costs more
+            if (getBatchSize() > 1 && !attributes.isIdentifiersOnly()) {
+                handleDocumentsInBatches(collection, page, attributes, handler);
+            } else {
+                handleDocuments(collection, page, attributes, handler);
+            }
+        }
+        recycleQuietly(collection);
+
+        return total;
+    }
+
+    /**
+     * Counts objects matching query, documents are not opened, number is taken from search collection.
+     *
+     * @param oclass object class
+     * @param query  query created by {@link DominoFilterTranslator}, may be null
+     * @return number of matching objects
+     */
+    public int count(ObjectClass oclass, String query) {
+        LOG.info("count::start");
+        LOG.ok("Parameters: oc: {0}, q: {1}", oclass, query);
+
+        Validate.notNull(oclass, "Object class must not be null.");
+
+        String realQuery = createRealQuery(oclass, query);
+        int count = 0;
+        DominoOperationTrace trace = DominoOperationTrace.start("count " + oclass.getObjectClassValue(),
+                config.getSlowOperationThreshold());
+        connection.acquire();
+        try {
+            flushPendingWrites();
+            Database userDatabase = connection.getUserDatabase();
+            Matcher matcher = query != null ? GET_QUERY.matcher(query) : null;
+            if (matcher != null && matcher.matches()) {
+                Document document = null;
+                try {
+                    document = openDocument(userDatabase, matcher.group(1));
+                    count = document != null ? 1 : 0;
+                } catch (NotesException ex) {
+                    if (NotesError.NOTES_ERR_BAD_UNID != ex.id) {
+                        throw ex;
+                    }
+                } finally {
+                    recycleQuietly(document);
+                }
+            } else {
+                DocumentCollection collection = searchDocuments(userDatabase, realQuery);
+                count = collection.getCount();
+                recycleQuietly(collection);
+            }
+            LOG.info("Query matches {0} objects.", count);
+        } catch (NotesException ex) {
+            handleException(ex, "Couldn't count objects", LOG);
+        } finally {
+            connection.release();
+            trace.finish(LOG);
+        }
+
+        LOG.info("count::finish");
+        return count;
+    }
+
+    private int handleDocuments(DocumentCollection collection, DominoPage page, DominoAttributesToGet attributes,
+                                ResultsHandler handler) throws NotesException {
+        int count = 0;
+        Document document = page.getOffset() > 1 ? collection.getNthDocument(page.getOffset())
+                : collection.getFirstDocument();
+        while (document != null && page.isInPage(count)) {
+            count++;
+            ConnectorObject object = createConnectorObject(document, attributes);
+            if (!handler.handle(object)) {
+                break;
+            }
+            document = collection.getNextDocument();
+        }
+
+        return count;
+    }
+
+    /**
+     * Reads UNIDs of a batch of documents and creates connector objects for them in parallel or from DXL
+     * export, every document is opened again by its UNID in worker's session. Objects are passed to
+     * handler in collection order.
+     */
+    private int handleDocumentsInBatches(DocumentCollection collection, DominoPage page,
+                                         DominoAttributesToGet attributes, ResultsHandler handler)
+            throws NotesException {
+        int batchSize = getBatchSize();
+
+        CountingResultsHandler counter = new CountingResultsHandler(handler);
+        Document document = page.getOffset() > 1 ? collection.getNthDocument(page.getOffset())
+                : collection.getFirstDocument();
+        while (document != null && page.isInPage(counter.count)) {
+            List<String> unids = new ArrayList<String>(batchSize);
+            while (document != null && unids.size() < batchSize && page.isInPage(counter.count + unids.size())) {
+                unids.add(document.getUniversalID());
+                recycleQuietly(document);
+                document = collection.getNextDocument();
+            }
+
+            if (!handleBatch(unids, attributes, counter)) {
+                break;
+            }
+        }
+        recycleQuietly(document);
+
+        return counter.count;
+    }
+
+    /**
+     * Exports documents of page in blocks, one DXL export call per block, and passes objects to handler
+     * while DXL of block is parsed. Documents are never opened one by one and only one block of DXL is
+     * held in memory.
+     */
+    private int handleExport(DocumentCollection collection, DominoPage page, DominoAttributesToGet attributes,
+                             ResultsHandler handler) throws NotesException {
+        int blockSize = config.getDxlReadBlockSize() > 0 ? config.getDxlReadBlockSize() : EXPORT_BLOCK_SIZE;
+        Database database = connection.getUserDatabase();
+
+        CountingResultsHandler counter = new CountingResultsHandler(handler);
+        int exported = 0;
+        Document document = page.getOffset() > 1 ? collection.getNthDocument(page.getOffset())
+                : collection.getFirstDocument();
+        while (document != null && page.isInPage(exported)) {
+            DocumentCollection block = database.createDocumentCollection();
+            try {
+                int size = 0;
+                while (document != null && size < blockSize && page.isInPage(exported)) {
+                    block.addDocument(document);
+                    recycleQuietly(document);
+                    document = collection.getNextDocument();
+                    size++;
+                    exported++;
+                }
+
+                if (!handleExportBlock(block, attributes, counter)) {
+                    break;
+                }
+            } finally {
+                recycleQuietly(block);
+            }
+        }
+        recycleQuietly(document);
+
+        return counter.count;
+    }
+
+    /**
+     * @return false if handler stopped the search
+     */
+    private boolean handleExportBlock(DocumentCollection block, final DominoAttributesToGet attributes,
+                                      final CountingResultsHandler handler) throws NotesException {
+        String dxl = exportDxl(block);
+        try {
+            DominoDxlReader.read(new StringReader(dxl), new DominoDxlReader.DocumentHandler() {
+
+                public boolean handle(DominoDocumentData document) throws NotesException {
+                    return handler.handle(createConnectorObject(document, attributes));
+                }
+            });
+        } catch (XMLStreamException ex) {
+            throw new ConnectorException("Couldn't parse DXL export of documents, reason: " + ex.getMessage(), ex);
+        }
+
+        return !handler.stopped;
+    }
+
+    /**
+     * Exports documents without rich text attachments, pictures and embedded objects.
+     */
+    private String exportDxl(DocumentCollection collection) throws NotesException {
+        DxlExporter exporter = connection.getSession().createDxlExporter();
+        DominoOperationTrace.Span span = DominoOperationTrace.span("dxl.export");
+        try {
+            exporter.setOutputDOCTYPE(false);
+            exporter.setOmitRichtextAttachments(true);
+            exporter.setOmitRichtextPictures(true);
+            exporter.setOmitOLEObjects(true);
+            exporter.setOmitMiscFileObjects(true);
+
+            return exporter.exportDxl(collection);
+        } finally {
+            span.end();
+            recycleQuietly(exporter);
+        }
+    }
+
+    /**
+     * @return number of documents read in one batch, 1 if documents are read one by one
+     */
+    private int getBatchSize() {
+        int blockSize = config.getDxlReadBlockSize();
+        if (blockSize > 0) {
+            return blockSize * executor.getParallelism();
+        }
+
+        return executor.isParallel() ? executor.getParallelism() * PARALLEL_BATCH_FACTOR : 1;
+    }
+
+    /**
+     * Creates connector objects for documents in parallel and passes them to handler in the same order.
+     *
+     * @return false if handler stopped the search
+     */
+    private boolean handleBatch(List<String> unids, DominoAttributesToGet attributes, ResultsHandler handler)
+            throws NotesException {
+        int blockSize = config.getDxlReadBlockSize();
+        if (blockSize > 0 && !attributes.isIdentifiersOnly()) {
+            return handleDxlBlocks(unids, blockSize, attributes, handler);
+        }
+
+        List<Callable<ConnectorObject>> tasks = new ArrayList<Callable<ConnectorObject>>(unids.size());
+        for (String unid : unids) {
+            tasks.add(createConnectorObjectTask(unid, attributes));
+        }
+
+        for (ConnectorObject object : executor.invokeAll(tasks)) {
+            if (!handler.handle(object)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Splits batch to blocks, every block is exported and parsed by one worker.
+     *
+     * @return false if handler stopped the search
+     */
+    private boolean handleDxlBlocks(List<String> unids, int blockSize, DominoAttributesToGet attributes,
+                                    ResultsHandler handler) throws NotesException {
+        List<Callable<List<ConnectorObject>>> tasks = new ArrayList<Callable<List<ConnectorObject>>>();
+        for (int i = 0; i < unids.size(); i += blockSize) {
+            tasks.add(createDxlBlockTask(unids.subList(i, Math.min(i + blockSize, unids.size())), attributes));
+        }
+
+        for (List<ConnectorObject> objects : executor.invokeAll(tasks)) {
+            for (ConnectorObject object : objects) {
+                if (!handler.handle(object)) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private Callable<List<ConnectorObject>> createDxlBlockTask(final List<String> unids,
+                                                               final DominoAttributesToGet attributes) {
+        return new Callable<List<ConnectorObject>>() {
+
+            public List<ConnectorObject> call() throws Exception {
+                return readDxlBlock(unids, attributes);
+            }
+        };
+    }
+
+    /**
+     * Exports block of documents by one DXL export call and creates connector objects from parsed DXL,
+     * instead of reading every item of every document by separate remote call.
+     *
+     * @return connector objects in the same order as UNIDs, documents deleted in the meantime are skipped
+     */
+    private List<ConnectorObject> readDxlBlock(List<String> unids, DominoAttributesToGet attributes)
+            throws NotesException {
+        Database database = connection.getUserDatabase();
+        DocumentCollection block = database.createDocumentCollection();
+        try {
+            for (String unid : unids) {
+                Document document = openDocument(database, unid);
+                if (document != null) {
+                    block.addDocument(document);
+                    recycleQuietly(document);
+                }
+            }
+
+            String dxl = exportDxl(block);
+
+            Map<String, DominoDocumentData> documents = new HashMap<String, DominoDocumentData>();
+            for (DominoDocumentData document : DominoDxlReader.read(new StringReader(dxl))) {
+                documents.put(document.getUniversalId(), document);
+            }
+
+            List<ConnectorObject> objects = new ArrayList<ConnectorObject>(unids.size());
+            for (String unid : unids) {
+                DominoDocumentData document = documents.get(unid);
+                if (document != null) {
+                    objects.add(createConnectorObject(document, attributes));
+                }
+            }
+            return objects;
+        } catch (XMLStreamException ex) {
+            throw new ConnectorException("Couldn't parse DXL export of documents, reason: " + ex.getMessage(), ex);
+        } finally {
+            recycleQuietly(block);
+        }
+    }
+
+    /**
+     * Handles entries of sorted view. View may contain more entries for one document (e.g. for multi-value
+     * sorted column), page offset counts documents and document is handled at its first entry. First entry
+     * of page is found by its position only if view contains one entry per document, otherwise entries
+     * before page are read.
+     *
+     * @param documents number of documents in entries
+     */
+    private int handleEntries(ViewEntryCollection entries, boolean ascending, int documents, DominoPage page,
+                              DominoAttributesToGet attributes, ResultsHandler handler) throws NotesException {
+        Set<String> handled = new HashSet<String>();
+        ViewEntry entry;
+        if (page.getOffset() > 1 && entries.getCount() == documents) {
+            int position = ascending ? page.getOffset() : documents - page.getOffset() + 1;
+            entry = position > 0 ? entries.getNthEntry(position) : null;
+        } else {
+            entry = ascending ? entries.getFirstEntry() : entries.getLastEntry();
+            // documents before page, their other entries are skipped too
+            while (entry != null && handled.size() < page.getOffset() - 1) {
+                if (entry.isDocument()) {
+                    handled.add(entry.getUniversalID());
+                }
+
+                ViewEntry next = ascending ? entries.getNextEntry() : entries.getPrevEntry();
+                recycleQuietly(entry);
+                entry = next;
+            }
+        }
+
+        int batchSize = getBatchSize();
+        CountingResultsHandler counter = new CountingResultsHandler(handler);
+        List<String> unids = new ArrayList<String>(batchSize);
+        while (entry != null && page.isInPage(counter.count + unids.size())) {
+            String unid = entry.isDocument() ? entry.getUniversalID() : null;
+            if (unid != null && handled.add(unid)) {
+                unids.add(unid);
+            }
+
+            ViewEntry next = ascending ? entries.getNextEntry() : entries.getPrevEntry();
+            recycleQuietly(entry);
+            entry = next;
+
+            if (unids.size() >= batchSize || entry == null || !page.isInPage(counter.count + unids.size())) {
+                if (!handleBatch(unids, attributes, counter)) {
+                    break;
+                }
+                unids.clear();
+            }
+        }
+        recycleQuietly(entry);
+
+        return counter.count;
+    }
+
+    private static class CountingResultsHandler implements ResultsHandler {
+
+        private final ResultsHandler handler;
+        /**
+         * Uids of objects passed to handler, search resumed after reconnect doesn't pass them again
+         */
+        private final Set<String> handled = new HashSet<String>();
+        private int count;
+        private boolean stopped;
+
+        private CountingResultsHandler(ResultsHandler handler) {
+            this.handler = handler;
+        }
+
+        public boolean handle(ConnectorObject object) {
+            if (!handled.add(object.getUid().getUidValue())) {
+                return true;
+            }
+
+            count++;
+            stopped = !handler.handle(object);
+            return !stopped;
+        }
+    }
+
+    private SortKey getSortKey(OperationOptions options) {
+        SortKey[] sortKeys = options != null ? options.getSortKeys() : null;
+        if (sortKeys == null || sortKeys.length == 0) {
+            return null;
+        }
+
+        if (sortKeys.length > 1) {
+            LOG.ok("Only first sort key is used, other sort keys are ignored.");
+        }
+        return sortKeys[0];
+    }
+
+    /**
+     * @return view sorted by sort key attribute or null if there's no sort key or view for it
+     */
+    private View getSortView(DominoObjectClassInfo info, SortKey sortKey) throws NotesException {
+        if (sortKey == null) {
+            return null;
+        }
+
+        String field = sortKey.getField();
+        if (Name.NAME.equals(field)) {
+            field = info.getNameAttribute().getName();
+        }
+
+        String viewName = info.getAttribute(field) != null ? sortViews.get(field) : null;
+        if (viewName == null) {
+            LOG.warn("No sort view configured for attribute {0}, results are not sorted.", field);
+            return null;
+        }
+
+        View view = connection.getView(viewName);
+        if (view == null) {
+            LOG.warn("Sort view {0} doesn't exist, results are not sorted.", viewName);
+        }
+        return view;
+    }
+
+    private Callable<ConnectorObject> createConnectorObjectTask(final String unid,
+                                                                final DominoAttributesToGet attributes) {
+        return new Callable<ConnectorObject>() {
+
+            public ConnectorObject call() throws Exception {
+                Document document = openDocument(connection.getUserDatabase(), unid);
+                try {
+                    return createConnectorObject(document, attributes);
+                } finally {
+                    recycleQuietly(document);
+                }
+            }
+        };
+    }
+
     private String createRealQuery(ObjectClass oclass, String query) {
         StringBuilder sb = new StringBuilder();
 
@@ -244,47 +1120,160 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
         return sb.toString();
     }
 
+    private DominoAttributesToGet createAttributesToGet(ObjectClass oclass, OperationOptions options) {
+        DominoObjectClassInfo info = DominoObjectClassInfo.getInfo(oclass);
+        if (info == null) {
+            throw new ConnectorException("Unknown object class '" + oclass + "'.");
+        }
+
+        Integer maxValues = options != null ? getOperationOptionValue(options, MAX_VALUES, (Integer) null) : null;
+        return new DominoAttributesToGet(info, DominoUtils.createAttributesToGet(oclass, options), maxValues);
+    }
+
     /**
      * @param document  represents real object on Domino (target system)
-     * @param oclass    connector object type (account, group, etc.)
-     * @param attrToGet attributes to be returned in {@link org.identityconnectors.framework.common.objects.ConnectorObject}
+     * @param attrToGet attributes to be returned in {@link org.identityconnectors.framework.common.objects.ConnectorObject},
+     *                  also defines connector object type (account, group)
      * @return
      * @throws lotus.domino.NotesException
      */
-    private ConnectorObject createConnectorObject(Document document, ObjectClass oclass, Set<String> attrToGet)
+    private ConnectorObject createConnectorObject(Document document, DominoAttributesToGet attrToGet)
             throws NotesException {
         if (document == null) {
             return null;
         }
 
+        if (attrToGet.isIdentifiersOnly()) {
+            return createIdentifierObject(document, attrToGet.getInfo());
+        }
+
+        return createConnectorObject(readDocument(document, attrToGet), attrToGet);
+    }
+
+    /**
+     * Creates connector object with UID and name only. Only name item is read from document,
+     * other items and derived attributes (enabled, group list, org. hierarchy) are skipped.
+     */
+    private ConnectorObject createIdentifierObject(Document document, DominoObjectClassInfo info)
+            throws NotesException {
         ConnectorObjectBuilder object = new ConnectorObjectBuilder();
-        String fullNameValue = null;
+
+        Vector values = document.getItemValue(info.getNameAttribute().getName());
+        String name = values != null && !values.isEmpty() && values.get(0) != null ? values.get(0).toString() : null;
+        if (info.isAccount()) {
+            if (name != null) {
+                name = getAbbreviated(connection, name);
+            } else {
+                name = document.getItemValueString(LAST_NAME.getName());
+                name = name != null ? name : "";
+            }
+            object.setUid(getGuid(document.getUniversalID()));
+        } else {
+            name = getGroupFullName(values);
+            object.setUid(name);
+        }
+        object.setName(name);
+
+        return object.build();
+    }
+
+    /**
+     * Reads items needed for connector object, values of other items are not transferred from server.
+     */
+    private DominoDocumentData readDocument(Document document, DominoAttributesToGet attrToGet)
+            throws NotesException {
+        DominoObjectClassInfo info = attrToGet.getInfo();
+
+        DominoFlightRecorder.Event event = DominoFlightRecorder.begin(DominoFlightRecorder.Type.DOCUMENT_READ);
+        DateTime lastModified = document.getLastModified();
+        DominoDocumentData data = new DominoDocumentData(document.getUniversalID(),
+                lastModified != null ? lastModified.toJavaDate() : null);
         for (Item item : (Vector<Item>) document.getItems()) {
             String name = item.getName();
-            if (!attrToGet.contains(name) && !isNameAttribute(oclass, name)) {
+            DominoAttribute attr = info.getAttribute(name);
+            if (!isItemNeeded(attr, name, attrToGet)) {
+                continue;
+            }
+
+            // type is needed only to choose converter
+            boolean typed = attr == null || info.getConverter(attr) == DominoValueConverter.DEFAULT;
+            int type = typed ? item.getType() : 0;
+            Vector values = item.getValues();
+            data.addItem(new DominoDocumentData.ItemData(name, type,
+                    values != null ? new ArrayList<Object>(values) : new ArrayList<Object>()));
+        }
+        event.commit(data.getUniversalId(), data.getItems().size());
+
+        return data;
+    }
+
+    private boolean isItemNeeded(DominoAttribute attr, String name, DominoAttributesToGet attrToGet) {
+        if (attr == null) {
+            return attrToGet.isOtherWanted(name);
+        }
+
+        if (attrToGet.isWanted(attr) || attr == attrToGet.getInfo().getNameAttribute()
+                || attr == CHECK_PASSWORD || attr == LAST_NAME) {
+            return true;
+        }
+
+        if (attr == MAIL_FILE) {
+            return attrToGet.isWanted(MAIL_QUOTA_SIZE_LIMIT) || attrToGet.isWanted(MAIL_QUOTA_WARNING_THRESHOLD);
+        }
+
+        return attr == MEMBERS && (attrToGet.isWanted(MEMBER_GROUPS) || attrToGet.isWanted(MEMBER_PEOPLE));
+    }
+
+    /**
+     * @param document  items of real object on Domino (target system)
+     * @param attrToGet attributes to be returned in {@link org.identityconnectors.framework.common.objects.ConnectorObject},
+     *                  also defines connector object type (account, group)
+     */
+    private ConnectorObject createConnectorObject(DominoDocumentData document, DominoAttributesToGet attrToGet)
+            throws NotesException {
+        DominoObjectClassInfo info = attrToGet.getInfo();
+        boolean account = info.isAccount();
+        boolean mailQuota = account && (attrToGet.isWanted(MAIL_QUOTA_SIZE_LIMIT)
+                || attrToGet.isWanted(MAIL_QUOTA_WARNING_THRESHOLD));
+        boolean memberTypes = !account && (attrToGet.isWanted(MEMBER_GROUPS) || attrToGet.isWanted(MEMBER_PEOPLE));
+
+        ConnectorObjectBuilder object = new ConnectorObjectBuilder();
+        String fullNameValue = null;
+        for (DominoDocumentData.ItemData item : document.getItems()) {
+            String name = item.getName();
+            DominoAttribute attr = info.getAttribute(name);
+            boolean nameAttribute = attr != null && attr == info.getNameAttribute();
+            boolean wanted = attr != null ? attrToGet.isWanted(attr) : attrToGet.isOtherWanted(name);
+            if (!wanted && !nameAttribute) {
                 // unknown attribute or API is not asking for this attribute
                 continue;
             }
 
-            List<Object> values = createAttributeValues(item);
-            if (isNameAttribute(oclass, name)) {
+            DominoValueConverter converter = attr != null ? info.getConverter(attr) : DominoValueConverter.DEFAULT;
+            if (converter == DominoValueConverter.DEFAULT) {
+                converter = DominoValueConverter.forItemType(item.getType());
+            }
+            int maxValues = attr == MEMBERS ? attrToGet.getMaxValues() : -1;
+            List<Object> values = createAttributeValues(item.getValues(), converter, maxValues);
+            if (nameAttribute) {
                 String objectName = fullNameValue = getFirstValueString(values);
-                if (ObjectClass.ACCOUNT.equals(oclass)) {
+                if (account) {
                     if (objectName != null) {
                         objectName = getAbbreviated(connection, objectName);
 
-                        Attribute attr = build(CERTIFIER_ORG_HIERARCHY, getOrgFromName(connection, objectName));
-                        object.addAttribute(attr);
+                        Attribute orgAttr = build(CERTIFIER_ORG_HIERARCHY, getOrgFromName(connection, objectName));
+                        object.addAttribute(orgAttr);
 
-                        attr = build(ORG_UNIT, getOrgUnit(connection, objectName));
-                        object.addAttribute(attr);
+                        orgAttr = build(ORG_UNIT, getOrgUnit(connection, objectName));
+                        object.addAttribute(orgAttr);
                     } else {
-                        objectName = document.getItemValueString(LAST_NAME.getName());
+                        Object lastName = document.getFirstValue(LAST_NAME.getName());
+                        objectName = lastName != null ? lastName.toString() : "";
                     }
-                } else if (ObjectClass.GROUP.equals(oclass) && objectName != null) {
+                } else if (objectName != null) {
                     object.addAttribute(build(DISPLAY_NAME, objectName));
 
-                    objectName = getGroupFullName(item.getValues());
+                    objectName = getGroupFullName(values);
                     values.clear();
                     values.add(objectName);
 
@@ -297,33 +1286,17 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
             }
 
             //handle groups and members
-            if (ObjectClass.ACCOUNT.equals(oclass)) {
-                if (MAIL_FILE.getName().equals(name) && (isAttrToGet(attrToGet, MAIL_QUOTA_SIZE_LIMIT)
-                        || isAttrToGet(attrToGet, MAIL_QUOTA_WARNING_THRESHOLD))) {
-                    String mailDbName = values.size() > 0 ? item.getValueString() : null;
-                    addMailQuotaAttributes(object, mailDbName, attrToGet);
-                }
-            } else if (ObjectClass.GROUP.equals(oclass)) {
-                if (MEMBERS.getName().equals(name) && (isAttrToGet(attrToGet, MEMBER_GROUPS)
-                        || isAttrToGet(attrToGet, MEMBER_PEOPLE))) {
-                    //handle group members
-                    addGroupMemberPeople(object, values, attrToGet);
-                }
+            if (mailQuota && attr == MAIL_FILE) {
+                String mailDbName = getFirstValueString(values);
+                addMailQuotaAttributes(object, mailDbName, attrToGet);
+            } else if (memberTypes && attr == MEMBERS) {
+                //handle group members
+                addGroupMemberPeople(object, values, attrToGet);
             }
 
-            if (isAttrToGet(attrToGet, name)) {
+            if (wanted) {
                 //simply add attribute to connector object
-                DominoAttribute accAttr;
-
-                if (ObjectClass.ACCOUNT.equals(oclass)) {
-                    accAttr = DominoAccountAttribute.getAttribute(name);
-                } else if (ObjectClass.GROUP.equals(oclass)) {
-                    accAttr = DominoGroupAttribute.getAttribute(name);
-                } else {
-                    accAttr = null;
-                }
-
-                if ((accAttr != null) && (GuardedString.class.equals(accAttr.getType()))) {
+                if (attr != null && GuardedString.class.equals(attr.getType())) {
                     String guarded = (String) values.get(0);
                     object.addAttribute(AttributeBuilder.build(name, new GuardedString(guarded.toCharArray())));
                 } else {
@@ -332,44 +1305,87 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
             }
         }
 
-        String uid = getGuid(document.getUniversalID());
-        if (ObjectClass.ACCOUNT.equals(oclass)) {
+        String uid = getGuid(document.getUniversalId());
+        if (account) {
             object.setUid(uid);
 
-            Item chkItem = document.getFirstItem(CHECK_PASSWORD.getName());
-            boolean enabled = chkItem == null
-                    || !Integer.toString(AdministrationProcess.PWD_CHK_LOCKOUT).equals(chkItem.getText());
+            Object checkPassword = document.getFirstValue(CHECK_PASSWORD.getName());
+            if (checkPassword instanceof Number) {
+                checkPassword = ((Number) checkPassword).intValue();
+            }
+            boolean enabled = checkPassword == null
+                    || !Integer.toString(AdministrationProcess.PWD_CHK_LOCKOUT).equals(checkPassword.toString());
             object.addAttribute(AttributeBuilder.buildEnabled(enabled));
 
-            if (isAttrToGet(attrToGet, GROUP_LIST) && fullNameValue != null) {
-                addUsersToGroupList(object, fullNameValue);
+            if (attrToGet.isWanted(GROUP_LIST) && fullNameValue != null) {
+                addUsersToGroupList(object, fullNameValue, attrToGet);
             }
-        } else if (ObjectClass.GROUP.equals(oclass)) {
+
+            if (attrToGet.isWanted(EFFECTIVE_GROUPS) && fullNameValue != null) {
+                groupGraph.refresh(connection.getUserDatabase());
+                object.addAttribute(build(EFFECTIVE_GROUPS, groupGraph.getEffectiveGroups(fullNameValue).toArray()));
+            }
+        } else {
             object.addAttribute(build(DominoGroupAttribute.OBJECT_GUID, uid));
+
+            if (attrToGet.isWanted(EFFECTIVE_MEMBERS) && fullNameValue != null) {
+                groupGraph.refresh(connection.getUserDatabase());
+                List<String> members = new ArrayList<String>();
+                for (String member : groupGraph.getEffectiveMembers(fullNameValue)) {
+                    members.add(getAbbreviated(connection, member));
+                }
+                object.addAttribute(build(EFFECTIVE_MEMBERS, members.toArray()));
+            }
         }
 
         if (document.getLastModified() != null) {
-            DominoAttribute attr = ObjectClass.ACCOUNT.equals(oclass) ? DominoAccountAttribute.LAST_MODIFIED :
-                    DominoGroupAttribute.LAST_MODIFIED;
+            DominoAttribute attr = account ? DominoAccountAttribute.LAST_MODIFIED : DominoGroupAttribute.LAST_MODIFIED;
             object.addAttribute(AttributeBuilder.build(attr.getName(),
-                    Long.valueOf(document.getLastModified().toJavaDate().getTime())));
+                    Long.valueOf(document.getLastModified().getTime())));
         }
 
         return object.build();
     }
 
-    private void addUsersToGroupList(ConnectorObjectBuilder object, String fullName) throws NotesException {
-        List<String> groups = getGroupList(fullName);
-
+    /**
+     * Reads groups of user, deny groups aren't added to attribute but disable the account. Reading
+     * stops when max values limit is reached and either deny group was already found or there are no
+     * more groups.
+     */
+    private void addUsersToGroupList(ConnectorObjectBuilder object, String fullName, DominoAttributesToGet attrToGet)
+            throws NotesException {
         AttributeBuilder attr = new AttributeBuilder();
         attr.setName(GROUP_LIST.getName());
-        for (String group : groups) {
-            String displayName = getGroupDisplayName(group);
-            if (isDenyGroup(displayName)) {
-                object.addAttribute(new Attribute[]{AttributeBuilder.buildEnabled(false)});
-            } else {
-                attr.addValue(displayName);
+
+        denyGroupCache.refresh(connection.getUserDatabase());
+
+        boolean enabled = true;
+        int count = 0;
+
+        ContainsFilter filter = new ContainsFilter(build(MEMBERS, fullName));
+        DocumentCollection collection = null;
+        try {
+            collection = getDocumentCollection(DominoConstants.FORM_GROUP, filter);
+            Document document = collection.getFirstDocument();
+            while (document != null && (enabled || attrToGet.isBelowMaxValues(count))) {
+                String displayName = getGroupDisplayName(document.getItemValueString(LIST_NAME.getName()));
+                if (denyGroupCache.isDenyGroup(displayName)) {
+                    enabled = false;
+                } else if (attrToGet.isBelowMaxValues(count)) {
+                    attr.addValue(displayName);
+                    count++;
+                }
+
+                recycleQuietly(document);
+                document = collection.getNextDocument();
             }
+            recycleQuietly(document);
+        } finally {
+            recycleQuietly(collection);
+        }
+
+        if (!enabled) {
+            object.addAttribute(new Attribute[]{AttributeBuilder.buildEnabled(false)});
         }
 
         if (attr.getValue() == null || attr.getValue().isEmpty()) {
@@ -379,27 +1395,6 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
         object.addAttribute(attr.build());
     }
 
-    private boolean isDenyGroup(String displayName) throws NotesException {
-        DocumentCollection collection = null;
-        try {
-            EqualsFilter filter = new EqualsFilter(build(LIST_NAME, displayName));
-            collection = getDocumentCollection(DominoConstants.FORM_GROUP, filter);
-            Document group = collection.getFirstDocument();
-            if (group != null) {
-                String value = group.getItemValueString(GROUP_TYPE.getName());
-                recycleQuietly(group);
-
-                if ("3".equals(value)) {
-                    return true;
-                }
-            }
-        } finally {
-            recycleQuietly(collection);
-        }
-
-        return false;
-    }
-
     private List<String> getGroupList(String fullName) throws NotesException {
         List<String> groups = new ArrayList<String>();
 
@@ -420,7 +1415,7 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
         return groups;
     }
 
-    private String getGroupFullName(List<String> values) {
+    private String getGroupFullName(List<?> values) {
         if (values == null) {
             return null;
         }
@@ -428,22 +1423,24 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
         return StringUtils.join(values, ";");
     }
 
-    private void addMailQuotaAttributes(ConnectorObjectBuilder object, String mailDbname, Set<String> attrToGet)
+    private void addMailQuotaAttributes(ConnectorObjectBuilder object, String mailDbname,
+                                        DominoAttributesToGet attrToGet)
             throws NotesException {
         LOG.info("Adding mail quota attributes for mail db {0}.", mailDbname);
 
         Session session = connection.getSession();
         Database db = null;
+        DominoOperationTrace.Span span = DominoOperationTrace.span("mailDb.quota");
         try {
             db = session.getDatabase(null, mailDbname, false);
             if (db == null) {
                 return;
             }
 
-            if (isAttrToGet(attrToGet, MAIL_QUOTA_SIZE_LIMIT)) {
+            if (attrToGet.isWanted(MAIL_QUOTA_SIZE_LIMIT)) {
                 object.addAttribute(build(MAIL_QUOTA_SIZE_LIMIT, Integer.valueOf(db.getSizeQuota())));
             }
-            if (isAttrToGet(attrToGet, MAIL_QUOTA_WARNING_THRESHOLD)) {
+            if (attrToGet.isWanted(MAIL_QUOTA_WARNING_THRESHOLD)) {
                 Number size = db.getSizeWarning();
                 object.addAttribute(build(MAIL_QUOTA_WARNING_THRESHOLD, size.intValue()));
             }
@@ -457,81 +1454,309 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
             throw ex;
         } finally {
             recycleQuietly(db);
+            span.end();
         }
     }
 
-    private void addGroupMemberPeople(ConnectorObjectBuilder object, List<Object> values, Set<String> attrToGet)
+    /**
+     * Classifies members in chunks (in parallel if enabled), chunk results are released after every round
+     * of chunks. Classification stops when max values limit is reached for all requested
+     * attributes.
+     */
+    private void addGroupMemberPeople(ConnectorObjectBuilder object, List<Object> values,
+                                      final DominoAttributesToGet attrToGet)
             throws NotesException {
         List<String> groups = new ArrayList<String>();
-        List<String> peoples = new ArrayList<String>();
+        List<String> people = new ArrayList<String>();
+
+        int groupCount = 0;
+        int peopleCount = 0;
+        int roundSize = executor.getParallelism() * MEMBER_CHUNK_SIZE;
+        for (int i = 0; i < values.size() && isMemberClassificationNeeded(groupCount, peopleCount, attrToGet);
+                i += roundSize) {
+            List<Callable<MemberTypes>> tasks = new ArrayList<Callable<MemberTypes>>();
+            int roundEnd = Math.min(i + roundSize, values.size());
+            for (int j = i; j < roundEnd; j += MEMBER_CHUNK_SIZE) {
+                final List<Object> chunk = values.subList(j, Math.min(j + MEMBER_CHUNK_SIZE, roundEnd));
+                tasks.add(new Callable<MemberTypes>() {
+
+                    public MemberTypes call() throws Exception {
+                        return classifyMembers(chunk, attrToGet);
+                    }
+                });
+            }
+
+            for (MemberTypes types : executor.invokeAll(tasks)) {
+                for (String group : types.groups) {
+                    if (attrToGet.isBelowMaxValues(groupCount)) {
+                        groups.add(group);
+                        groupCount++;
+                    }
+                }
+                for (String person : types.people) {
+                    if (attrToGet.isBelowMaxValues(peopleCount)) {
+                        people.add(person);
+                        peopleCount++;
+                    }
+                }
+            }
+        }
+
+        if (attrToGet.isWanted(MEMBER_GROUPS)) {
+            object.addAttribute(build(MEMBER_GROUPS, groups.toArray()));
+        }
+
+        if (attrToGet.isWanted(MEMBER_PEOPLE)) {
+            object.addAttribute(build(MEMBER_PEOPLE, people.toArray()));
+        }
+    }
+
+    private boolean isMemberClassificationNeeded(int groupCount, int peopleCount, DominoAttributesToGet attrToGet) {
+        return (attrToGet.isWanted(MEMBER_GROUPS) && attrToGet.isBelowMaxValues(groupCount))
+                || (attrToGet.isWanted(MEMBER_PEOPLE) && attrToGet.isBelowMaxValues(peopleCount));
+    }
 
+    private MemberTypes classifyMembers(List<Object> values, DominoAttributesToGet attrToGet) throws NotesException {
+        MemberTypes types = new MemberTypes();
         for (Object value : values) {
             String fullName = getCanonical(connection, value.toString());
 
-            if (isAttrToGet(attrToGet, MEMBER_GROUPS) && checkIfGroupExists(fullName)) {
-                groups.add(fullName);
+            if (attrToGet.isWanted(MEMBER_GROUPS) && checkIfGroupExists(fullName)) {
+                types.groups.add(fullName);
             }
 
-            if (isAttrToGet(attrToGet, MEMBER_PEOPLE) && checkIfUserExist(fullName)) {
-                peoples.add(fullName);
+            if (attrToGet.isWanted(MEMBER_PEOPLE) && checkIfUserExist(fullName)) {
+                types.people.add(fullName);
             }
         }
 
-        if (isAttrToGet(attrToGet, MEMBER_GROUPS)) {
-            object.addAttribute(build(MEMBER_GROUPS, groups.toArray()));
-        }
+        return types;
+    }
 
-        if (isAttrToGet(attrToGet, MEMBER_PEOPLE)) {
-            object.addAttribute(build(MEMBER_PEOPLE, peoples.toArray()));
+    private static class MemberTypes {
+
+        private final List<String> groups = new ArrayList<String>();
+        private final List<String> people = new ArrayList<String>();
+    }
+
+    /**
+     * @param maxValues maximal number of converted values, -1 if all values should be converted
+     */
+    private List<Object> createAttributeValues(List<Object> itemValues, DominoValueConverter converter,
+                                               int maxValues) throws NotesException {
+        int size = maxValues >= 0 ? Math.min(maxValues, itemValues.size()) : itemValues.size();
+        List<Object> values = new ArrayList<Object>(size);
+        for (int i = 0; i < size; i++) {
+            Object value = itemValues.get(i);
+            values.add(value != null ? converter.convert(connection, value) : null);
         }
+
+        return values;
     }
 
-    private List<Object> createAttributeValues(Item item) throws NotesException {
-        List<Object> values = new ArrayList<Object>();
+    /**
+     * Creates objects by one DXL import call and updates existing objects. Objects with {@link Uid} update
+     * items of existing documents through document API, because DXL import of existing document replaces
+     * all its items; other objects are created as new documents. Only attributes stored as document items
+     * can be imported, name values must be canonical. Registration (ID files, certification, mail files)
+     * isn't done and group membership isn't synchronized, which makes import suitable for initial loads
+     * and resynchronization of directory documents.
+     *
+     * @param oclass  account or group
+     * @param objects attributes of imported objects
+     * @return uids of imported documents in import order
+     */
+    public List<Uid> bulkImport(ObjectClass oclass, List<Set<Attribute>> objects) {
+        LOG.info("bulkImport::start");
+        LOG.ok("Parameters: oc: {0}, objects: {1}", oclass, objects != null ? objects.size() : null);
 
-        String name = item.getName();
-        for (Object value : item.getValues()) {
-            if (PASSWORD_CHANGE_INTERVAL.getName().equals(name)
-                    || PASSWORD_GRACE_PERIOD.getName().equals(name)
-                    || ROAM_CLEAN_PER.getName().equals(name)) {
+        Validate.notNull(oclass, "Object class must not be null.");
+        Validate.notNull(objects, "Objects must not be null.");
 
-                values.add(((Double) value).intValue());
-            } else if (ROAM_CLEAN_SETTING.getName().equals(name)) {
-                values.add(Integer.valueOf((String) value));
-            } else if (MAIL_SERVER.getName().equals(name)
-                    || MEMBERS.getName().equals(name)) {
-                String abbreviated = DominoUtils.getAbbreviated(connection, (String) value);
-                values.add(abbreviated);
-            } else if (value instanceof DateTime) {
-                //translating to long (time in millis)
-                DateTime dateTime = (DateTime) value;
-                values.add(dateTime.toJavaDate().getTime());
-            } else if (value instanceof Number) {
-                values.add(value);
-            } else if (value != null) {
-                values.add(value.toString());
-            } else {
-                values.add(null);
+        DominoObjectClassInfo info = DominoObjectClassInfo.getInfo(oclass);
+        if (info == null) {
+            throw new IllegalArgumentException("Unknown object class '" + oclass + "'.");
+        }
+        String form = info.isAccount() ? DominoConstants.FORM_PERSON : DominoConstants.FORM_GROUP;
+
+        List<Uid> uids = new ArrayList<Uid>();
+        DominoOperationTrace trace = DominoOperationTrace.start("bulkImport " + oclass.getObjectClassValue(),
+                config.getSlowOperationThreshold());
+        connection.acquire();
+        try {
+            // positions of created objects in uids, their uids are known after import
+            List<Integer> created = new ArrayList<Integer>();
+            StringWriter dxl = new StringWriter();
+            DominoDxlWriter writer = new DominoDxlWriter(dxl);
+            for (Set<Attribute> attrs : objects) {
+                List<DominoDocumentData.ItemData> items = createImportItems(info, attrs);
+                Uid uid = AttributeUtil.getUidAttribute(attrs);
+                if (uid != null) {
+                    uids.add(updateImportedDocument(info, uid, items));
+                    continue;
+                }
+
+                // same as documents created by registration or create operation
+                items.add(new DominoDocumentData.ItemData(DominoConstants.TYPE, Item.TEXT,
+                        Collections.<Object>singletonList(form)));
+                writer.writeDocument(form, null, items);
+                created.add(uids.size());
+                uids.add(null);
+            }
+            writer.close();
+
+            if (!created.isEmpty()) {
+                List<Uid> createdUids = importDocuments(info, dxl.toString());
+                if (createdUids.size() != created.size()) {
+                    throw new ConnectorException("Only " + createdUids.size() + " of " + created.size()
+                            + " new documents were imported.");
+                }
+                for (int i = 0; i < created.size(); i++) {
+                    uids.set(created.get(i), createdUids.get(i));
+                }
+            }
+
+            LOG.info("Imported {0} objects, {1} created.", uids.size(), created.size());
+        } catch (NotesException ex) {
+            handleException(ex, "Couldn't import " + oclass.getObjectClassValue(), LOG);
+        } catch (XMLStreamException ex) {
+            throw new ConnectorException("Couldn't create DXL for import, reason: " + ex.getMessage(), ex);
+        } finally {
+            if (info.isGroup()) {
+                groupGraph.markStale();
+                denyGroupCache.markStale();
             }
+            connection.release();
+            trace.finish(LOG);
         }
 
-        return values;
+        LOG.info("bulkImport::finish");
+        return uids;
     }
 
-    private static boolean isNameAttribute(ObjectClass oclass, String name) {
-        if (oclass == null || name == null) {
-            return false;
+    /**
+     * Replaces imported items of existing document, other items are kept. Pending buffered writes of
+     * document are written together with imported items, imported values win.
+     */
+    private Uid updateImportedDocument(DominoObjectClassInfo info, Uid uid, List<DominoDocumentData.ItemData> items)
+            throws NotesException {
+        Document document = null;
+        try {
+            document = info.isAccount() ? getUserByUid(getGuid(uid.getUidValue())) : getGroup(uid.getUidValue());
+        } catch (NotesException ex) {
+            if (NotesError.NOTES_ERR_BAD_UNID != ex.id) {
+                throw ex;
+            }
+        }
+        if (document == null) {
+            throw new UnknownUidException(uid, info.isAccount() ? ObjectClass.ACCOUNT : ObjectClass.GROUP);
         }
 
-        if (ObjectClass.ACCOUNT.equals(oclass) && DominoAccountAttribute.FULL_NAME.getName().equals(name)) {
-            return true;
+        try {
+            Map<String, Object> values = new LinkedHashMap<String, Object>(
+                    writeBuffer.take(document.getUniversalID()));
+            for (DominoDocumentData.ItemData item : items) {
+                values.put(item.getName(), new Vector<Object>(item.getValues()));
+            }
+
+            boolean changed = false;
+            for (Map.Entry<String, Object> value : values.entrySet()) {
+                changed |= replaceItemValueIfChanged(document, value.getKey(), value.getValue());
+            }
+            if (changed && !saveDocument(document)) {
+                LOG.error("Couldn't save document {0}.", uid);
+                throw new ConnectorException("Couldn't save document '" + uid.getUidValue() + "'.");
+            }
+
+            return info.isAccount() ? new Uid(getGuid(document.getUniversalID())) : createGroupUid(document);
+        } finally {
+            recycleQuietly(document);
         }
+    }
 
-        if (ObjectClass.GROUP.equals(oclass) && DominoGroupAttribute.LIST_NAME.getName().equals(name)) {
-            return true;
+    /**
+     * Creates new documents from DXL.
+     *
+     * @return uids of created documents in DXL order
+     */
+    private List<Uid> importDocuments(DominoObjectClassInfo info, String dxl) throws NotesException {
+        List<Uid> uids = new ArrayList<Uid>();
+        Database database = connection.getUserDatabase();
+        DxlImporter importer = connection.getSession().createDxlImporter();
+        try {
+            importer.setDocumentImportOption(DxlImporter.DXLIMPORTOPTION_CREATE);
+            importer.setReplaceDbProperties(false);
+            importer.setExitOnFirstFatalError(true);
+            DominoOperationTrace.Span span = DominoOperationTrace.span("dxl.import");
+            try {
+                importer.importDxl(dxl, database);
+            } finally {
+                span.end();
+            }
+
+            String noteId = importer.getFirstImportedNoteID();
+            while (StringUtils.isNotEmpty(noteId)) {
+                Document document = database.getDocumentByID(noteId);
+                uids.add(info.isAccount() ? new Uid(getGuid(document.getUniversalID())) : createGroupUid(document));
+                recycleQuietly(document);
+
+                noteId = importer.getNextImportedNoteID(noteId);
+            }
+        } catch (NotesException ex) {
+            LOG.error("DXL import failed, import log: {0}", getImportLog(importer));
+            throw ex;
+        } finally {
+            recycleQuietly(importer);
         }
 
-        return false;
+        return uids;
+    }
+
+    /**
+     * @return items for attributes, names items are marked by {@link Item#NAMES} type
+     */
+    private List<DominoDocumentData.ItemData> createImportItems(DominoObjectClassInfo info, Set<Attribute> attrs) {
+        List<DominoDocumentData.ItemData> items = new ArrayList<DominoDocumentData.ItemData>();
+        for (Attribute attr : attrs) {
+            if (Uid.NAME.equals(attr.getName())) {
+                continue;
+            }
+
+            DominoAttribute dominoAttr = Name.NAME.equals(attr.getName()) ? info.getNameAttribute()
+                    : info.getAttribute(attr.getName());
+            if (dominoAttr == null || !isImportable(dominoAttr)) {
+                throw new ConnectorException("Attribute '" + attr.getName() + "' can't be imported.");
+            }
+
+            boolean names = dominoAttr == FULL_NAME
+                    || info.getConverter(dominoAttr) == DominoValueConverter.ABBREVIATED_NAME;
+            List<Object> values = attr.getValue() != null ? attr.getValue() : new ArrayList<Object>();
+            items.add(new DominoDocumentData.ItemData(dominoAttr.getName(), names ? Item.NAMES : Item.TEXT, values));
+        }
+
+        return items;
+    }
+
+    /**
+     * @return true if attribute is stored as document item and is not computed nor registration parameter
+     */
+    private boolean isImportable(DominoAttribute attr) {
+        if (attr.isOperational() || GuardedString.class.equals(attr.getType())
+                || attr.getFlags().contains(AttributeInfo.Flags.NOT_CREATABLE)
+                || attr.getFlags().contains(AttributeInfo.Flags.NOT_READABLE)) {
+            return false;
+        }
+
+        return attr != GROUP_LIST && attr != MAIL_QUOTA_SIZE_LIMIT && attr != MAIL_QUOTA_WARNING_THRESHOLD
+                && attr != CERTIFIER_ORG_HIERARCHY && attr != MEMBER_GROUPS && attr != MEMBER_PEOPLE;
+    }
+
+    private String getImportLog(DxlImporter importer) {
+        try {
+            return importer.getLog();
+        } catch (NotesException ex) {
+            return null;
+        }
     }
 
     public Uid create(ObjectClass oclass, Set<Attribute> attrs, OperationOptions options) {
@@ -542,6 +1767,9 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
         Validate.notNull(attrs, "Attributes must not be null.");
 
         Uid uid;
+        DominoOperationTrace trace = DominoOperationTrace.start("create " + oclass.getObjectClassValue(),
+                config.getSlowOperationThreshold());
+        connection.acquire();
         try {
             Map<String, Attribute> attributes = new HashMap<String, Attribute>(AttributeUtil.toMap(attrs));
             if (ObjectClass.ACCOUNT.equals(oclass)) {
@@ -552,9 +1780,15 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
                 LOG.ok("Unknown object class '{0}'.", oclass);
                 throw new IllegalArgumentException("Unknown object class '" + oclass + "'.");
             }
+
+            flushDocumentWrites(false);
+            flushMembershipChanges(false);
         } catch (NotesException ex) {
             handleException(ex, "Couldn't create " + oclass.getObjectClassValue(), LOG);
             return null;
+        } finally {
+            connection.release();
+            trace.finish(LOG);
         }
 
         LOG.info("create::finish");
@@ -706,7 +1940,8 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
         Integer mailOwnerAccess = getOperationOptionValue(options, MAIL_OWNER_ACCESS, config.getMailOwnerAccess());
 
         LOG.ok("Creating registration.");
-        Registration registration = connection.getSession().createRegistration();
+        Registration registration = DominoOperationTrace.traced(Registration.class,
+                connection.getSession().createRegistration(), "registration");
         RegistrationBuilder builder = new RegistrationBuilder(registration);
         builder.setCertifierName(caCertifier);
         builder.setPolicyName(policy);
@@ -767,6 +2002,42 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
         }
     }
 
+    private Document openDocument(Database database, String unid) throws NotesException {
+        DominoOperationTrace.Span span = DominoOperationTrace.span("document.open");
+        try {
+            return database.getDocumentByUNID(unid);
+        } finally {
+            span.end();
+        }
+    }
+
+    private DocumentCollection searchDocuments(Database database, String formula) throws NotesException {
+        DominoOperationTrace.Span span = DominoOperationTrace.span("search");
+        DominoFlightRecorder.Event event = DominoFlightRecorder.begin(DominoFlightRecorder.Type.SEARCH);
+        DocumentCollection collection;
+        try {
+            collection = database.search(formula);
+        } finally {
+            span.end();
+            event.end();
+        }
+
+        if (event.isEnabled()) {
+            // count is read only when event is recorded, it's another remote call
+            event.commit(formula, collection.getCount());
+        }
+        return collection;
+    }
+
+    private boolean saveDocument(Document document) throws NotesException {
+        DominoOperationTrace.Span span = DominoOperationTrace.span("document.save");
+        try {
+            return document.save();
+        } finally {
+            span.end();
+        }
+    }
+
     private Document getUserByName(String name) throws NotesException {
         EqualsFilter filter = new EqualsFilter(new Name(name));
         DocumentCollection collection = getDocumentCollection(DominoConstants.FORM_PERSON, filter);
@@ -775,7 +2046,7 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
     }
 
     private Document getUserByUid(String uid) throws NotesException {
-        return connection.getUserDatabase().getDocumentByUNID(uid);
+        return openDocument(connection.getUserDatabase(), uid);
     }
 
     private Document getGroup(String listName) throws NotesException {
@@ -813,7 +2084,7 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
             sb.append("&").append(query);
         }
 
-        return connection.getUserDatabase().search(sb.toString());
+        return searchDocuments(connection.getUserDatabase(), sb.toString());
     }
 
     private void createMailDbInBackground(String fullName, String mailServer, String mailFile, String mailTemplate,
@@ -821,11 +2092,12 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
                                           Integer mailQuotaWThreshold) {
         LOG.ok("Creating mail db in background for '{0}'", fullName);
 
+        DominoOperationTrace.Span span = DominoOperationTrace.span("mailDb.createRequest");
         try {
             String adminNameCanonical = getCanonical(connection, config.getAdminName());
 
-            Session session = connection.getSession();
-            Database adminP = session.getDatabase(config.getRegistrationServer(), "admin4.nsf", false);
+            // request is posted to the same admin4.nsf replica in which its status is resolved by note id
+            Database adminP = connection.getAdministrationDatabase();
             Document request = adminP.createDocument();
             request.appendItemValue("Form", "AdminRequest");
             request.appendItemValue("FullName", adminNameCanonical);
@@ -863,9 +2135,13 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
             }
 
             request.sign();
-            request.save();
+            saveDocument(request);
+
+            adminRequests.record(request.getNoteID(), "createMailFile", fullName);
         } catch (NotesException ex) {
             handleException(ex, "Couldn't create mail db in background for user '" + fullName + "'", LOG);
+        } finally {
+            span.end();
         }
     }
 
@@ -903,15 +2179,120 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
         group.replaceItemValue(DominoConstants.FORM, DominoConstants.FORM_GROUP);
         group.replaceItemValue(DominoConstants.TYPE, DominoConstants.FORM_GROUP);
         group.replaceItemValue(LIST_NAME.getName(), listName);
-        if (!group.save()) {
+        if (!saveDocument(group)) {
             LOG.ok("Can't save group '{0}'.", mainName);
             throw new ConnectorException("Can't save group '" + mainName + "'.");
         }
 
         group = getGroup(mainName);
+        groupGraph.putGroup(group.getUniversalID(), listName, membersList);
+        denyGroupCache.markStale();
         return createGroupUid(group);
     }
 
+    /**
+     * Writes item value to document, or to write buffer if document writes are buffered.
+     *
+     * @return true if item was changed and document has to be saved
+     */
+    private boolean writeItemValue(Document document, String name, Object value) throws NotesException {
+        return writeItemValue(document, name, value, true);
+    }
+
+    /**
+     * @param deferrable false if item has to be written now, e.g. because it changes uid
+     */
+    private boolean writeItemValue(Document document, String name, Object value, boolean deferrable)
+            throws NotesException {
+        if (!writeBuffer.isEnabled() || !deferrable) {
+            return replaceItemValueIfChanged(document, name, value);
+        }
+
+        writeBuffer.put(document.getUniversalID(), name, value);
+        return false;
+    }
+
+    /**
+     * Applies buffered item writes, every changed document is saved once. Document is removed from
+     * pending writes only after it was saved. If write fails, writes of following documents are returned
+     * to buffer, writes of failed document too if connection was broken (otherwise they'd fail again),
+     * and exception is thrown.
+     */
+    private void flushDocumentWrites(boolean force) throws NotesException {
+        if (writeBuffer.isEmpty() || (!force && !writeBuffer.isFlushDue())) {
+            return;
+        }
+
+        Map<String, Map<String, Object>> pending = writeBuffer.drain();
+        LOG.ok("Flushing document writes for {0} documents.", pending.size());
+
+        String failed = null;
+        try {
+            Database userDatabase = connection.getUserDatabase();
+            for (String unid : new ArrayList<String>(pending.keySet())) {
+                failed = unid;
+                writeDocument(userDatabase, unid, pending.get(unid));
+                pending.remove(unid);
+            }
+            failed = null;
+        } catch (NotesException ex) {
+            if (!DominoConnection.isConnectionError(ex)) {
+                pending.remove(failed);
+            }
+            throw ex;
+        } catch (RuntimeException ex) {
+            if (!DominoConnection.isConnectionError(ex)) {
+                pending.remove(failed);
+            }
+            throw ex;
+        } finally {
+            if (!pending.isEmpty()) {
+                LOG.warn("Writes of {0} documents weren't flushed, they stay pending.", pending.size());
+                writeBuffer.restore(pending);
+            }
+            groupGraph.markStale();
+            denyGroupCache.markStale();
+        }
+    }
+
+    private void writeDocument(Database userDatabase, String unid, Map<String, Object> items) throws NotesException {
+        Document document = null;
+        try {
+            document = openDocument(userDatabase, unid);
+
+            boolean changed = false;
+            for (Map.Entry<String, Object> item : items.entrySet()) {
+                changed |= replaceItemValueIfChanged(document, item.getKey(), item.getValue());
+            }
+
+            if (changed && !saveDocument(document)) {
+                LOG.error("Couldn't save document {0}.", unid);
+                throw new ConnectorException("Couldn't save document '" + unid + "'.");
+            }
+        } catch (NotesException ex) {
+            if (NotesError.NOTES_ERR_BAD_UNID != ex.id) {
+                throw ex;
+            }
+            LOG.ok("Document {0} doesn't exist anymore, pending writes are skipped.", unid);
+        } finally {
+            recycleQuietly(document);
+        }
+    }
+
+    /**
+     * Replaces item value only if it differs from current item values.
+     *
+     * @return true if item was changed
+     */
+    private boolean replaceItemValueIfChanged(Document document, String name, Object value) throws NotesException {
+        if (isItemValueEqual(document.getItemValue(name), value)) {
+            return false;
+        }
+
+        document.replaceItemValue(name, value);
+        return true;
+    }
+
     private Uid createGroupUid(Document group) throws NotesException {
         String uid = getGroupFullName(group.getItemValue(LIST_NAME.getName()));
         return new Uid(uid);
@@ -954,6 +2335,9 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
         LOG.info("update::start");
         LOG.ok("Parameters: oc: {0}, uid: {1}, t: {2}, a: {3}, op: {4}", oclass, uid, type, attrs, options);
 
+        DominoOperationTrace trace = DominoOperationTrace.start("update " + oclass.getObjectClassValue(),
+                config.getSlowOperationThreshold());
+        connection.acquire();
         try {
             Map<String, Attribute> attributes = new HashMap<String, Attribute>(AttributeUtil.toMap(attrs));
             if (ObjectClass.ACCOUNT.equals(oclass)) {
@@ -964,8 +2348,14 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
                 LOG.ok("Unknown object class '{0}'.", oclass);
                 throw new IllegalArgumentException("Unknown object class '" + oclass + "'.");
             }
+
+            flushDocumentWrites(false);
+            flushMembershipChanges(false);
         } catch (NotesException ex) {
             handleException(ex, "Couldn't update " + oclass.getObjectClassValue() + ", uid: " + uid, LOG);
+        } finally {
+            connection.release();
+            trace.finish(LOG);
         }
 
         LOG.info("update::finish");
@@ -1043,14 +2433,12 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
 
         Integer roamCleanPer = getAttributeValue(attrs, ROAM_CLEAN_PER, Integer.class);
         if (roamCleanPer != null) {
-            document.replaceItemValue(ROAM_CLEAN_PER.getName(), roamCleanPer);
-            changed = true;
+            changed |= writeItemValue(document, ROAM_CLEAN_PER.getName(), roamCleanPer);
         }
 
         Integer roamCleanSetting = getAttributeValue(attrs, ROAM_CLEAN_SETTING, Integer.class);
         if (roamCleanSetting != null) {
-            document.replaceItemValue(ROAM_CLEAN_SETTING.getName(), roamCleanSetting);
-            changed = true;
+            changed |= writeItemValue(document, ROAM_CLEAN_SETTING.getName(), roamCleanSetting);
         }
 
         Vector groups = getAttributeValue(attrs, GROUP_LIST, Vector.class);
@@ -1064,7 +2452,7 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
         Boolean recertify = getAttributeValue(attrs, RECERTIFY, Boolean.class);
         if (recertify != null && recertify) {
             AdministrationProcess adminProcess = connection.getAdministrationProcess();
-            adminProcess.recertifyUser(fullName);
+            adminRequests.record(adminProcess.recertifyUser(fullName), "recertifyUser", fullName);
         }
 
         Integer mailQuotaSize = getAttributeValue(attrs, MAIL_QUOTA_SIZE_LIMIT, Integer.class);
@@ -1078,7 +2466,9 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
 
         String mailServer = getAttributeValue(attrs, MAIL_SERVER);
         if (mailServer != null) {
-            connection.getAdministrationProcess().moveMailUser(fullName, mailServer, NEW_HOME_SERVER_MAIL_PATH);
+            String noteId = connection.getAdministrationProcess().moveMailUser(fullName, mailServer,
+                    NEW_HOME_SERVER_MAIL_PATH);
+            adminRequests.record(noteId, "moveMailUser", fullName);
         }
 
         attrs.remove(CREDENTIALS.getName());
@@ -1086,11 +2476,12 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
 
         for (Attribute attribute : attrs.values()) {
             Vector vector = new Vector(attribute.getValue());
-            document.replaceItemValue(attribute.getName(), vector);
-            changed = true;
+            changed |= writeItemValue(document, attribute.getName(), vector);
         }
 
-        if (changed && !document.save()) {
+        if (!changed) {
+            LOG.ok("No changes to save for account {0}.", fullName);
+        } else if (!saveDocument(document)) {
             LOG.ok("Couldn't update account for {0}.", fullName);
             throw new ConnectorException("Couldn't update account '" + fullName + "'.");
         }
@@ -1119,7 +2510,8 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
 //        }
         if (config.getSyncInetPswd() && currentPassword != null && newPassword != null) {
             AdministrationProcess adminProcess = connection.getAdministrationProcess();
-            adminProcess.changeHTTPPassword(fullName, currentPassword, newPassword);
+            String noteId = adminProcess.changeHTTPPassword(fullName, currentPassword, newPassword);
+            adminRequests.record(noteId, "changeHTTPPassword", fullName);
         }
     }
 
@@ -1135,15 +2527,16 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
         List<String> oldGroups = getGroupList(name);
 
         if (newGroups != null && !Update.REMOVE.equals(update)) {
-            Vector users = new Vector();
-            users.add(name);
             for (String newGroup : newGroups) {
                 if (oldGroups == null || !oldGroups.contains(newGroup)) {
-                    if (!checkIfGroupExists(newGroup)) {
-                        LOG.error("Group {0} doesn't exist.", newGroup);
-                        throw new ConnectorException("Group '" + newGroup + "' doesn't exist.");
+                    if (!membershipChanges.isGroupChecked(newGroup)) {
+                        if (!checkIfGroupExists(newGroup)) {
+                            LOG.error("Group {0} doesn't exist.", newGroup);
+                            throw new ConnectorException("Group '" + newGroup + "' doesn't exist.");
+                        }
+                        membershipChanges.markGroupChecked(newGroup);
                     }
-                    connection.getAdministrationProcess().addGroupMembers(newGroup, users);
+                    membershipChanges.add(newGroup, name);
                 }
                 if (oldGroups != null) {
                     oldGroups.remove(newGroup);
@@ -1157,7 +2550,7 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
                     continue;
                 }
 
-                removeUserFromGroup(name, oldGroup);
+                membershipChanges.remove(oldGroup, name);
             }
         }
     }
@@ -1188,8 +2581,9 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
         LOG.ok("updateAccountRenameUser: fullName {0}, lastName {1}, firstName {2}, middleInitial {3}, orgUnit {4}.",
                 fullName, lastName, firstName, middleInitial, orgUnit);
 
-        connection.getAdministrationProcess().renameNotesUser(fullName, lastName, firstName, middleInitial,
-                orgUnit, altCn, altOU, altLanguage, false);
+        String noteId = connection.getAdministrationProcess().renameNotesUser(fullName, lastName, firstName,
+                middleInitial, orgUnit, altCn, altOU, altLanguage, false);
+        adminRequests.record(noteId, "renameNotesUser", fullName);
     }
 
     private String getDefaultValueForRename(DominoAccountAttribute attr, Document doc) throws NotesException {
@@ -1221,35 +2615,157 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
 
         if ((enabled != null && denyGroups != null && (pwdChangeInterval != null || pwdGracePeriod != null))
                 || (pwdChangeInterval != null) || pwdGracePeriod != null) {
-            connection.getAdministrationProcess().setUserPasswordSettings(fullName, null,
+            String noteId = connection.getAdministrationProcess().setUserPasswordSettings(fullName, null,
                     pwdChangeInterval, pwdGracePeriod, null);
+            adminRequests.record(noteId, "setUserPasswordSettings", fullName);
         }
     }
 
     private void updateAccountActivation(String username, List<String> denyGroups, Integer pwdChIntervalInt,
                                          Integer pwdGracePeriodInt, boolean enabled) throws NotesException {
-        AdministrationProcess adminProcess = connection.getAdministrationProcess();
         if (denyGroups != null) {
             for (String group : denyGroups) {
                 if (enabled) {
-                    removeUserFromGroup(username, group);
+                    membershipChanges.remove(group, username);
                 } else {
-                    Vector users = new Vector();
-                    users.add(username);
-                    adminProcess.addGroupMembers(group, users);
+                    membershipChanges.add(group, username);
                 }
             }
         } else {
+            AdministrationProcess adminProcess = connection.getAdministrationProcess();
             Integer pwdChk = enabled ? AdministrationProcess.PWD_CHK_DONTCHECKPASSWORD :
                     AdministrationProcess.PWD_CHK_LOCKOUT;
-            adminProcess.setUserPasswordSettings(username,
+            String noteId = adminProcess.setUserPasswordSettings(username,
                     pwdChk, pwdChIntervalInt, pwdGracePeriodInt, null);
+            adminRequests.record(noteId, "setUserPasswordSettings", username);
         }
     }
 
-    private void removeUserFromGroup(String usernameCanonical, String groupName)
-            throws NotesException {
-        LOG.ok("removeUserFromGroup: usernameCanonical {0}, groupName {1}", usernameCanonical, groupName);
+    /**
+     * Writes pending group membership changes, one AdminP request for all added members and one
+     * Members item update for all removed members per group. If flush fails, groups which weren't written
+     * stay pending; change of the group which failed is dropped, unless connection failed.
+     *
+     * @param force if true changes are written even if flush interval didn't elapse yet
+     * @throws NotesException
+     */
+    private void flushMembershipChanges(boolean force) throws NotesException {
+        if (membershipChanges == null || (!force && !membershipChanges.isFlushDue()) || membershipChanges.isEmpty()) {
+            return;
+        }
+
+        Map<String, Set<String>> adds = membershipChanges.drainAdds();
+        Map<String, Set<String>> removes = membershipChanges.drainRemoves();
+        LOG.ok("Flushing group membership changes, adds {0}, removes {1}", adds, removes);
+
+        String failed = null;
+        try {
+            if (!adds.isEmpty()) {
+                AdministrationProcess adminProcess = connection.getAdministrationProcess();
+                for (String group : new ArrayList<String>(adds.keySet())) {
+                    failed = group;
+                    String noteId = adminProcess.addGroupMembers(group, new Vector<String>(adds.get(group)));
+                    adminRequests.record(noteId, "addGroupMembers", group);
+                    adds.remove(group);
+                }
+            }
+            failed = null;
+
+            removeMembersFromGroups(removes);
+        } catch (NotesException ex) {
+            if (!DominoConnection.isConnectionError(ex)) {
+                adds.remove(failed);
+            }
+            throw ex;
+        } catch (RuntimeException ex) {
+            if (!DominoConnection.isConnectionError(ex)) {
+                adds.remove(failed);
+            }
+            throw ex;
+        } finally {
+            if (!adds.isEmpty() || !removes.isEmpty()) {
+                LOG.warn("Membership changes of {0} groups weren't flushed, they stay pending.",
+                        adds.size() + removes.size());
+                membershipChanges.restore(adds, removes);
+            }
+            groupGraph.markStale();
+        }
+    }
+
+    /**
+     * Removes members from many groups in one pass. Groups are located with one lookup per member
+     * in the members view, Members item of every group is edited in place and group is saved once.
+     * Groups which weren't found through view are handled one by one.
+     *
+     * @param removes group name -> members to be removed, groups are removed from map when they're written;
+     *                group which failed is removed too, unless connection failed
+     * @throws NotesException
+     */
+    private void removeMembersFromGroups(Map<String, Set<String>> removes) throws NotesException {
+        if (removes.isEmpty()) {
+            return;
+        }
+
+        View view = StringUtils.isNotEmpty(config.getGroupMembersView())
+                ? connection.getView(config.getGroupMembersView()) : null;
+
+        // lower case group name -> group name, Domino names are case insensitive
+        Map<String, String> pending = new HashMap<String, String>();
+        Set<String> allMembers = new LinkedHashSet<String>();
+        for (Map.Entry<String, Set<String>> entry : removes.entrySet()) {
+            pending.put(entry.getKey().toLowerCase(), entry.getKey());
+            allMembers.addAll(entry.getValue());
+        }
+
+        String failed = null;
+        try {
+            if (view != null) {
+                for (String member : allMembers) {
+                    if (pending.isEmpty()) {
+                        break;
+                    }
+
+                    DocumentCollection collection = null;
+                    try {
+                        collection = view.getAllDocumentsByKey(member, true);
+                        Document group = collection.getFirstDocument();
+                        while (group != null) {
+                            String listName = group.getItemValueString(LIST_NAME.getName());
+                            String groupName = listName != null ? pending.remove(listName.toLowerCase()) : null;
+                            if (groupName != null) {
+                                failed = groupName;
+                                removeMembers(group, groupName, removes.get(groupName));
+                                removes.remove(groupName);
+                            }
+                            recycleQuietly(group);
+                            group = collection.getNextDocument();
+                        }
+                    } finally {
+                        recycleQuietly(collection);
+                    }
+                }
+            }
+
+            for (String groupName : pending.values()) {
+                failed = groupName;
+                removeMembersFromGroup(groupName, removes.get(groupName));
+                removes.remove(groupName);
+            }
+        } catch (NotesException ex) {
+            if (!DominoConnection.isConnectionError(ex)) {
+                removes.remove(failed);
+            }
+            throw ex;
+        } catch (RuntimeException ex) {
+            if (!DominoConnection.isConnectionError(ex)) {
+                removes.remove(failed);
+            }
+            throw ex;
+        }
+    }
+
+    private void removeMembersFromGroup(String groupName, Set<String> membersToRemove) throws NotesException {
+        LOG.ok("removeMembersFromGroup: groupName {0}, members {1}", groupName, membersToRemove);
 
         Document group = getGroup(groupName);
         if (group == null) {
@@ -1257,12 +2773,24 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
             throw new ConnectorException("Invalid group name '" + groupName + "'.");
         }
 
+        try {
+            removeMembers(group, groupName, membersToRemove);
+        } finally {
+            recycleQuietly(group);
+        }
+    }
+
+    private void removeMembers(Document group, String groupName, Set<String> membersToRemove)
+            throws NotesException {
         Vector members = group.getItemValue(MEMBERS.getName());
-        if (members != null && members.remove(usernameCanonical)) {
-            Map<String, Attribute> attrs = new HashMap<String, Attribute>();
-            attrs.put(MEMBERS.getName(), build(MEMBERS, members.toArray()));
+        if (members == null || !members.removeAll(membersToRemove)) {
+            return;
+        }
 
-            updateGroup(createGroupUid(group), attrs, null, Update.REPLACE);
+        group.replaceItemValue(MEMBERS.getName(), members);
+        if (!saveDocument(group)) {
+            LOG.error("Couldn't update group {0}.", groupName);
+            throw new ConnectorException("Couldn't update group '" + groupName + "'.");
         }
     }
 
@@ -1296,8 +2824,17 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
         Vector memberGroups = getAttributeValue(attrs, MEMBER_GROUPS, Vector.class);
         Vector memberPeople = getAttributeValue(attrs, MEMBER_PEOPLE, Vector.class);
 
+        // group uid is its ListName, rename is written now together with pending writes of the document,
+        // so that returned uid can be read back
+        boolean renamed = fullName != null && !fullName.equals(uid.getUidValue());
+        boolean changed = false;
+        if (renamed) {
+            for (Map.Entry<String, Object> item : writeBuffer.take(document.getUniversalID()).entrySet()) {
+                changed |= replaceItemValueIfChanged(document, item.getKey(), item.getValue());
+            }
+        }
         for (Attribute attribute : attrs.values()) {
-            document.replaceItemValue(attribute.getName(), getDominoValues(attribute));
+            changed |= writeItemValue(document, attribute.getName(), getDominoValues(attribute), !renamed);
         }
         if (fullName != null) {
             String mainName = getGroupDisplayName(fullName);
@@ -1308,22 +2845,33 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
                     throw new AlreadyExistsException("Group '" + mainName + "' already exists.");
                 }
             }
-            document.replaceItemValue(LIST_NAME.getName(), new Vector(Arrays.asList(fullName.split(";"))));
+            changed |= writeItemValue(document, LIST_NAME.getName(),
+                    new Vector(Arrays.asList(fullName.split(";"))), !renamed);
 
             uid = new Uid(fullName);
         }
 
         List<String> membersList = getGroupMembers(members, memberGroups, memberPeople);
-        document.replaceItemValue(MEMBERS.getName(), new Vector(membersList));
-        if (!document.save()) {
+        changed |= writeItemValue(document, MEMBERS.getName(), new Vector(membersList), !renamed);
+        if (!changed) {
+            LOG.ok("No changes to save for group {0}.", uid);
+            return uid;
+        }
+
+        if (!saveDocument(document)) {
             LOG.error("Couldn't update group {0}.", fullName);
             throw new ConnectorException("Couldn't update group '" + fullName + "'.");
         }
+        groupGraph.putGroup(document.getUniversalID(), document.getItemValue(LIST_NAME.getName()), membersList);
+        denyGroupCache.markStale();
 
         return uid;
     }
 
     public void delete(ObjectClass objClass, Uid uid, OperationOptions options) {
+        DominoOperationTrace trace = DominoOperationTrace.start("delete " + objClass.getObjectClassValue(),
+                config.getSlowOperationThreshold());
+        connection.acquire();
         try {
             if (ObjectClass.ACCOUNT.equals(objClass)) {
                 deleteAccount(uid, options);
@@ -1338,12 +2886,15 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
                 throw new UnknownUidException(uid, objClass);
             }
             handleException(ex, "Couldn't delete " + objClass.getObjectClassValue() + " with uid " + uid, LOG);
+        } finally {
+            connection.release();
+            trace.finish(LOG);
         }
     }
 
     private void deleteAccount(Uid uid, OperationOptions options) throws NotesException {
         String unid = getGuid(uid.getUidValue());
-        Document document = connection.getUserDatabase().getDocumentByUNID(unid);
+        Document document = openDocument(connection.getUserDatabase(), unid);
         if (document == null) {
             throw new ConnectorException("Invalid uid '" + uid + "'.");
         }
@@ -1354,13 +2905,19 @@ public class DominoConnector implements PoolableConnector, CreateOp, SchemaOp, T
         Boolean deleteWindowsUser = getOperationOptionValue(options, DELETE_WINDOWS_USER, false);
 
         AdministrationProcess adminProcess = connection.getAdministrationProcess();
-        adminProcess.deleteUser(userName, config.getImmediateDelete(), mailFileAction,
+        String noteId = adminProcess.deleteUser(userName, config.getImmediateDelete(), mailFileAction,
                 config.getDeleteDenyGroup(), deleteWindowsUser.booleanValue());
+        adminRequests.record(noteId, "deleteUser", userName);
+        writeBuffer.discard(document.getUniversalID());
     }
 
     private void deleteGroup(Uid uid, OperationOptions options) throws NotesException {
         String groupName = getGroupDisplayName(uid.getUidValue());
         AdministrationProcess adminProcess = connection.getAdministrationProcess();
-        adminProcess.deleteGroup(groupName, config.getImmediateDelete().booleanValue());
+        String noteId = adminProcess.deleteGroup(groupName, config.getImmediateDelete().booleanValue());
+        adminRequests.record(noteId, "deleteGroup", groupName);
+        // AdminP deletes group later, refresh of graph removes it when its document is gone
+        groupGraph.markStale();
+        denyGroupCache.markStale();
     }
 }
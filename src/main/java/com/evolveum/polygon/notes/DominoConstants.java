@@ -27,4 +27,6 @@ public class DominoConstants {
     public static final String FORM_GROUP = "Group";
 
     public static final String NOTE_ID = "NoteID";
+
+    public static final String ADMIN_DATABASE = "admin4.nsf";
 }
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes;
+
+import lotus.domino.*;
+import org.identityconnectors.common.logging.Log;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static com.evolveum.polygon.notes.DominoGroupReader.normalize;
+
+/**
+ * Set of deny list only groups (GroupType 3), membership in any of them means account is disabled.
+ * Set is loaded with one search and refreshed incrementally by {@link DominoGroupReader} after refresh
+ * interval or when it's marked stale because group was created, updated or deleted.
+ * <p/>
+ * Group names are compared case insensitive, groups can be referenced by any value of their ListName
+ * item.
+ */
+public class DominoDenyGroups {
+
+    private static final Log LOG = Log.getLog(DominoDenyGroups.class);
+
+    public static final String DENY_GROUP_TYPE = "3";
+
+    private static final String DENY_GROUP_FORMULA = DominoGroupReader.GROUP_FORMULA + "&("
+            + DominoGroupAttribute.GROUP_TYPE.getName() + "='" + DENY_GROUP_TYPE + "')";
+
+    /**
+     * Group UNID -> lower case ListName values of group
+     */
+    private final Map<String, Set<String>> groups = new HashMap<String, Set<String>>();
+    /**
+     * Lower case ListName values of all deny groups
+     */
+    private final Set<String> names = new HashSet<String>();
+
+    private final DominoGroupReader reader = new DominoGroupReader(DENY_GROUP_FORMULA);
+    private final DominoGroupReader.GroupHandler handler = new DominoGroupReader.GroupHandler() {
+
+        public void putGroup(DominoGroupReader.GroupDocument group) {
+            Set<String> aliases = new HashSet<String>();
+            for (String listName : group.getListNames()) {
+                aliases.add(normalize(listName));
+            }
+            groups.put(group.getUnid(), aliases);
+        }
+
+        public void removeGroup(String unid) {
+            groups.remove(unid);
+        }
+    };
+
+    private final long refreshInterval;
+    private boolean loaded;
+    private long lastRefresh;
+
+    /**
+     * @param refreshInterval in milliseconds, 0 means set is reloaded before every use
+     */
+    public DominoDenyGroups(long refreshInterval) {
+        this.refreshInterval = refreshInterval;
+    }
+
+    /**
+     * Loads deny groups if they weren't loaded yet, otherwise reads deny groups modified or deleted since
+     * last refresh if refresh interval elapsed or set was marked stale.
+     */
+    public synchronized void refresh(Database database) throws NotesException {
+        if (loaded && System.currentTimeMillis() - lastRefresh < refreshInterval) {
+            return;
+        }
+
+        LOG.ok(loaded ? "Refreshing deny groups." : "Loading deny groups.");
+        DominoOperationTrace.Span span = DominoOperationTrace.span(loaded ? "denyGroups.refresh" : "denyGroups.load");
+        try {
+            reader.refresh(database, handler);
+        } finally {
+            span.end();
+        }
+
+        names.clear();
+        for (Set<String> aliases : groups.values()) {
+            names.addAll(aliases);
+        }
+
+        loaded = true;
+        lastRefresh = System.currentTimeMillis();
+        LOG.ok("Deny groups refreshed, {0} names.", names.size());
+    }
+
+    /**
+     * Set will be refreshed before next use.
+     */
+    public synchronized void markStale() {
+        lastRefresh = 0;
+    }
+
+    /**
+     * @param name any ListName value of group
+     */
+    public synchronized boolean isDenyGroup(String name) {
+        return name != null && names.contains(normalize(name));
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes;
+
+import java.util.*;
+
+/**
+ * Items of one Domino document read in bulk, either from {@link lotus.domino.Document} or from DXL export.
+ * Only items needed for connector object are present when read from document.
+ */
+public final class DominoDocumentData {
+
+    public static final class ItemData {
+
+        private final String name;
+        /**
+         * see {@link lotus.domino.Item#getType()}, 0 if type wasn't read
+         */
+        private final int type;
+        private final List<Object> values;
+
+        public ItemData(String name, int type, List<Object> values) {
+            this.name = name;
+            this.type = type;
+            this.values = values;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getType() {
+            return type;
+        }
+
+        public List<Object> getValues() {
+            return values;
+        }
+    }
+
+    private final String universalId;
+    private final Date lastModified;
+    /**
+     * Items by lower case name, item names are case insensitive in Domino
+     */
+    private final Map<String, ItemData> items = new LinkedHashMap<String, ItemData>();
+
+    public DominoDocumentData(String universalId, Date lastModified) {
+        this.universalId = universalId;
+        this.lastModified = lastModified;
+    }
+
+    public String getUniversalId() {
+        return universalId;
+    }
+
+    public Date getLastModified() {
+        return lastModified;
+    }
+
+    public void addItem(ItemData item) {
+        String key = item.getName().toLowerCase(Locale.ENGLISH);
+        if (!items.containsKey(key)) {
+            // document can contain more items with the same name, first one is used as in Document.getFirstItem()
+            items.put(key, item);
+        }
+    }
+
+    public Collection<ItemData> getItems() {
+        return items.values();
+    }
+
+    public ItemData getItem(String name) {
+        return items.get(name.toLowerCase(Locale.ENGLISH));
+    }
+
+    /**
+     * @return first value of item, null if there's no such item or it's empty
+     */
+    public Object getFirstValue(String name) {
+        ItemData item = getItem(name);
+        if (item == null || item.getValues().isEmpty()) {
+            return null;
+        }
+
+        return item.getValues().get(0);
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes;
+
+import lotus.domino.Item;
+import lotus.domino.NotesException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.Reader;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Streaming reader of documents exported by {@link lotus.domino.DxlExporter}. Only note info (UNID, last
+ * modification) and text, number and date time items are read, other items (rich text, raw item data,
+ * date ranges) are returned without values.
+ */
+public final class DominoDxlReader {
+
+    /**
+     * DXL date time, e.g. 20140115T103000,00+01, date or time part may be missing
+     */
+    private static final Pattern DATE_TIME = Pattern.compile(
+            "(?:(\\d{4})(\\d{2})(\\d{2}))?(?:T(\\d{2})(\\d{2})(\\d{2})(?:,(\\d{2}))?)?(Z|[+-]\\d{2}(?:\\d{2})?)?");
+
+    private static final XMLInputFactory FACTORY;
+
+    static {
+        FACTORY = XMLInputFactory.newInstance();
+        FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.FALSE);
+    }
+
+    /**
+     * Receives documents as soon as they are parsed.
+     */
+    public interface DocumentHandler {
+
+        /**
+         * @return false if reading should stop
+         */
+        boolean handle(DominoDocumentData document) throws NotesException;
+    }
+
+    private DominoDxlReader() {
+    }
+
+    /**
+     * @return documents in the same order as in DXL
+     */
+    public static List<DominoDocumentData> read(Reader dxl) throws XMLStreamException, NotesException {
+        final List<DominoDocumentData> documents = new ArrayList<DominoDocumentData>();
+        read(dxl, new DocumentHandler() {
+
+            public boolean handle(DominoDocumentData document) {
+                return documents.add(document);
+            }
+        });
+
+        return documents;
+    }
+
+    /**
+     * Parses documents one by one and passes them to handler in the same order as in DXL, whole DXL
+     * tree is never held in memory.
+     */
+    public static void read(Reader dxl, DocumentHandler handler) throws XMLStreamException, NotesException {
+        XMLStreamReader reader = FACTORY.createXMLStreamReader(dxl);
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && "document".equals(reader.getLocalName())
+                        && !handler.handle(readDocument(reader))) {
+                    break;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static DominoDocumentData readDocument(XMLStreamReader reader) throws XMLStreamException {
+        String unid = null;
+        Date lastModified = null;
+        List<DominoDocumentData.ItemData> items = new ArrayList<DominoDocumentData.ItemData>();
+
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+                continue;
+            } else if (event != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+
+            String element = reader.getLocalName();
+            if ("noteinfo".equals(element)) {
+                unid = reader.getAttributeValue(null, "unid");
+                depth++;
+            } else if ("modified".equals(element)) {
+                lastModified = readModified(reader);
+            } else if ("item".equals(element)) {
+                items.add(readItem(reader));
+            } else {
+                skipElement(reader);
+            }
+        }
+
+        DominoDocumentData document = new DominoDocumentData(unid, lastModified);
+        for (DominoDocumentData.ItemData item : items) {
+            document.addItem(item);
+        }
+        return document;
+    }
+
+    private static Date readModified(XMLStreamReader reader) throws XMLStreamException {
+        Date modified = null;
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            if ("datetime".equals(reader.getLocalName())) {
+                modified = parseDateTime(readText(reader));
+            } else {
+                skipElement(reader);
+            }
+        }
+
+        return modified;
+    }
+
+    private static DominoDocumentData.ItemData readItem(XMLStreamReader reader) throws XMLStreamException {
+        String name = reader.getAttributeValue(null, "name");
+        int type = 0;
+        if ("true".equals(reader.getAttributeValue(null, "names"))) {
+            type = Item.NAMES;
+        } else if ("true".equals(reader.getAttributeValue(null, "readers"))) {
+            type = Item.READERS;
+        } else if ("true".equals(reader.getAttributeValue(null, "authors"))) {
+            type = Item.AUTHORS;
+        }
+
+        List<Object> values = new ArrayList<Object>();
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+                continue;
+            } else if (event != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+
+            String element = reader.getLocalName();
+            if ("text".equals(element)) {
+                values.add(readText(reader));
+                type = type != 0 ? type : Item.TEXT;
+            } else if ("number".equals(element)) {
+                values.add(Double.valueOf(readText(reader).trim()));
+                type = Item.NUMBERS;
+            } else if ("datetime".equals(element)) {
+                values.add(parseDateTime(readText(reader)));
+                type = Item.DATETIMES;
+            } else if ("textlist".equals(element) || "numberlist".equals(element)
+                    || "datetimelist".equals(element)) {
+                depth++;
+            } else {
+                if ("richtext".equals(element)) {
+                    type = Item.RICHTEXT;
+                }
+                skipElement(reader);
+            }
+        }
+
+        return new DominoDocumentData.ItemData(name, type, values);
+    }
+
+    /**
+     * Reads content of text element, unlike {@link XMLStreamReader#getElementText()} it accepts line
+     * breaks, which DXL exports as {@code <break/>} elements. Other nested elements are skipped.
+     */
+    private static String readText(XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder text = new StringBuilder();
+        while (true) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                return text.toString();
+            }
+
+            if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                    || event == XMLStreamConstants.SPACE || event == XMLStreamConstants.ENTITY_REFERENCE) {
+                text.append(reader.getText());
+            } else if (event == XMLStreamConstants.START_ELEMENT) {
+                if ("break".equals(reader.getLocalName())) {
+                    text.append('\n');
+                }
+                skipElement(reader);
+            }
+        }
+    }
+
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * @param value DXL date time, time without zone is local time
+     * @return date or null if value can't be parsed
+     */
+    static Date parseDateTime(String value) {
+        String trimmed = value.trim();
+        Matcher matcher = DATE_TIME.matcher(trimmed);
+        if (trimmed.length() == 0 || !matcher.matches()) {
+            return null;
+        }
+
+        String zone = matcher.group(8);
+        TimeZone timeZone;
+        if (zone == null) {
+            timeZone = TimeZone.getDefault();
+        } else if ("Z".equals(zone)) {
+            timeZone = TimeZone.getTimeZone("GMT");
+        } else {
+            String minutes = zone.length() > 3 ? zone.substring(3) : "00";
+            timeZone = TimeZone.getTimeZone("GMT" + zone.substring(0, 3) + ":" + minutes);
+        }
+
+        Calendar calendar = Calendar.getInstance(timeZone);
+        calendar.clear();
+        if (matcher.group(1) != null) {
+            calendar.set(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)) - 1,
+                    Integer.parseInt(matcher.group(3)));
+        }
+        if (matcher.group(4) != null) {
+            calendar.set(Calendar.HOUR_OF_DAY, Integer.parseInt(matcher.group(4)));
+            calendar.set(Calendar.MINUTE, Integer.parseInt(matcher.group(5)));
+            calendar.set(Calendar.SECOND, Integer.parseInt(matcher.group(6)));
+            if (matcher.group(7) != null) {
+                calendar.set(Calendar.MILLISECOND, Integer.parseInt(matcher.group(7)) * 10);
+            }
+        }
+
+        return calendar.getTime();
+    }
+}
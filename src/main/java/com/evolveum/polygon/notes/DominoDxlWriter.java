@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes;
+
+import lotus.domino.Item;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Streaming writer of documents for {@link lotus.domino.DxlImporter}. Values are written as text or
+ * number items, lists of more values as text or number lists.
+ */
+public final class DominoDxlWriter {
+
+    public static final String DXL_NAMESPACE = "http://www.lotus.com/dxl";
+
+    private static final XMLOutputFactory FACTORY = XMLOutputFactory.newInstance();
+
+    private final XMLStreamWriter writer;
+
+    public DominoDxlWriter(Writer out) throws XMLStreamException {
+        this.writer = FACTORY.createXMLStreamWriter(out);
+
+        writer.writeStartDocument("UTF-8", "1.0");
+        writer.writeStartElement("database");
+        writer.writeDefaultNamespace(DXL_NAMESPACE);
+    }
+
+    /**
+     * @param form  document form, e.g. Person or Group
+     * @param unid  UNID of existing document which should be updated, null if new document should be created
+     * @param items items of document, item type {@link Item#NAMES} marks names items
+     */
+    public void writeDocument(String form, String unid, List<DominoDocumentData.ItemData> items)
+            throws XMLStreamException {
+        writer.writeStartElement("document");
+        writer.writeAttribute("form", form);
+        if (unid != null) {
+            writer.writeEmptyElement("noteinfo");
+            writer.writeAttribute("unid", unid);
+        }
+
+        for (DominoDocumentData.ItemData item : items) {
+            writeItem(item);
+        }
+
+        writer.writeEndElement();
+    }
+
+    private void writeItem(DominoDocumentData.ItemData item) throws XMLStreamException {
+        writer.writeStartElement("item");
+        writer.writeAttribute("name", item.getName());
+        if (item.getType() == Item.NAMES) {
+            writer.writeAttribute("names", "true");
+        }
+
+        List<Object> values = item.getValues();
+        boolean numbers = !values.isEmpty();
+        for (Object value : values) {
+            numbers &= value instanceof Number;
+        }
+
+        String element = numbers ? "number" : "text";
+        if (values.size() > 1) {
+            writer.writeStartElement(element + "list");
+        }
+        for (Object value : values) {
+            writer.writeStartElement(element);
+            writer.writeCharacters(toString(value));
+            writer.writeEndElement();
+        }
+        if (values.isEmpty()) {
+            writer.writeEmptyElement("text");
+        }
+        if (values.size() > 1) {
+            writer.writeEndElement();
+        }
+
+        writer.writeEndElement();
+    }
+
+    private static String toString(Object value) {
+        if (value == null) {
+            return "";
+        } else if (value instanceof Boolean) {
+            return (Boolean) value ? "1" : "0";
+        }
+
+        return value.toString();
+    }
+
+    /**
+     * Closes database element and flushes output, underlying writer is not closed.
+     */
+    public void close() throws XMLStreamException {
+        writer.writeEndDocument();
+        writer.flush();
+        writer.close();
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes;
+
+import lotus.domino.NotesException;
+import org.identityconnectors.common.logging.Log;
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs independent blocking DIIOP work (document reads, member classification, group lookups)
+ * in parallel. Tasks run on virtual threads if JVM supports them, otherwise on daemon platform
+ * threads. Number of concurrently running tasks (and so number of DIIOP sessions used by them)
+ * is limited by semaphore. Every task works with its own session context leased from
+ * {@link DominoConnection}, so it must not use Domino objects created by other threads.
+ */
+public class DominoExecutor {
+
+    private static final Log LOG = Log.getLog(DominoExecutor.class);
+
+    private static final ThreadLocal<Boolean> WORKER = new ThreadLocal<Boolean>();
+
+    private final DominoConnection connection;
+    private final int parallelism;
+    private final Semaphore permits;
+
+    private ExecutorService executor;
+
+    public DominoExecutor(DominoConnection connection, int parallelism) {
+        this.connection = connection;
+        this.parallelism = parallelism < 1 ? 1 : parallelism;
+        this.permits = new Semaphore(this.parallelism);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public boolean isParallel() {
+        return parallelism > 1;
+    }
+
+    /**
+     * Executes tasks and returns their results in the same order. Tasks are executed sequentially in
+     * current thread if parallelism is 1 or if current thread is already a worker (nested fan-out
+     * would wait for permits held by its parent tasks).
+     */
+    public <T> List<T> invokeAll(List<Callable<T>> tasks) throws NotesException {
+        List<T> results = new ArrayList<T>(tasks.size());
+        if (!isParallel() || tasks.size() < 2 || Boolean.TRUE.equals(WORKER.get())) {
+            for (Callable<T> task : tasks) {
+                results.add(call(task));
+            }
+            return results;
+        }
+
+        List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+        try {
+            ExecutorService service = getExecutor();
+            for (Callable<T> task : tasks) {
+                futures.add(service.submit(wrap(task)));
+            }
+
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ConnectorException("Interrupted while waiting for parallel Domino requests", ex);
+        } catch (ExecutionException ex) {
+            rethrow(ex.getCause());
+        } finally {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+
+        return results;
+    }
+
+    public synchronized void dispose() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private <T> T call(Callable<T> task) throws NotesException {
+        try {
+            return task.call();
+        } catch (Exception ex) {
+            rethrow(ex);
+            return null;
+        }
+    }
+
+    private <T> Callable<T> wrap(final Callable<T> task) {
+        final DominoOperationTrace trace = DominoOperationTrace.current();
+        return new Callable<T>() {
+
+            public T call() throws Exception {
+                permits.acquire();
+                WORKER.set(Boolean.TRUE);
+                DominoOperationTrace previous = DominoOperationTrace.bind(trace);
+                connection.acquire();
+                try {
+                    return task.call();
+                } finally {
+                    connection.release();
+                    DominoOperationTrace.bind(previous);
+                    WORKER.remove();
+                    permits.release();
+                }
+            }
+        };
+    }
+
+    private void rethrow(Throwable t) throws NotesException {
+        if (t instanceof NotesException) {
+            throw (NotesException) t;
+        }
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+
+        throw new ConnectorException("Parallel Domino request failed, reason: " + t.getMessage(), t);
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = createExecutor();
+        }
+
+        return executor;
+    }
+
+    private static ExecutorService createExecutor() {
+        try {
+            // virtual threads (Java 21+), accessed reflectively to keep compatibility with older JVMs
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "domino-", 0L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+
+            Method method = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            LOG.ok("Using virtual threads for parallel Domino requests.");
+            return (ExecutorService) method.invoke(null, factory);
+        } catch (Exception ex) {
+            LOG.ok("Virtual threads not available, using platform threads for parallel Domino requests.");
+        }
+
+        return Executors.newCachedThreadPool(new ThreadFactory() {
+
+            private final AtomicInteger counter = new AtomicInteger();
+
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "domino-" + counter.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+}
@@ -190,10 +190,14 @@ public class DominoFilterTranslator extends AbstractFilterTranslator<String> {
         if (ObjectClass.ACCOUNT.equals(oclass)) {
             if (Name.NAME.equals(name)) {
                 //create cannonical name for account, also escape it
+                // translator is used outside of connector operations, session context must be released
+                connection.acquire();
                 try {
                     return escape(getCanonical(connection, strVal));
                 } catch (NotesException ex) {
                     handleException(ex, "Couldn't create canonical name for value '" + strVal + "'", LOG);
+                } finally {
+                    connection.release();
                 }
             } else if (Uid.NAME.equals(name)) {
                 //get proper guid and escape it
@@ -26,6 +26,11 @@ public enum DominoGroupAttribute implements DominoAttribute {
 
     COMMENTS("Comments"),
     DISPLAY_NAME("DisplayName", String.class, NOT_UPDATEABLE, NOT_CREATABLE),
+    /**
+     * Computed attribute, all members of group which aren't groups, listed directly or through nested groups.
+     */
+    EFFECTIVE_MEMBERS("effectiveMembers", String.class, NOT_CREATABLE, NOT_UPDATEABLE, NOT_RETURNED_BY_DEFAULT,
+            MULTIVALUED),
     GROUP_NAME("GroupName"),
     GROUP_TITLE("GroupTitle"),
     /**
@@ -45,6 +50,16 @@ public enum DominoGroupAttribute implements DominoAttribute {
     MEMBER_GROUPS("MemberGroups", String.class, NOT_RETURNED_BY_DEFAULT, MULTIVALUED),
     MEMBER_PEOPLE("MemberPeople", String.class, NOT_RETURNED_BY_DEFAULT, MULTIVALUED),
     MEMBERS("Members", String.class, MULTIVALUED),
+    /**
+     * Computed attribute returned only by sync, members added since sync token.
+     */
+    MEMBERS_ADDED("membersAdded", String.class, NOT_CREATABLE, NOT_UPDATEABLE, NOT_RETURNED_BY_DEFAULT,
+            MULTIVALUED),
+    /**
+     * Computed attribute returned only by sync, members removed since sync token.
+     */
+    MEMBERS_REMOVED("membersRemoved", String.class, NOT_CREATABLE, NOT_UPDATEABLE, NOT_RETURNED_BY_DEFAULT,
+            MULTIVALUED),
     OBJECT_GUID("objectGUID", String.class, NOT_UPDATEABLE, NOT_CREATABLE);
 
     private static final Map<String, DominoGroupAttribute> ATTRIBUTE_MAP = new HashMap<String, DominoGroupAttribute>();
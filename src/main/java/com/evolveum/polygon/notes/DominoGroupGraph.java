@@ -0,0 +1,331 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes;
+
+import lotus.domino.*;
+import org.identityconnectors.common.logging.Log;
+
+import java.util.*;
+
+import static com.evolveum.polygon.notes.DominoGroupReader.normalize;
+
+/**
+ * Graph of all groups (group -> members) used to compute nested group membership. Graph is built with
+ * one search of all group documents and then refreshed incrementally by {@link DominoGroupReader}.
+ * Transitive closures are memoized until graph changes, cycles in group nesting are handled.
+ * <p/>
+ * Group and member names are compared case insensitive, groups can be referenced by any value of
+ * their ListName item.
+ */
+public class DominoGroupGraph {
+
+    private static final Log LOG = Log.getLog(DominoGroupGraph.class);
+
+    /**
+     * Group key (lower case display name) -> group
+     */
+    private final Map<String, GroupNode> groups = new HashMap<String, GroupNode>();
+    /**
+     * Lower case ListName value -> group key
+     */
+    private final Map<String, String> aliases = new HashMap<String, String>();
+    private final Map<String, String> unids = new HashMap<String, String>();
+    /**
+     * Lower case member name -> keys of groups listing it directly
+     */
+    private final Map<String, Set<String>> parents = new HashMap<String, Set<String>>();
+
+    private final Map<String, Set<String>> ancestorCache = new HashMap<String, Set<String>>();
+    private final Map<String, Set<String>> memberCache = new HashMap<String, Set<String>>();
+
+    private final DominoGroupReader reader = new DominoGroupReader(DominoGroupReader.GROUP_FORMULA);
+    private final DominoGroupReader.GroupHandler handler = new DominoGroupReader.GroupHandler() {
+
+        public void putGroup(DominoGroupReader.GroupDocument group) {
+            DominoGroupGraph.this.putGroup(group);
+        }
+
+        public void removeGroup(String unid) {
+            String key = unids.get(unid);
+            if (key != null) {
+                removeNode(key);
+                clearCaches();
+            }
+        }
+    };
+
+    private final long refreshInterval;
+    private boolean built;
+    private long lastRefresh;
+
+    /**
+     * @param refreshInterval in milliseconds, 0 means graph is refreshed before every use
+     */
+    public DominoGroupGraph(long refreshInterval) {
+        this.refreshInterval = refreshInterval;
+    }
+
+    /**
+     * Builds graph if it wasn't built yet, otherwise reads groups modified or deleted since last refresh
+     * if refresh interval elapsed.
+     */
+    public synchronized void refresh(Database database) throws NotesException {
+        if (!built) {
+            rebuild(database);
+            return;
+        }
+
+        if (System.currentTimeMillis() - lastRefresh < refreshInterval) {
+            return;
+        }
+
+        LOG.ok("Refreshing group graph.");
+        DominoOperationTrace.Span span = DominoOperationTrace.span("groupGraph.refresh");
+        try {
+            reader.refresh(database, handler);
+        } finally {
+            span.end();
+        }
+
+        lastRefresh = System.currentTimeMillis();
+    }
+
+    public synchronized void rebuild(Database database) throws NotesException {
+        LOG.ok("Building group graph.");
+        clear();
+        reader.reset();
+
+        DominoOperationTrace.Span span = DominoOperationTrace.span("groupGraph.rebuild");
+        try {
+            reader.refresh(database, handler);
+        } finally {
+            span.end();
+        }
+
+        built = true;
+        lastRefresh = System.currentTimeMillis();
+        LOG.ok("Group graph built, {0} groups.", groups.size());
+    }
+
+    /**
+     * Graph will be refreshed before next use.
+     */
+    public synchronized void markStale() {
+        lastRefresh = 0;
+    }
+
+    /**
+     * Adds or replaces group.
+     *
+     * @param unid      group document UNID, used to find previous group name after rename, may be null
+     * @param listNames values of ListName item, first value is group display name
+     * @param members   values of Members item
+     */
+    public synchronized void putGroup(String unid, List<?> listNames, List<?> members) {
+        DominoGroupReader.GroupDocument group = DominoGroupReader.createGroup(unid, listNames, members);
+        if (group != null) {
+            putGroup(group);
+        }
+    }
+
+    private void putGroup(DominoGroupReader.GroupDocument group) {
+        String unid = group.getUnid();
+        String key = normalize(group.getDisplayName());
+        String oldKey = unid != null ? unids.get(unid) : null;
+        if (oldKey != null) {
+            removeNode(oldKey);
+        }
+        removeNode(key);
+
+        GroupNode node = new GroupNode(group.getDisplayName(), unid);
+        for (String listName : group.getListNames()) {
+            node.aliases.add(normalize(listName));
+        }
+        node.members.putAll(group.getMembers());
+
+        groups.put(key, node);
+        for (String alias : node.aliases) {
+            aliases.put(alias, key);
+        }
+        if (unid != null) {
+            unids.put(unid, key);
+        }
+        for (String member : node.members.keySet()) {
+            Set<String> set = parents.get(member);
+            if (set == null) {
+                set = new HashSet<String>();
+                parents.put(member, set);
+            }
+            set.add(key);
+        }
+
+        clearCaches();
+    }
+
+    /**
+     * @param name any ListName value of group
+     */
+    public synchronized void removeGroup(String name) {
+        String key = aliases.get(normalize(name));
+        if (key != null) {
+            removeNode(key);
+            clearCaches();
+        }
+    }
+
+    /**
+     * @param member member name as used in Members item (canonical name for people)
+     * @return display names of all groups containing member directly or through nested groups
+     */
+    public synchronized Set<String> getEffectiveGroups(String member) {
+        Set<String> result = new LinkedHashSet<String>();
+        Set<String> direct = parents.get(normalize(member));
+        if (direct == null) {
+            return result;
+        }
+
+        for (String key : direct) {
+            for (String ancestor : getAncestors(key)) {
+                result.add(groups.get(ancestor).name);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @param group any ListName value of group
+     * @return names of all members which aren't groups, listed in group directly or through nested groups
+     */
+    public synchronized Set<String> getEffectiveMembers(String group) {
+        String key = aliases.get(normalize(group));
+        if (key == null) {
+            return new LinkedHashSet<String>();
+        }
+
+        Set<String> members = memberCache.get(key);
+        if (members != null) {
+            return new LinkedHashSet<String>(members);
+        }
+
+        members = new LinkedHashSet<String>();
+        Set<String> visited = new HashSet<String>();
+        Deque<String> queue = new ArrayDeque<String>();
+        queue.add(key);
+        visited.add(key);
+        while (!queue.isEmpty()) {
+            GroupNode node = groups.get(queue.poll());
+            for (Map.Entry<String, String> member : node.members.entrySet()) {
+                String nested = aliases.get(member.getKey());
+                if (nested == null) {
+                    members.add(member.getValue());
+                } else if (visited.add(nested)) {
+                    queue.add(nested);
+                }
+            }
+        }
+
+        memberCache.put(key, members);
+        return new LinkedHashSet<String>(members);
+    }
+
+    /**
+     * @return key of group and keys of all groups containing it directly or through nested groups
+     */
+    private Set<String> getAncestors(String key) {
+        Set<String> ancestors = ancestorCache.get(key);
+        if (ancestors != null) {
+            return ancestors;
+        }
+
+        ancestors = new LinkedHashSet<String>();
+        Deque<String> queue = new ArrayDeque<String>();
+        queue.add(key);
+        ancestors.add(key);
+        while (!queue.isEmpty()) {
+            GroupNode node = groups.get(queue.poll());
+            for (String alias : node.aliases) {
+                Set<String> direct = parents.get(alias);
+                if (direct == null) {
+                    continue;
+                }
+                for (String parent : direct) {
+                    if (ancestors.add(parent)) {
+                        queue.add(parent);
+                    }
+                }
+            }
+        }
+
+        ancestorCache.put(key, ancestors);
+        return ancestors;
+    }
+
+    private void removeNode(String key) {
+        GroupNode node = groups.remove(key);
+        if (node == null) {
+            return;
+        }
+
+        for (String alias : node.aliases) {
+            if (key.equals(aliases.get(alias))) {
+                aliases.remove(alias);
+            }
+        }
+        if (node.unid != null) {
+            unids.remove(node.unid);
+        }
+        for (String member : node.members.keySet()) {
+            Set<String> set = parents.get(member);
+            if (set != null) {
+                set.remove(key);
+                if (set.isEmpty()) {
+                    parents.remove(member);
+                }
+            }
+        }
+    }
+
+    private void clear() {
+        groups.clear();
+        aliases.clear();
+        unids.clear();
+        parents.clear();
+        clearCaches();
+    }
+
+    private void clearCaches() {
+        ancestorCache.clear();
+        memberCache.clear();
+    }
+
+    private static class GroupNode {
+
+        private final String name;
+        private final String unid;
+        private final Set<String> aliases = new HashSet<String>();
+        /**
+         * Lower case member name -> member name
+         */
+        private final Map<String, String> members = new LinkedHashMap<String, String>();
+
+        private GroupNode(String name, String unid) {
+            this.name = name;
+            this.unid = unid;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes;
+
+import lotus.domino.*;
+
+import java.util.*;
+
+import static com.evolveum.polygon.notes.util.DominoUtils.recycleQuietly;
+
+/**
+ * Incremental reader of group documents used by caches of groups. First refresh reads all groups, next
+ * refreshes read only groups modified since the newest modification seen so far. Deleted groups are
+ * found by comparing UNIDs of all group documents with UNIDs known from previous refresh, so delete is
+ * found also when another group was created meanwhile. Only UNIDs are read for this comparison.
+ * <p/>
+ * Reader is not thread safe, it's used under lock of its cache.
+ */
+public class DominoGroupReader {
+
+    public static final String GROUP_FORMULA = "(form='" + DominoConstants.FORM_GROUP + "')";
+
+    /**
+     * Receives groups read by refresh.
+     */
+    public interface GroupHandler {
+
+        /**
+         * Group was read for the first time or it was modified since previous refresh.
+         */
+        void putGroup(GroupDocument group);
+
+        /**
+         * Document of group doesn't match formula anymore, it was deleted or e.g. group type was changed.
+         */
+        void removeGroup(String unid);
+    }
+
+    private final String formula;
+
+    private final Set<String> unids = new HashSet<String>();
+    private Date watermark;
+
+    /**
+     * @param formula search formula selecting group documents, e.g. {@link #GROUP_FORMULA}
+     */
+    public DominoGroupReader(String formula) {
+        this.formula = formula;
+    }
+
+    /**
+     * Passes groups modified since previous refresh (all groups when called first time or after
+     * {@link #reset()}) and groups which don't exist anymore to handler.
+     */
+    public void refresh(Database database, GroupHandler handler) throws NotesException {
+        DateTime since = null;
+        DocumentCollection collection = null;
+        try {
+            since = watermark != null ? database.getParent().createDateTime(watermark) : null;
+            collection = since != null ? database.search(formula, since, 0) : database.search(formula);
+            Set<String> current = readGroups(collection, handler);
+
+            if (since != null) {
+                recycleQuietly(collection);
+                collection = database.search(formula);
+                current = readUnids(collection);
+            }
+
+            for (String unid : unids) {
+                if (!current.contains(unid)) {
+                    handler.removeGroup(unid);
+                }
+            }
+            unids.clear();
+            unids.addAll(current);
+        } finally {
+            recycleQuietly(collection);
+            recycleQuietly(since);
+        }
+    }
+
+    /**
+     * Next refresh reads all groups again.
+     */
+    public void reset() {
+        unids.clear();
+        watermark = null;
+    }
+
+    private Set<String> readGroups(DocumentCollection collection, GroupHandler handler) throws NotesException {
+        Set<String> read = new HashSet<String>();
+        Document document = collection.getFirstDocument();
+        while (document != null) {
+            String unid = document.getUniversalID();
+            read.add(unid);
+
+            GroupDocument group = createGroup(unid, document.getItemValue(DominoGroupAttribute.LIST_NAME.getName()),
+                    document.getItemValue(DominoGroupAttribute.MEMBERS.getName()));
+            if (group != null) {
+                handler.putGroup(group);
+            }
+
+            DateTime modified = document.getLastModified();
+            if (modified != null) {
+                Date date = modified.toJavaDate();
+                if (watermark == null || date.after(watermark)) {
+                    watermark = date;
+                }
+                recycleQuietly(modified);
+            }
+
+            recycleQuietly(document);
+            document = collection.getNextDocument();
+        }
+
+        return read;
+    }
+
+    private static Set<String> readUnids(DocumentCollection collection) throws NotesException {
+        Set<String> read = new HashSet<String>();
+        Document document = collection.getFirstDocument();
+        while (document != null) {
+            read.add(document.getUniversalID());
+
+            recycleQuietly(document);
+            document = collection.getNextDocument();
+        }
+
+        return read;
+    }
+
+    /**
+     * @param unid      group document UNID, may be null
+     * @param listNames values of ListName item, first value is group display name
+     * @param members   values of Members item, empty values are skipped
+     * @return group or null if it has no name
+     */
+    public static GroupDocument createGroup(String unid, List<?> listNames, List<?> members) {
+        if (listNames == null || listNames.isEmpty() || listNames.get(0) == null) {
+            return null;
+        }
+
+        List<String> names = new ArrayList<String>(listNames.size());
+        for (Object listName : listNames) {
+            if (listName != null) {
+                names.add(listName.toString());
+            }
+        }
+
+        Map<String, String> memberMap = new LinkedHashMap<String, String>();
+        if (members != null) {
+            for (Object member : members) {
+                if (member != null && member.toString().length() > 0) {
+                    memberMap.put(normalize(member.toString()), member.toString());
+                }
+            }
+        }
+
+        return new GroupDocument(unid, names, memberMap);
+    }
+
+    /**
+     * Group and member names are compared case insensitive.
+     */
+    public static String normalize(String name) {
+        return name.trim().toLowerCase();
+    }
+
+    public static final class GroupDocument {
+
+        private final String unid;
+        private final List<String> listNames;
+        private final Map<String, String> members;
+
+        private GroupDocument(String unid, List<String> listNames, Map<String, String> members) {
+            this.unid = unid;
+            this.listNames = listNames;
+            this.members = members;
+        }
+
+        public String getUnid() {
+            return unid;
+        }
+
+        /**
+         * @return first ListName value
+         */
+        public String getDisplayName() {
+            return listNames.get(0);
+        }
+
+        public List<String> getListNames() {
+            return listNames;
+        }
+
+        /**
+         * @return ListName values joined with ';', i.e. group uid
+         */
+        public String getName() {
+            StringBuilder sb = new StringBuilder();
+            for (String listName : listNames) {
+                if (sb.length() > 0) {
+                    sb.append(';');
+                }
+                sb.append(listName);
+            }
+            return sb.toString();
+        }
+
+        /**
+         * @return lower case member name -> member name
+         */
+        public Map<String, String> getMembers() {
+            return members;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes;
+
+import lotus.domino.NotesException;
+import lotus.domino.NotesFactory;
+import org.identityconnectors.common.logging.Log;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Caches IOR strings (fetched from diiop_ior.txt through HTTP) per IOR host and shares them between
+ * connector instances. Cached IOR older than refresh interval is still returned, fresh one is fetched
+ * in background. If background fetch fails, cached IOR stays in use.
+ */
+public class DominoIorCache {
+
+    private static final Log LOG = Log.getLog(DominoIorCache.class);
+
+    private static final DominoIorCache INSTANCE = new DominoIorCache();
+
+    private final ConcurrentMap<String, CachedIor> cache = new ConcurrentHashMap<String, CachedIor>();
+
+    /**
+     * Shared by all connector instances and therefore never shut down. It runs on daemon thread, which
+     * ends when idle for a minute, so it doesn't keep JVM running or classloader referenced after
+     * connector is unloaded.
+     */
+    private ExecutorService refresher;
+
+    private static class CachedIor {
+
+        private final String ior;
+        private final long fetched;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        private CachedIor(String ior) {
+            this.ior = ior;
+            this.fetched = System.currentTimeMillis();
+        }
+    }
+
+    public static DominoIorCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param host            IOR host
+     * @param refreshInterval in milliseconds, cached IOR older than interval is refreshed in background
+     * @return cached IOR or IOR fetched now if there's no cached one
+     */
+    public String getIor(final String host, long refreshInterval) throws NotesException {
+        final CachedIor cached = cache.get(host);
+        if (cached == null) {
+            return fetch(host);
+        }
+
+        if (System.currentTimeMillis() - cached.fetched >= refreshInterval
+                && cached.refreshing.compareAndSet(false, true)) {
+            getRefresher().execute(new Runnable() {
+
+                public void run() {
+                    try {
+                        fetch(host);
+                    } catch (NotesException ex) {
+                        LOG.warn("Couldn't refresh IOR from {0}, cached IOR is used, reason: {1}", host, ex.text);
+                    } catch (RuntimeException ex) {
+                        LOG.warn(ex, "Couldn't refresh IOR from {0}, cached IOR is used", host);
+                    } finally {
+                        cached.refreshing.set(false);
+                    }
+                }
+            });
+        }
+
+        return cached.ior;
+    }
+
+    /**
+     * Fetches IOR from host and caches it.
+     */
+    public String fetch(String host) throws NotesException {
+        LOG.ok("Fetching IOR from {0}.", host);
+        String ior = fetchIor(host);
+        cache.put(host, new CachedIor(ior));
+
+        return ior;
+    }
+
+    public void invalidate(String host) {
+        cache.remove(host);
+    }
+
+    protected String fetchIor(String host) throws NotesException {
+        return NotesFactory.getIOR(host);
+    }
+
+    private synchronized ExecutorService getRefresher() {
+        if (refresher == null) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "domino-ior-refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            executor.allowCoreThreadTimeOut(true);
+            refresher = executor;
+        }
+
+        return refresher;
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes;
+
+import lotus.domino.*;
+import org.identityconnectors.common.logging.Log;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Versioned log of group member changes. Domino doesn't keep history of Members item, therefore log
+ * keeps last known members of every group and compares them with groups modified since last refresh
+ * (read by {@link DominoGroupReader}). Every difference is recorded as change with next version, so
+ * that only added and removed members have to be transferred to the caller.
+ * <p/>
+ * Log is shared by connector instances working with the same user database, tokens are in format
+ * {@code <log id>:<version>}. Token of other log (e.g. from before connector restart) or token older
+ * than oldest retained change can't be used, caller has to read all members again.
+ * <p/>
+ * Member names are compared case insensitive.
+ */
+public class DominoMemberLog {
+
+    private static final Log LOG = Log.getLog(DominoMemberLog.class);
+
+    private static final ConcurrentMap<String, DominoMemberLog> LOGS = new ConcurrentHashMap<String, DominoMemberLog>();
+
+    public static enum ChangeType {
+        /**
+         * Group wasn't known before, added members are all members of group
+         */
+        CREATE,
+        UPDATE,
+        DELETE
+    }
+
+    /**
+     * Group UNID -> last known group
+     */
+    private final Map<String, GroupMembers> groups = new HashMap<String, GroupMembers>();
+    private final LinkedList<Change> changes = new LinkedList<Change>();
+    private final DominoGroupReader reader = new DominoGroupReader(DominoGroupReader.GROUP_FORMULA);
+
+    private final String id = Long.toString(System.currentTimeMillis(), 36);
+    private final int maxSize;
+    /**
+     * Number of member values (added and removed) in retained changes
+     */
+    private int size;
+    private long version;
+    /**
+     * Changes with version lower or equal to this one were dropped
+     */
+    private long droppedVersion;
+    private boolean built;
+
+    /**
+     * @param maxSize number of added and removed member values retained in log
+     */
+    public DominoMemberLog(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param key     identifies user database, e.g. server and replica id
+     * @param maxSize used if log for key doesn't exist yet
+     * @return log shared by connector instances
+     */
+    public static DominoMemberLog getInstance(String key, int maxSize) {
+        DominoMemberLog log = LOGS.get(key);
+        if (log == null) {
+            LOGS.putIfAbsent(key, new DominoMemberLog(maxSize));
+            log = LOGS.get(key);
+        }
+        return log;
+    }
+
+    public synchronized String getToken() {
+        return createToken(version);
+    }
+
+    /**
+     * Reads all groups when log is used first time, otherwise records changes of groups modified since
+     * last refresh and deletes of groups.
+     */
+    public synchronized void refresh(Database database) throws NotesException {
+        LOG.ok(built ? "Refreshing member log." : "Reading members of all groups.");
+        DominoOperationTrace.Span span = DominoOperationTrace.span(built ? "memberLog.refresh" : "memberLog.build");
+        try {
+            reader.refresh(database, new DominoGroupReader.GroupHandler() {
+
+                public void putGroup(DominoGroupReader.GroupDocument group) {
+                    DominoMemberLog.this.putGroup(group);
+                }
+
+                public void removeGroup(String unid) {
+                    DominoMemberLog.this.removeGroup(unid);
+                }
+            });
+        } finally {
+            span.end();
+        }
+
+        if (!built) {
+            built = true;
+            LOG.ok("Member log built, {0} groups.", groups.size());
+        }
+    }
+
+    /**
+     * @param token token returned by {@link #getToken()} or {@link Change#getToken()}
+     * @return changes recorded after token, null if token can't be used
+     */
+    public synchronized List<Change> getChanges(String token) {
+        Long from = parseToken(token);
+        if (from == null || from < droppedVersion || from > version) {
+            return null;
+        }
+
+        List<Change> result = new ArrayList<Change>();
+        for (Change change : changes) {
+            if (change.version > from) {
+                result.add(change);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return all known groups as create changes, token of every change is current token
+     */
+    public synchronized List<Change> getSnapshot() {
+        List<Change> result = new ArrayList<Change>(groups.size());
+        for (GroupMembers group : groups.values()) {
+            Change change = new Change(ChangeType.CREATE, group.name, null,
+                    new ArrayList<String>(group.members.values()), Collections.<String>emptyList());
+            change.version = version;
+            change.token = getToken();
+            result.add(change);
+        }
+        return result;
+    }
+
+    /**
+     * Replaces last known members of group, difference is recorded as change if log was already built.
+     */
+    private void putGroup(DominoGroupReader.GroupDocument group) {
+        String name = group.getName();
+        Map<String, String> members = group.getMembers();
+
+        GroupMembers previous = groups.put(group.getUnid(), new GroupMembers(name, members));
+        if (!built) {
+            return;
+        }
+
+        if (previous == null) {
+            addChange(new Change(ChangeType.CREATE, name, null, new ArrayList<String>(members.values()),
+                    Collections.<String>emptyList()));
+            return;
+        }
+
+        List<String> added = new ArrayList<String>();
+        for (Map.Entry<String, String> member : members.entrySet()) {
+            if (!previous.members.containsKey(member.getKey())) {
+                added.add(member.getValue());
+            }
+        }
+        List<String> removed = new ArrayList<String>();
+        for (Map.Entry<String, String> member : previous.members.entrySet()) {
+            if (!members.containsKey(member.getKey())) {
+                removed.add(member.getValue());
+            }
+        }
+
+        boolean renamed = !name.equals(previous.name);
+        if (renamed || !added.isEmpty() || !removed.isEmpty()) {
+            addChange(new Change(ChangeType.UPDATE, name, renamed ? previous.name : null, added, removed));
+        }
+    }
+
+    private void removeGroup(String unid) {
+        GroupMembers group = groups.remove(unid);
+        if (group != null && built) {
+            addChange(new Change(ChangeType.DELETE, group.name, null,
+                    Collections.<String>emptyList(), Collections.<String>emptyList()));
+        }
+    }
+
+    private void addChange(Change change) {
+        change.version = ++version;
+        change.token = createToken(change.version);
+        changes.add(change);
+        size += change.getSize();
+
+        while (size > maxSize && changes.size() > 1) {
+            Change dropped = changes.removeFirst();
+            size -= dropped.getSize();
+            droppedVersion = dropped.version;
+        }
+    }
+
+    private String createToken(long version) {
+        return id + ":" + version;
+    }
+
+    private Long parseToken(String token) {
+        if (token == null || !token.startsWith(id + ":")) {
+            return null;
+        }
+
+        try {
+            return Long.valueOf(token.substring(id.length() + 1));
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private static class GroupMembers {
+
+        private final String name;
+        /**
+         * Lower case member name -> member name
+         */
+        private final Map<String, String> members;
+
+        private GroupMembers(String name, Map<String, String> members) {
+            this.name = name;
+            this.members = members;
+        }
+    }
+
+    public static class Change {
+
+        private final ChangeType type;
+        private final String name;
+        private final String previousName;
+        private final List<String> added;
+        private final List<String> removed;
+        private long version;
+        private String token;
+
+        private Change(ChangeType type, String name, String previousName, List<String> added, List<String> removed) {
+            this.type = type;
+            this.name = name;
+            this.previousName = previousName;
+            this.added = added;
+            this.removed = removed;
+        }
+
+        public ChangeType getType() {
+            return type;
+        }
+
+        /**
+         * @return ListName values of group joined with ';', i.e. group uid
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return previous name if group was renamed, otherwise null
+         */
+        public String getPreviousName() {
+            return previousName;
+        }
+
+        public List<String> getAdded() {
+            return added;
+        }
+
+        public List<String> getRemoved() {
+            return removed;
+        }
+
+        public String getToken() {
+            return token;
+        }
+
+        private int getSize() {
+            return Math.max(1, added.size() + removed.size());
+        }
+
+        @Override
+        public String toString() {
+            return "Change{" + type + ", " + name + ", +" + added.size() + ", -" + removed.size() + ", " + token + "}";
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes;
+
+import java.util.*;
+
+/**
+ * Collects pending group membership changes (group name -> member names) so that they can be
+ * written as one AdminP request (adds) or one Members item update (removes) per group. Changes
+ * are kept until flush interval since the first pending change elapses (connector checks it also
+ * in background, while idle) or until next read; interval 0 means that changes are flushed at the
+ * end of each operation.
+ */
+public class DominoMembershipAggregator {
+
+    private final Map<String, Set<String>> adds = new LinkedHashMap<String, Set<String>>();
+    private final Map<String, Set<String>> removes = new LinkedHashMap<String, Set<String>>();
+
+    /**
+     * Groups already checked for existence in current window.
+     */
+    private final Set<String> existingGroups = new HashSet<String>();
+
+    private final long flushInterval;
+    private long windowStart;
+
+    /**
+     * @param flushInterval in milliseconds
+     */
+    public DominoMembershipAggregator(long flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    public synchronized void add(String group, String member) {
+        startWindow();
+
+        Set<String> removed = removes.get(group);
+        if (removed != null && removed.remove(member)) {
+            // member is still in group, pending remove is cancelled
+            return;
+        }
+
+        getMembers(adds, group).add(member);
+    }
+
+    public synchronized void remove(String group, String member) {
+        startWindow();
+
+        Set<String> added = adds.get(group);
+        if (added != null && added.remove(member)) {
+            // AdminP request for add wasn't posted yet, pending add is cancelled
+            return;
+        }
+
+        getMembers(removes, group).add(member);
+    }
+
+    public synchronized boolean isGroupChecked(String group) {
+        return existingGroups.contains(group);
+    }
+
+    public synchronized void markGroupChecked(String group) {
+        existingGroups.add(group);
+    }
+
+    public synchronized boolean isEmpty() {
+        return !hasChanges(adds) && !hasChanges(removes);
+    }
+
+    public synchronized boolean isFlushDue() {
+        if (isEmpty()) {
+            return false;
+        }
+
+        return flushInterval <= 0 || System.currentTimeMillis() - windowStart >= flushInterval;
+    }
+
+    /**
+     * @return pending adds, aggregator forgets them
+     */
+    public synchronized Map<String, Set<String>> drainAdds() {
+        return drain(adds);
+    }
+
+    /**
+     * @return pending removes, aggregator forgets them
+     */
+    public synchronized Map<String, Set<String>> drainRemoves() {
+        return drain(removes);
+    }
+
+    /**
+     * Puts back changes which were drained but not written. Changes made meanwhile are newer, restored
+     * add and remove of the same member cancel each other the same way as in {@link #add(String, String)}
+     * and {@link #remove(String, String)}.
+     */
+    public synchronized void restore(Map<String, Set<String>> unappliedAdds,
+                                     Map<String, Set<String>> unappliedRemoves) {
+        for (Map.Entry<String, Set<String>> entry : unappliedAdds.entrySet()) {
+            for (String member : entry.getValue()) {
+                add(entry.getKey(), member);
+            }
+        }
+        for (Map.Entry<String, Set<String>> entry : unappliedRemoves.entrySet()) {
+            for (String member : entry.getValue()) {
+                remove(entry.getKey(), member);
+            }
+        }
+    }
+
+    private Map<String, Set<String>> drain(Map<String, Set<String>> changes) {
+        Map<String, Set<String>> result = new LinkedHashMap<String, Set<String>>();
+        for (Map.Entry<String, Set<String>> entry : changes.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                result.put(entry.getKey(), entry.getValue());
+            }
+        }
+        changes.clear();
+
+        if (isEmpty()) {
+            existingGroups.clear();
+        }
+
+        return result;
+    }
+
+    private void startWindow() {
+        if (isEmpty()) {
+            windowStart = System.currentTimeMillis();
+        }
+    }
+
+    private Set<String> getMembers(Map<String, Set<String>> changes, String group) {
+        Set<String> members = changes.get(group);
+        if (members == null) {
+            members = new LinkedHashSet<String>();
+            changes.put(group, members);
+        }
+
+        return members;
+    }
+
+    private boolean hasChanges(Map<String, Set<String>> changes) {
+        for (Set<String> members : changes.values()) {
+            if (!members.isEmpty()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes;
+
+import org.identityconnectors.framework.common.objects.ObjectClass;
+
+import java.util.*;
+
+/**
+ * Immutable attribute metadata of one object class, built once so that documents can be converted
+ * without enum scans and repeated attribute name comparisons.
+ */
+public final class DominoObjectClassInfo {
+
+    public static final DominoObjectClassInfo ACCOUNT = new DominoObjectClassInfo(ObjectClass.ACCOUNT,
+            DominoAccountAttribute.class, DominoAccountAttribute.FULL_NAME, createAccountConverters());
+
+    public static final DominoObjectClassInfo GROUP = new DominoObjectClassInfo(ObjectClass.GROUP,
+            DominoGroupAttribute.class, DominoGroupAttribute.LIST_NAME, createGroupConverters());
+
+    private final ObjectClass objectClass;
+    private final DominoAttribute nameAttribute;
+    private final DominoAttribute[] attributes;
+    private final DominoValueConverter[] converters;
+    private final Map<String, DominoAttribute> attributeMap;
+    /**
+     * Names of attributes returned when attributes to get are not defined, computed attributes are excluded
+     */
+    private final Set<String> attributeNames;
+
+    private DominoObjectClassInfo(ObjectClass objectClass, Class<? extends DominoAttribute> type,
+                                  DominoAttribute nameAttribute, Map<DominoAttribute, DominoValueConverter> converters) {
+        this.objectClass = objectClass;
+        this.nameAttribute = nameAttribute;
+        this.attributes = type.getEnumConstants();
+        this.converters = new DominoValueConverter[attributes.length];
+
+        Map<String, DominoAttribute> map = new HashMap<String, DominoAttribute>();
+        for (DominoAttribute attr : attributes) {
+            map.put(attr.getName(), attr);
+
+            DominoValueConverter converter = converters.get(attr);
+            this.converters[getIndex(attr)] = converter != null ? converter : DominoValueConverter.DEFAULT;
+        }
+        this.attributeMap = Collections.unmodifiableMap(map);
+
+        Set<String> names = new HashSet<String>(map.keySet());
+        names.remove(DominoAccountAttribute.EFFECTIVE_GROUPS.getName());
+        names.remove(DominoGroupAttribute.EFFECTIVE_MEMBERS.getName());
+        names.remove(DominoGroupAttribute.MEMBERS_ADDED.getName());
+        names.remove(DominoGroupAttribute.MEMBERS_REMOVED.getName());
+        this.attributeNames = Collections.unmodifiableSet(names);
+    }
+
+    private static Map<DominoAttribute, DominoValueConverter> createAccountConverters() {
+        Map<DominoAttribute, DominoValueConverter> converters = new HashMap<DominoAttribute, DominoValueConverter>();
+        converters.put(DominoAccountAttribute.PASSWORD_CHANGE_INTERVAL, DominoValueConverter.INTEGER);
+        converters.put(DominoAccountAttribute.PASSWORD_GRACE_PERIOD, DominoValueConverter.INTEGER);
+        converters.put(DominoAccountAttribute.ROAM_CLEAN_PER, DominoValueConverter.INTEGER);
+        converters.put(DominoAccountAttribute.ROAM_CLEAN_SETTING, DominoValueConverter.INTEGER_FROM_STRING);
+        converters.put(DominoAccountAttribute.MAIL_SERVER, DominoValueConverter.ABBREVIATED_NAME);
+
+        return converters;
+    }
+
+    private static Map<DominoAttribute, DominoValueConverter> createGroupConverters() {
+        Map<DominoAttribute, DominoValueConverter> converters = new HashMap<DominoAttribute, DominoValueConverter>();
+        converters.put(DominoGroupAttribute.MEMBERS, DominoValueConverter.ABBREVIATED_NAME);
+
+        return converters;
+    }
+
+    /**
+     * @param oclass object class
+     * @return metadata for account or group object class, null for other object classes
+     */
+    public static DominoObjectClassInfo getInfo(ObjectClass oclass) {
+        if (ObjectClass.ACCOUNT.equals(oclass)) {
+            return ACCOUNT;
+        } else if (ObjectClass.GROUP.equals(oclass)) {
+            return GROUP;
+        }
+
+        return null;
+    }
+
+    public ObjectClass getObjectClass() {
+        return objectClass;
+    }
+
+    public boolean isAccount() {
+        return this == ACCOUNT;
+    }
+
+    public boolean isGroup() {
+        return this == GROUP;
+    }
+
+    public DominoAttribute getNameAttribute() {
+        return nameAttribute;
+    }
+
+    public Set<String> getAttributeNames() {
+        return attributeNames;
+    }
+
+    /**
+     * @param name item name
+     * @return attribute for item name, null if it's not defined in schema
+     */
+    public DominoAttribute getAttribute(String name) {
+        return attributeMap.get(name);
+    }
+
+    public DominoValueConverter getConverter(DominoAttribute attr) {
+        return converters[getIndex(attr)];
+    }
+
+    /**
+     * @param names attribute names requested by framework
+     * @return bit set indexed by {@link #getIndex(DominoAttribute)}
+     */
+    public BitSet createWanted(Collection<String> names) {
+        BitSet wanted = new BitSet(attributes.length);
+        for (String name : names) {
+            DominoAttribute attr = attributeMap.get(name);
+            if (attr != null) {
+                wanted.set(getIndex(attr));
+            }
+        }
+
+        return wanted;
+    }
+
+    public static int getIndex(DominoAttribute attr) {
+        return ((Enum) attr).ordinal();
+    }
+}
@@ -24,7 +24,23 @@ public enum DominoOperationOption {
     SYNCH_INTERNET_PASSWORD(OperationOptionInfoBuilder.build("SynchInternetPassword", Boolean.class)),
     MAIL_OWNER_ACCESS(OperationOptionInfoBuilder.build("MailOwnerAccess", Integer.class)),
     MAIL_FILE_ACTION(OperationOptionInfoBuilder.build("MailFileAction", Integer.class)),
-    DELETE_WINDOWS_USER(OperationOptionInfoBuilder.build("DeleteWindowsUser", Boolean.class));
+    DELETE_WINDOWS_USER(OperationOptionInfoBuilder.build("DeleteWindowsUser", Boolean.class)),
+    /**
+     * Search returns only number of matching objects through
+     * {@link org.identityconnectors.framework.common.objects.SearchResult#getRemainingPagedResults()},
+     * no object is passed to results handler.
+     */
+    COUNT_ONLY(OperationOptionInfoBuilder.build("CountOnly", Boolean.class)),
+    /**
+     * Maximal number of values returned in membership attributes (GroupList, Members, MemberGroups,
+     * MemberPeople) of one object, reading of values stops when limit is reached.
+     */
+    MAX_VALUES(OperationOptionInfoBuilder.build("MaxValues", Integer.class)),
+    /**
+     * Search exports matching documents in blocks, one DXL export call per block, and streams parsed
+     * documents to results handler, sort keys are ignored. Meant for initial loads and full resynchronization.
+     */
+    BULK_EXPORT(OperationOptionInfoBuilder.build("BulkExport", Boolean.class));
 
     private OperationOptionInfo info;
 
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes;
+
+import org.identityconnectors.common.logging.Log;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+/**
+ * Lightweight timing of one connector operation. Time of phases (spans) is aggregated by phase name,
+ * operation slower than threshold is logged with breakdown of its phases. Trace is bound to current
+ * thread (and propagated to parallel workers by {@link DominoExecutor}), spans started without active
+ * trace do nothing.
+ */
+public final class DominoOperationTrace {
+
+    private static final ThreadLocal<DominoOperationTrace> CURRENT = new ThreadLocal<DominoOperationTrace>();
+
+    private static final Span NOOP = new Span(null, null);
+
+    /**
+     * Running phase, must be ended in finally block.
+     */
+    public static final class Span {
+
+        private final DominoOperationTrace trace;
+        private final String name;
+        private final long start;
+
+        private Span(DominoOperationTrace trace, String name) {
+            this.trace = trace;
+            this.name = name;
+            this.start = trace != null ? System.nanoTime() : 0;
+        }
+
+        public void end() {
+            if (trace != null) {
+                trace.record(name, System.nanoTime() - start);
+            }
+        }
+    }
+
+    private static final class Phase {
+
+        private int count;
+        private long total;
+        private long max;
+    }
+
+    private final String operation;
+    private final long threshold;
+    private final long start;
+    /**
+     * Operation started while another operation is traced in the same thread, its phases are recorded
+     * to outer trace
+     */
+    private final DominoOperationTrace outer;
+    private final Map<String, Phase> phases = new LinkedHashMap<String, Phase>();
+
+    private DominoOperationTrace(String operation, long threshold, DominoOperationTrace outer) {
+        this.operation = operation;
+        this.threshold = threshold;
+        this.outer = outer;
+        this.start = System.nanoTime();
+    }
+
+    /**
+     * Starts trace of operation in current thread.
+     *
+     * @param operation operation description, e.g. "update __ACCOUNT__"
+     * @param threshold in milliseconds, slower operation is logged as warning, 0 disables logging
+     */
+    public static DominoOperationTrace start(String operation, long threshold) {
+        DominoOperationTrace outer = CURRENT.get();
+        DominoOperationTrace trace = new DominoOperationTrace(operation, threshold, outer);
+        if (outer == null) {
+            CURRENT.set(trace);
+        }
+
+        return trace;
+    }
+
+    /**
+     * @param name phase name, e.g. "search" or "adminp.moveMailUser"
+     * @return started span of current trace, span which does nothing if no operation is traced
+     */
+    public static Span span(String name) {
+        DominoOperationTrace trace = CURRENT.get();
+        return trace != null ? new Span(trace, name) : NOOP;
+    }
+
+    public static DominoOperationTrace current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Binds trace to current thread (used by workers executing part of traced operation).
+     *
+     * @return previously bound trace
+     */
+    public static DominoOperationTrace bind(DominoOperationTrace trace) {
+        DominoOperationTrace previous = CURRENT.get();
+        if (trace != null) {
+            CURRENT.set(trace);
+        } else {
+            CURRENT.remove();
+        }
+
+        return previous;
+    }
+
+    /**
+     * @return proxy of Domino object which records every method call as span "prefix.method", target
+     * itself if no operation is traced
+     */
+    public static <T> T traced(final Class<T> type, final T target, final String prefix) {
+        if (target == null || CURRENT.get() == null) {
+            return target;
+        }
+
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class[]{type}, new InvocationHandler() {
+
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                Span span = span(prefix + "." + method.getName());
+                try {
+                    return method.invoke(target, args);
+                } catch (InvocationTargetException ex) {
+                    throw ex.getCause();
+                } finally {
+                    span.end();
+                }
+            }
+        });
+
+        return type.cast(proxy);
+    }
+
+    private synchronized void record(String name, long nanos) {
+        Phase phase = phases.get(name);
+        if (phase == null) {
+            phase = new Phase();
+            phases.put(name, phase);
+        }
+
+        phase.count++;
+        phase.total += nanos;
+        phase.max = Math.max(phase.max, nanos);
+    }
+
+    /**
+     * Unbinds trace from thread and logs its duration, as warning with phase breakdown if operation
+     * took longer than threshold. Phases executed in parallel may overlap, their sum can exceed duration.
+     *
+     * @return operation duration in milliseconds
+     */
+    public long finish(Log log) {
+        long elapsed = (System.nanoTime() - start) / 1000000;
+        if (outer != null) {
+            return elapsed;
+        }
+        CURRENT.remove();
+
+        if (threshold > 0 && elapsed >= threshold) {
+            log.warn("Slow operation: operation={0}, elapsedMs={1}, thresholdMs={2}, phases=[{3}]", operation,
+                    elapsed, threshold, getBreakdown());
+        } else {
+            log.ok("Operation {0} took {1} ms, phases=[{2}]", operation, elapsed, getBreakdown());
+        }
+
+        return elapsed;
+    }
+
+    /**
+     * @return phases sorted by total time, e.g. "adminp.moveMailUser count=1 totalMs=30120 maxMs=30120"
+     */
+    public synchronized String getBreakdown() {
+        List<Map.Entry<String, Phase>> entries = new ArrayList<Map.Entry<String, Phase>>(phases.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, Phase>>() {
+
+            public int compare(Map.Entry<String, Phase> e1, Map.Entry<String, Phase> e2) {
+                long t1 = e1.getValue().total;
+                long t2 = e2.getValue().total;
+                return t1 > t2 ? -1 : (t1 == t2 ? 0 : 1);
+            }
+        });
+
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Phase> entry : entries) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            Phase phase = entry.getValue();
+            sb.append(entry.getKey()).append(" count=").append(phase.count)
+                    .append(" totalMs=").append(phase.total / 1000000)
+                    .append(" maxMs=").append(phase.max / 1000000);
+        }
+
+        return sb.toString();
+    }
+}
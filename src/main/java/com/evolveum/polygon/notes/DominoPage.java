@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes;
+
+/**
+ * Page of search results defined by paged results offset (1-based) and page size.
+ */
+public final class DominoPage {
+
+    private final int offset;
+    private final int size;
+
+    /**
+     * @param offset paged results offset, 1-based, null means first result
+     * @param size   page size, null means all results
+     */
+    public DominoPage(Integer offset, Integer size) {
+        this.offset = offset != null && offset > 1 ? offset : 1;
+        this.size = size != null && size >= 0 ? size : -1;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public boolean isPaged() {
+        return size >= 0;
+    }
+
+    /**
+     * @param count number of results already returned from this page
+     * @return true if another result fits into page
+     */
+    public boolean isInPage(int count) {
+        return size < 0 || count < size;
+    }
+}
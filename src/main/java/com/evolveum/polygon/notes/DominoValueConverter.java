@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes;
+
+import lotus.domino.DateTime;
+import lotus.domino.Item;
+import lotus.domino.NotesException;
+
+import java.util.Date;
+
+import static com.evolveum.polygon.notes.util.DominoUtils.getAbbreviated;
+
+/**
+ * Converts item values read from Domino document to values used in connector objects.
+ */
+public enum DominoValueConverter {
+
+    DEFAULT {
+        @Override
+        public Object convert(DominoConnection connection, Object value) throws NotesException {
+            if (value instanceof DateTime || value instanceof Date) {
+                return DATE_TIME.convert(connection, value);
+            } else if (value instanceof Number) {
+                return value;
+            } else if (value != null) {
+                return value.toString();
+            }
+
+            return null;
+        }
+    },
+
+    TEXT {
+        @Override
+        public Object convert(DominoConnection connection, Object value) throws NotesException {
+            return value.toString();
+        }
+    },
+
+    NUMBER {
+        @Override
+        public Object convert(DominoConnection connection, Object value) throws NotesException {
+            return value;
+        }
+    },
+
+    DATE_TIME {
+        @Override
+        public Object convert(DominoConnection connection, Object value) throws NotesException {
+            //translating to long (time in millis), values read from DXL are already dates
+            if (value instanceof Date) {
+                return ((Date) value).getTime();
+            }
+            return ((DateTime) value).toJavaDate().getTime();
+        }
+    },
+
+    /**
+     * Number items are returned as doubles by Domino.
+     */
+    INTEGER {
+        @Override
+        public Object convert(DominoConnection connection, Object value) throws NotesException {
+            return ((Double) value).intValue();
+        }
+    },
+
+    INTEGER_FROM_STRING {
+        @Override
+        public Object convert(DominoConnection connection, Object value) throws NotesException {
+            return Integer.valueOf((String) value);
+        }
+    },
+
+    ABBREVIATED_NAME {
+        @Override
+        public Object convert(DominoConnection connection, Object value) throws NotesException {
+            return getAbbreviated(connection, (String) value);
+        }
+    };
+
+    /**
+     * @param type item type, see {@link lotus.domino.Item#getType()}
+     * @return converter specialized for values of item type, {@link #DEFAULT} for other types
+     */
+    public static DominoValueConverter forItemType(int type) {
+        switch (type) {
+            case Item.TEXT:
+            case Item.NAMES:
+            case Item.AUTHORS:
+            case Item.READERS:
+                return TEXT;
+            case Item.NUMBERS:
+                return NUMBER;
+            case Item.DATETIMES:
+                return DATE_TIME;
+            default:
+                return DEFAULT;
+        }
+    }
+
+    public abstract Object convert(DominoConnection connection, Object value) throws NotesException;
+}
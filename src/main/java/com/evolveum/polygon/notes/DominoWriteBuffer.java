@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects item writes per document (document UNID -> item name -> value) so that every document
+ * is saved only once per flush interval, regardless of number of updates. Later write of the same item
+ * replaces previous one. Interval 0 disables buffering, items are written and saved immediately.
+ * <p/>
+ * Connector flushes buffer also in background when interval elapses and before every read, writes
+ * which change uid (group rename) are never buffered.
+ */
+public class DominoWriteBuffer {
+
+    private final Map<String, Map<String, Object>> writes = new LinkedHashMap<String, Map<String, Object>>();
+
+    private final long flushInterval;
+    private long windowStart;
+
+    /**
+     * @param flushInterval in milliseconds
+     */
+    public DominoWriteBuffer(long flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    public boolean isEnabled() {
+        return flushInterval > 0;
+    }
+
+    public synchronized void put(String unid, String item, Object value) {
+        if (writes.isEmpty()) {
+            windowStart = System.currentTimeMillis();
+        }
+
+        Map<String, Object> items = writes.get(unid);
+        if (items == null) {
+            items = new LinkedHashMap<String, Object>();
+            writes.put(unid, items);
+        }
+        items.put(item, value);
+    }
+
+    /**
+     * @return pending writes of document (item name -> value), buffer forgets them
+     */
+    public synchronized Map<String, Object> take(String unid) {
+        Map<String, Object> items = writes.remove(unid);
+        return items != null ? items : new LinkedHashMap<String, Object>();
+    }
+
+    /**
+     * Forgets pending writes for document, e.g. when it's deleted.
+     */
+    public synchronized void discard(String unid) {
+        writes.remove(unid);
+    }
+
+    public synchronized boolean isEmpty() {
+        return writes.isEmpty();
+    }
+
+    public synchronized boolean isFlushDue() {
+        if (isEmpty()) {
+            return false;
+        }
+
+        return System.currentTimeMillis() - windowStart >= flushInterval;
+    }
+
+    /**
+     * Returns writes which couldn't be applied back to buffer. Writes put to buffer after they were
+     * drained are newer, they take precedence.
+     */
+    public synchronized void restore(Map<String, Map<String, Object>> unapplied) {
+        if (writes.isEmpty()) {
+            windowStart = System.currentTimeMillis();
+        }
+
+        for (Map.Entry<String, Map<String, Object>> entry : unapplied.entrySet()) {
+            Map<String, Object> items = new LinkedHashMap<String, Object>(entry.getValue());
+            Map<String, Object> newer = writes.remove(entry.getKey());
+            if (newer != null) {
+                items.putAll(newer);
+            }
+            writes.put(entry.getKey(), items);
+        }
+    }
+
+    /**
+     * @return pending writes, buffer forgets them
+     */
+    public synchronized Map<String, Map<String, Object>> drain() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<String, Map<String, Object>>(writes);
+        writes.clear();
+
+        return result;
+    }
+}
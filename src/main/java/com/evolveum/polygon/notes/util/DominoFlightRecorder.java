@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes.util;
+
+import org.identityconnectors.common.logging.Log;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Java Flight Recorder events of Domino remote calls. Event types are created at runtime by
+ * {@code jdk.jfr.EventFactory} through reflection, so connector doesn't depend on JFR API and runs on
+ * JVMs without JFR. If JFR isn't available or event type isn't enabled in running recording,
+ * {@link #begin(Type)} returns shared event which does nothing.
+ */
+public final class DominoFlightRecorder {
+
+    private static final Log LOG = Log.getLog(DominoFlightRecorder.class);
+
+    private static final String CATEGORY = "Domino Connector";
+
+    public static enum Type {
+
+        SEARCH("DominoSearch", "Domino Search", "formula", String.class, "resultCount", int.class),
+        DOCUMENT_READ("DocumentRead", "Domino Document Read", "unid", String.class, "itemsRead", int.class),
+        NAME_CONVERSION("NameConversion", "Domino Name Conversion", "name", String.class, "format", String.class),
+        ADMINP_REQUEST("AdminPRequest", "Domino AdminP Request", "action", String.class, "target", String.class),
+        SESSION_OPEN("SessionOpen", "Domino Session Open", "host", String.class, "user", String.class);
+
+        private final String name;
+        private final String label;
+        private final Object[] fields;
+
+        /**
+         * factory (jdk.jfr.EventFactory) and event type (jdk.jfr.EventType), null if JFR isn't available
+         */
+        private Object factory;
+        private Object eventType;
+
+        private Type(String name, String label, Object... fields) {
+            this.name = "com.evolveum.polygon.notes." + name;
+            this.label = label;
+            this.fields = fields;
+        }
+    }
+
+    /**
+     * Event started by {@link #begin(Type)}, values are set when event is committed.
+     */
+    public static final class Event {
+
+        private final Object event;
+        private boolean ended;
+
+        private Event(Object event) {
+            this.event = event;
+        }
+
+        /**
+         * @return false if event won't be recorded, values which are expensive to get can be skipped
+         */
+        public boolean isEnabled() {
+            return event != null;
+        }
+
+        /**
+         * Ends measured time, values which need another remote call can be read before commit then.
+         */
+        public void end() {
+            if (event == null || ended) {
+                return;
+            }
+
+            try {
+                JFR.end.invoke(event);
+                ended = true;
+            } catch (Exception ex) {
+                LOG.ok("Couldn't end JFR event, reason: {0}", ex.getMessage());
+            }
+        }
+
+        /**
+         * Ends (if it wasn't ended yet) and commits event.
+         *
+         * @param values values of event fields in order of definition in {@link Type}
+         */
+        public void commit(Object... values) {
+            if (event == null) {
+                return;
+            }
+
+            try {
+                for (int i = 0; i < values.length; i++) {
+                    JFR.set.invoke(event, i, values[i]);
+                }
+                if (!ended) {
+                    JFR.end.invoke(event);
+                }
+                JFR.commit.invoke(event);
+            } catch (Exception ex) {
+                LOG.ok("Couldn't commit JFR event, reason: {0}", ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reflective access to JFR API.
+     */
+    private static final class Jfr {
+
+        private final Method newEvent;
+        private final Method isEnabled;
+        private final Method begin;
+        private final Method end;
+        private final Method commit;
+        private final Method set;
+
+        private Jfr(Class<?> factoryClass, Class<?> eventClass) throws Exception {
+            newEvent = factoryClass.getMethod("newEvent");
+            isEnabled = Class.forName("jdk.jfr.EventType").getMethod("isEnabled");
+            begin = eventClass.getMethod("begin");
+            end = eventClass.getMethod("end");
+            commit = eventClass.getMethod("commit");
+            set = eventClass.getMethod("set", int.class, Object.class);
+        }
+    }
+
+    private static final Event DISABLED = new Event(null);
+
+    /**
+     * null if JFR isn't available
+     */
+    private static final Jfr JFR = initialize();
+
+    private DominoFlightRecorder() {
+    }
+
+    private static Jfr initialize() {
+        try {
+            Class<?> factoryClass = Class.forName("jdk.jfr.EventFactory");
+            Class<?> eventClass = Class.forName("jdk.jfr.Event");
+            Class<?> annotationClass = Class.forName("jdk.jfr.AnnotationElement");
+            Class<?> descriptorClass = Class.forName("jdk.jfr.ValueDescriptor");
+
+            Constructor<?> annotation = annotationClass.getConstructor(Class.class, Object.class);
+            Constructor<?> descriptor = descriptorClass.getConstructor(Class.class, String.class);
+            Method create = factoryClass.getMethod("create", List.class, List.class);
+
+            Object category = Array.newInstance(String.class, 1);
+            Array.set(category, 0, CATEGORY);
+
+            for (Type type : Type.values()) {
+                List<Object> annotations = new ArrayList<Object>();
+                annotations.add(annotation.newInstance(Class.forName("jdk.jfr.Name"), type.name));
+                annotations.add(annotation.newInstance(Class.forName("jdk.jfr.Label"), type.label));
+                annotations.add(annotation.newInstance(Class.forName("jdk.jfr.Category"), category));
+
+                List<Object> fields = new ArrayList<Object>();
+                for (int i = 0; i < type.fields.length; i += 2) {
+                    fields.add(descriptor.newInstance(type.fields[i + 1], type.fields[i]));
+                }
+
+                type.factory = create.invoke(null, annotations, fields);
+                type.eventType = factoryClass.getMethod("getEventType").invoke(type.factory);
+            }
+
+            Jfr jfr = new Jfr(factoryClass, eventClass);
+            LOG.ok("JFR events registered.");
+            return jfr;
+        } catch (Exception ex) {
+            LOG.ok("JFR is not available, Domino events won't be recorded.");
+        } catch (LinkageError ex) {
+            LOG.ok("JFR is not available, Domino events won't be recorded.");
+        }
+
+        return null;
+    }
+
+    public static boolean isAvailable() {
+        return JFR != null;
+    }
+
+    /**
+     * @return names of registered event types, empty if JFR isn't available
+     */
+    public static List<String> getEventNames() {
+        if (JFR == null) {
+            return Collections.emptyList();
+        }
+
+        List<String> names = new ArrayList<String>();
+        for (Type type : Type.values()) {
+            names.add(type.name);
+        }
+        return names;
+    }
+
+    /**
+     * Starts event if its type is enabled in running recording.
+     */
+    public static Event begin(Type type) {
+        if (JFR == null) {
+            return DISABLED;
+        }
+
+        try {
+            if (!(Boolean) JFR.isEnabled.invoke(type.eventType)) {
+                return DISABLED;
+            }
+
+            Object event = JFR.newEvent.invoke(type.factory);
+            JFR.begin.invoke(event);
+            return new Event(event);
+        } catch (Exception ex) {
+            return DISABLED;
+        }
+    }
+}
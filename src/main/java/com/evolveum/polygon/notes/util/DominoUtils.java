@@ -35,11 +35,8 @@ public final class DominoUtils {
     public static final Set<String> GROUP_ATTRIBUTE_NAMES;
 
     static {
-        Set<String> set = getAttributeNames(DominoAccountAttribute.class);
-        ACCOUNT_ATTRIBUTE_NAMES = Collections.unmodifiableSet(set);
-
-        set = getAttributeNames(DominoGroupAttribute.class);
-        GROUP_ATTRIBUTE_NAMES = Collections.unmodifiableSet(set);
+        ACCOUNT_ATTRIBUTE_NAMES = DominoObjectClassInfo.ACCOUNT.getAttributeNames();
+        GROUP_ATTRIBUTE_NAMES = DominoObjectClassInfo.GROUP.getAttributeNames();
     }
 
     private DominoUtils() {
@@ -55,27 +52,96 @@ public final class DominoUtils {
         return sb.toString();
     }
 
-    private static Set<String> getAttributeNames(Class<? extends DominoAttribute> clazz) {
-        Set<String> names = new HashSet<String>();
-
-        DominoAttribute[] enums = clazz.getEnumConstants();
-        for (DominoAttribute attr : enums) {
-            names.add(attr.getName());
+    private static Name createName(DominoConnection connection, String value) throws NotesException {
+        DominoOperationTrace.Span span = DominoOperationTrace.span("name.createName");
+        try {
+            return DominoOperationTrace.traced(Name.class, connection.getSession().createName(value), "name");
+        } finally {
+            span.end();
         }
-
-        return names;
     }
 
     public static String getCommon(DominoConnection connection, String value) throws NotesException {
-        return connection.getSession().createName(value).getCommon();
+        DominoFlightRecorder.Event event = DominoFlightRecorder.begin(DominoFlightRecorder.Type.NAME_CONVERSION);
+        try {
+            return createName(connection, value).getCommon();
+        } finally {
+            event.commit(value, "common");
+        }
     }
 
     public static String getAbbreviated(DominoConnection connection, String value) throws NotesException {
-        return connection.getSession().createName(value).getAbbreviated();
+        String abbreviated = abbreviate(value);
+        if (abbreviated != null) {
+            return abbreviated;
+        }
+
+        DominoFlightRecorder.Event event = DominoFlightRecorder.begin(DominoFlightRecorder.Type.NAME_CONVERSION);
+        try {
+            return createName(connection, value).getAbbreviated();
+        } finally {
+            event.commit(value, "abbreviated");
+        }
+    }
+
+    /**
+     * Abbreviates hierarchical name locally, e.g. "CN=John Doe/OU=Sales/O=Acme/C=US" to
+     * "John Doe/Sales/Acme/US". Names which are not canonical are returned unchanged.
+     *
+     * @param value name
+     * @return abbreviated name or null if name contains components other than CN, OU, O and C, which
+     * has to be abbreviated by Domino
+     */
+    public static String abbreviate(String value) {
+        if (value == null || value.indexOf('=') < 0) {
+            return value;
+        }
+
+        StringBuilder sb = new StringBuilder(value.length());
+        int start = 0;
+        while (start <= value.length()) {
+            int end = value.indexOf('/', start);
+            if (end < 0) {
+                end = value.length();
+            }
+
+            if (start > 0) {
+                sb.append('/');
+            }
+
+            if (end - start == 1 && value.charAt(start) == '*') {
+                // wildcard, e.g. */O=Acme
+                sb.append('*');
+                start = end + 1;
+                continue;
+            }
+
+            int eq = value.indexOf('=', start);
+            if (eq < 0 || eq > end) {
+                return null;
+            }
+
+            String key = value.substring(start, eq).trim();
+            if (!"CN".equalsIgnoreCase(key) && !"OU".equalsIgnoreCase(key)
+                    && !"O".equalsIgnoreCase(key) && !"C".equalsIgnoreCase(key)) {
+                return null;
+            }
+
+            sb.append(value, eq + 1, end);
+
+            start = end + 1;
+        }
+
+        return sb.toString();
     }
 
     public static String getCanonical(DominoConnection connection, String value) throws NotesException {
-        return connection.getSession().createName(value).getCanonical();
+        DominoFlightRecorder.Event event = DominoFlightRecorder.begin(DominoFlightRecorder.Type.NAME_CONVERSION);
+        try {
+            return createName(connection, value).getCanonical();
+        } finally {
+            event.commit(value, "canonical");
+        }
     }
 
     public static Set<String> createAttributesToGet(ObjectClass oclass, OperationOptions options) {
@@ -197,7 +263,7 @@ public final class DominoUtils {
             return defaultValue;
         }
 
-        return (T) opts.get(option);
+        return (T) opts.get(option.getName());
     }
 
     public static void handleException(NotesException ex, String message, Log log) {
@@ -236,8 +302,13 @@ public final class DominoUtils {
             return null;
         }
 
-        Name dominoName = connection.getSession().createName(name);
-        String org = dominoName.getOrganization();
+        String org;
+        DominoFlightRecorder.Event event = DominoFlightRecorder.begin(DominoFlightRecorder.Type.NAME_CONVERSION);
+        try {
+            org = createName(connection, name).getOrganization();
+        } finally {
+            event.commit(name, "organization");
+        }
         if (StringUtil.isNotBlank(org)) {
             org = StringUtils.join(new String[]{"/", org});
         }
@@ -257,16 +328,64 @@ public final class DominoUtils {
     }
 
     public static String getOrgUnit(DominoConnection connection, String fullName) throws NotesException {
-        Name name = connection.getSession().createName(fullName);
+        DominoFlightRecorder.Event event = DominoFlightRecorder.begin(DominoFlightRecorder.Type.NAME_CONVERSION);
+        try {
+            Name name = createName(connection, fullName);
 
-        return join(new String[]{name.getOrgUnit1(), name.getOrgUnit2(), name.getOrgUnit3(),
-                name.getOrgUnit4()}, "\\");
+            return join(new String[]{name.getOrgUnit1(), name.getOrgUnit2(), name.getOrgUnit3(),
+                    name.getOrgUnit4()}, "\\");
+        } finally {
+            event.commit(fullName, "orgUnit");
+        }
     }
 
     public static Attribute build(DominoAttribute attr, Object... values) {
         return AttributeBuilder.build(attr.getName(), values);
     }
 
+    /**
+     * Compares current item values with new value before it's written with
+     * {@link lotus.domino.Document#replaceItemValue(String, Object)}. Numbers are compared by value (Domino
+     * stores them as doubles), other values by equals, order of values is significant.
+     *
+     * @param current current item values, null or empty if item doesn't exist
+     * @param value   new value, single value or collection of values
+     * @return true if writing value wouldn't change item
+     */
+    public static boolean isItemValueEqual(List<?> current, Object value) {
+        List<?> values;
+        if (value == null) {
+            values = Collections.emptyList();
+        } else if (value instanceof Collection) {
+            values = new ArrayList<Object>((Collection<?>) value);
+        } else {
+            values = Collections.singletonList(value);
+        }
+
+        if (current == null || current.isEmpty()) {
+            return values.isEmpty() || (values.size() == 1 && "".equals(values.get(0)));
+        }
+
+        if (current.size() != values.size()) {
+            // empty text item is returned as one empty string
+            return values.isEmpty() && current.size() == 1 && "".equals(current.get(0));
+        }
+
+        for (int i = 0; i < values.size(); i++) {
+            Object currentValue = current.get(i);
+            Object newValue = values.get(i);
+            if (currentValue instanceof Number && newValue instanceof Number) {
+                if (((Number) currentValue).doubleValue() != ((Number) newValue).doubleValue()) {
+                    return false;
+                }
+            } else if (currentValue == null ? newValue != null : !currentValue.equals(newValue)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     public static Object getDominoValues(Attribute attr) {
         if (attr == null || attr.getValue() == null) {
             return null;
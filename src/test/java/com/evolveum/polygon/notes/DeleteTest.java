@@ -24,6 +24,9 @@ import org.identityconnectors.framework.common.objects.Uid;
 import org.testng.AssertJUnit;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class DeleteTest extends BaseDominoTest {
@@ -44,4 +47,26 @@ public class DeleteTest extends BaseDominoTest {
         obj = connector.getObject(ObjectClass.ACCOUNT, uid, null);
         AssertJUnit.assertNull(obj);
     }
+
+    @Test
+    public void deleteTracksAdminRequest() {
+        DominoConnector connector = getConnector();
+
+        Set<Attribute> attrs = CreateOpTest.createAttrsForJohnDoe(117);
+        final Uid uid = connector.create(ObjectClass.ACCOUNT, attrs, null);
+        AssertJUnit.assertNotNull(uid);
+
+        connector.delete(ObjectClass.ACCOUNT, uid, null);
+
+        List<String> noteIds = new ArrayList<String>();
+        for (DominoAdminRequest request : connector.getOutstandingAdminRequests()) {
+            if ("deleteUser".equals(request.getAction())) {
+                noteIds.add(request.getNoteId());
+            }
+        }
+        AssertJUnit.assertEquals(1, noteIds.size());
+
+        Map<String, DominoAdminRequestStatus> status = connector.getAdminRequestStatus(noteIds);
+        AssertJUnit.assertNotNull(status.get(noteIds.get(0)));
+    }
 }
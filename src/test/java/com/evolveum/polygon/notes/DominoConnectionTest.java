@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes;
+
+import lotus.domino.NotesError;
+import lotus.domino.NotesException;
+import org.identityconnectors.framework.common.exceptions.ConnectorIOException;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+public class DominoConnectionTest {
+
+    @Test
+    public void connectionErrors() {
+        AssertJUnit.assertTrue(DominoConnection.isConnectionError(
+                new NotesException(NotesError.NOTES_ERR_SESSION_CLOSED, "Session has been closed")));
+        AssertJUnit.assertTrue(DominoConnection.isConnectionError(new ConnectorIOException("Couldn't open session",
+                new NotesException(NotesError.NOTES_ERR_SESSION_CLOSED, "Session has been closed"))));
+
+        AssertJUnit.assertFalse(DominoConnection.isConnectionError(
+                new NotesException(NotesError.NOTES_ERR_BAD_UNID, "Invalid universal id")));
+        AssertJUnit.assertFalse(DominoConnection.isConnectionError(new ConnectorIOException("Couldn't open view")));
+        AssertJUnit.assertFalse(DominoConnection.isConnectionError(
+                new NotesException(0, "Invalid argument", new IllegalArgumentException())));
+        AssertJUnit.assertFalse(DominoConnection.isConnectionError(new IllegalStateException()));
+    }
+}
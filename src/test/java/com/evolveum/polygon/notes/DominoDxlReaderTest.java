@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes;
+
+import lotus.domino.Item;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+public class DominoDxlReaderTest {
+
+    private static final String DXL = "<?xml version='1.0' encoding='utf-8'?>"
+            + "<database xmlns='http://www.lotus.com/dxl' version='8.5' replicaid='C1257C5A003A4B2E'>"
+            + "<document form='Person'>"
+            + "<noteinfo noteid='8fa' unid='0B8E5B6A2C1D3E4F0B8E5B6A2C1D3E4F' sequence='3'>"
+            + "<created><datetime>20140115T103000,00+01</datetime></created>"
+            + "<modified><datetime dst='true'>20140116T120000,50Z</datetime></modified>"
+            + "</noteinfo>"
+            + "<item name='FullName' names='true' summary='true'>"
+            + "<textlist><text>CN=John Doe/O=Acme</text><text>John Doe</text></textlist></item>"
+            + "<item name='LastName' summary='true'><text>Doe</text></item>"
+            + "<item name='CheckPassword'><number>2</number></item>"
+            + "<item name='Body'><richtext><par>text</par></richtext></item>"
+            + "<item name='HTTPPasswordChangeDate'><datetime>20140101T000000,00+0530</datetime></item>"
+            + "</document>"
+            + "<document form='Group'>"
+            + "<noteinfo noteid='8fe' unid='1B8E5B6A2C1D3E4F0B8E5B6A2C1D3E4F'/>"
+            + "<item name='ListName'><text>Admins</text></item>"
+            + "<item name='Members' names='true'><textlist><text/></textlist></item>"
+            + "</document>"
+            + "</database>";
+
+    @Test
+    public void readDocuments() throws Exception {
+        List<DominoDocumentData> documents = DominoDxlReader.read(new StringReader(DXL));
+        AssertJUnit.assertEquals(2, documents.size());
+
+        DominoDocumentData person = documents.get(0);
+        AssertJUnit.assertEquals("0B8E5B6A2C1D3E4F0B8E5B6A2C1D3E4F", person.getUniversalId());
+        AssertJUnit.assertEquals(1389873600500L, person.getLastModified().getTime());
+
+        DominoDocumentData.ItemData fullName = person.getItem("fullname");
+        AssertJUnit.assertEquals(Item.NAMES, fullName.getType());
+        AssertJUnit.assertEquals(Arrays.<Object>asList("CN=John Doe/O=Acme", "John Doe"), fullName.getValues());
+
+        AssertJUnit.assertEquals("Doe", person.getFirstValue("LastName"));
+        AssertJUnit.assertEquals(Item.NUMBERS, person.getItem("CheckPassword").getType());
+        AssertJUnit.assertEquals(2.0, person.getFirstValue("CheckPassword"));
+
+        AssertJUnit.assertEquals(Item.RICHTEXT, person.getItem("Body").getType());
+        AssertJUnit.assertTrue(person.getItem("Body").getValues().isEmpty());
+
+        Date changed = (Date) person.getFirstValue("HTTPPasswordChangeDate");
+        AssertJUnit.assertEquals(1388514600000L, changed.getTime());
+
+        DominoDocumentData group = documents.get(1);
+        AssertJUnit.assertNull(group.getLastModified());
+        AssertJUnit.assertEquals("Admins", group.getFirstValue("ListName"));
+        AssertJUnit.assertEquals(Arrays.<Object>asList(""), group.getItem("Members").getValues());
+    }
+
+    @Test
+    public void readLineBreaks() throws Exception {
+        String dxl = "<database xmlns='http://www.lotus.com/dxl'><document form='Person'>"
+                + "<noteinfo unid='0B8E5B6A2C1D3E4F0B8E5B6A2C1D3E4F'/>"
+                + "<item name='StreetAddress'><text>Main Street 1<break/>Building B</text></item>"
+                + "<item name='Comment'><textlist><text><break/>second line</text><text>other</text></textlist></item>"
+                + "<item name='LastName'><text>Doe</text></item>"
+                + "</document></database>";
+
+        DominoDocumentData person = DominoDxlReader.read(new StringReader(dxl)).get(0);
+        AssertJUnit.assertEquals("Main Street 1\nBuilding B", person.getFirstValue("StreetAddress"));
+        AssertJUnit.assertEquals(Arrays.<Object>asList("\nsecond line", "other"),
+                person.getItem("Comment").getValues());
+        AssertJUnit.assertEquals("Doe", person.getFirstValue("LastName"));
+    }
+
+    @Test
+    public void parseDateTime() {
+        AssertJUnit.assertEquals(1389778200000L, DominoDxlReader.parseDateTime("20140115T103000,00+01").getTime());
+        AssertJUnit.assertEquals(1389781800000L, DominoDxlReader.parseDateTime("20140115T103000Z").getTime());
+        AssertJUnit.assertNotNull(DominoDxlReader.parseDateTime("20140115"));
+        AssertJUnit.assertNull(DominoDxlReader.parseDateTime("not a date"));
+    }
+
+    @Test
+    public void streamStopsWhenHandlerStops() throws Exception {
+        final List<String> unids = new ArrayList<String>();
+        DominoDxlReader.read(new StringReader(DXL), new DominoDxlReader.DocumentHandler() {
+
+            public boolean handle(DominoDocumentData document) {
+                unids.add(document.getUniversalId());
+                return false;
+            }
+        });
+
+        AssertJUnit.assertEquals(Arrays.asList("0B8E5B6A2C1D3E4F0B8E5B6A2C1D3E4F"), unids);
+    }
+
+    @Test
+    public void writtenDocumentsCanBeRead() throws Exception {
+        StringWriter dxl = new StringWriter();
+        DominoDxlWriter writer = new DominoDxlWriter(dxl);
+        List<DominoDocumentData.ItemData> items = new ArrayList<DominoDocumentData.ItemData>();
+        items.add(new DominoDocumentData.ItemData("ListName", Item.TEXT, Arrays.<Object>asList("Admins & Co")));
+        items.add(new DominoDocumentData.ItemData("Members", Item.NAMES,
+                Arrays.<Object>asList("CN=John Doe/O=Acme", "CN=Jane Doe/O=Acme")));
+        items.add(new DominoDocumentData.ItemData("GroupType", Item.TEXT, Arrays.<Object>asList(3)));
+        writer.writeDocument("Group", "1B8E5B6A2C1D3E4F0B8E5B6A2C1D3E4F", items);
+        writer.close();
+
+        List<DominoDocumentData> documents = DominoDxlReader.read(new StringReader(dxl.toString()));
+        AssertJUnit.assertEquals(1, documents.size());
+
+        DominoDocumentData group = documents.get(0);
+        AssertJUnit.assertEquals("1B8E5B6A2C1D3E4F0B8E5B6A2C1D3E4F", group.getUniversalId());
+        AssertJUnit.assertEquals("Admins & Co", group.getFirstValue("ListName"));
+        AssertJUnit.assertEquals(Item.NAMES, group.getItem("Members").getType());
+        AssertJUnit.assertEquals(2, group.getItem("Members").getValues().size());
+        AssertJUnit.assertEquals(3.0, group.getFirstValue("GroupType"));
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes;
+
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+public class DominoExecutorTest {
+
+    @Test
+    public void resultsKeepTaskOrder() throws Exception {
+        DominoExecutor executor = new DominoExecutor(new DominoConnection(new DominoConfiguration()), 4);
+        try {
+            List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+            for (int i = 0; i < 20; i++) {
+                final int value = i;
+                tasks.add(new Callable<Integer>() {
+
+                    public Integer call() throws Exception {
+                        Thread.sleep(20 - value);
+                        return value;
+                    }
+                });
+            }
+
+            List<Integer> results = executor.invokeAll(tasks);
+            AssertJUnit.assertEquals(20, results.size());
+            for (int i = 0; i < 20; i++) {
+                AssertJUnit.assertEquals(i, results.get(i).intValue());
+            }
+        } finally {
+            executor.dispose();
+        }
+    }
+
+    @Test
+    public void sequentialWithoutParallelism() throws Exception {
+        DominoExecutor executor = new DominoExecutor(new DominoConnection(new DominoConfiguration()), 1);
+        final Thread caller = Thread.currentThread();
+
+        List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>();
+        for (int i = 0; i < 3; i++) {
+            tasks.add(new Callable<Boolean>() {
+
+                public Boolean call() throws Exception {
+                    return Thread.currentThread() == caller;
+                }
+            });
+        }
+
+        AssertJUnit.assertFalse(executor.isParallel());
+        for (Boolean sameThread : executor.invokeAll(tasks)) {
+            AssertJUnit.assertTrue(sameThread);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes;
+
+import com.evolveum.polygon.notes.util.DominoFlightRecorder;
+import org.testng.AssertJUnit;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+public class DominoFlightRecorderTest {
+
+    @Test
+    public void eventIsDisabledWithoutRecording() {
+        DominoFlightRecorder.Event event = DominoFlightRecorder.begin(DominoFlightRecorder.Type.SEARCH);
+        AssertJUnit.assertFalse(event.isEnabled());
+        event.commit("(form='Person')", 10);
+    }
+
+    @Test
+    public void eventIsEnabledInRecording() throws Exception {
+        if (!DominoFlightRecorder.isAvailable()) {
+            throw new SkipException("JFR is not available.");
+        }
+        AssertJUnit.assertTrue(DominoFlightRecorder.getEventNames()
+                .contains("com.evolveum.polygon.notes.DominoSearch"));
+
+        // JFR API is accessed reflectively, connector is compiled for JVMs without it
+        Class<?> recordingClass = Class.forName("jdk.jfr.Recording");
+        Object recording = recordingClass.newInstance();
+        recordingClass.getMethod("enable", String.class)
+                .invoke(recording, "com.evolveum.polygon.notes.DominoSearch");
+        recordingClass.getMethod("start").invoke(recording);
+        try {
+            DominoFlightRecorder.Event event = DominoFlightRecorder.begin(DominoFlightRecorder.Type.SEARCH);
+            AssertJUnit.assertTrue(event.isEnabled());
+            event.end();
+            event.commit("(form='Person')", 10);
+        } finally {
+            recordingClass.getMethod("stop").invoke(recording);
+            recordingClass.getMethod("close").invoke(recording);
+        }
+    }
+}
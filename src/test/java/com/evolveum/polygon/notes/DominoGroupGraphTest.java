@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes;
+
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Set;
+
+public class DominoGroupGraphTest {
+
+    private static final String JOHN = "CN=John Doe/O=example";
+    private static final String JANE = "CN=Jane Doe/O=example";
+
+    @Test
+    public void nestedGroups() {
+        DominoGroupGraph graph = new DominoGroupGraph(0);
+        graph.putGroup("1", Arrays.asList("Sales"), Arrays.asList(JOHN));
+        graph.putGroup("2", Arrays.asList("Staff", "All Staff"), Arrays.asList("sales", JANE));
+        graph.putGroup("3", Arrays.asList("Everyone"), Arrays.asList("All Staff"));
+
+        Set<String> groups = graph.getEffectiveGroups(JOHN);
+        AssertJUnit.assertEquals(3, groups.size());
+        AssertJUnit.assertTrue(groups.containsAll(Arrays.asList("Sales", "Staff", "Everyone")));
+
+        Set<String> members = graph.getEffectiveMembers("Everyone");
+        AssertJUnit.assertEquals(2, members.size());
+        AssertJUnit.assertTrue(members.containsAll(Arrays.asList(JOHN, JANE)));
+    }
+
+    @Test
+    public void cycleAndRemove() {
+        DominoGroupGraph graph = new DominoGroupGraph(0);
+        graph.putGroup("1", Arrays.asList("A"), Arrays.asList("B", JOHN));
+        graph.putGroup("2", Arrays.asList("B"), Arrays.asList("A"));
+
+        AssertJUnit.assertEquals(2, graph.getEffectiveGroups(JOHN).size());
+        AssertJUnit.assertEquals(1, graph.getEffectiveMembers("B").size());
+
+        graph.removeGroup("B");
+        AssertJUnit.assertEquals(1, graph.getEffectiveGroups(JOHN).size());
+        AssertJUnit.assertEquals(0, graph.getEffectiveMembers("B").size());
+    }
+
+    @Test
+    public void renameGroup() {
+        DominoGroupGraph graph = new DominoGroupGraph(0);
+        graph.putGroup("1", Arrays.asList("Sales"), Arrays.asList(JOHN));
+        graph.putGroup("1", Arrays.asList("Marketing"), Arrays.asList(JOHN));
+
+        Set<String> groups = graph.getEffectiveGroups(JOHN);
+        AssertJUnit.assertEquals(1, groups.size());
+        AssertJUnit.assertTrue(groups.contains("Marketing"));
+    }
+}
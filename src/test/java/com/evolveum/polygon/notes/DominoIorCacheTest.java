@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes;
+
+import lotus.domino.NotesException;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DominoIorCacheTest {
+
+    private static class CountingIorCache extends DominoIorCache {
+
+        private final AtomicInteger fetches = new AtomicInteger();
+
+        @Override
+        protected String fetchIor(String host) throws NotesException {
+            return "IOR:" + host + ":" + fetches.incrementAndGet();
+        }
+    }
+
+    @Test
+    public void cachedIorIsReused() throws Exception {
+        CountingIorCache cache = new CountingIorCache();
+
+        AssertJUnit.assertEquals("IOR:domino:1", cache.getIor("domino", 60000));
+        AssertJUnit.assertEquals("IOR:domino:1", cache.getIor("domino", 60000));
+        AssertJUnit.assertEquals(1, cache.fetches.get());
+
+        AssertJUnit.assertEquals("IOR:other:2", cache.getIor("other", 60000));
+    }
+
+    @Test
+    public void staleIorIsRefreshedInBackground() throws Exception {
+        CountingIorCache cache = new CountingIorCache();
+        cache.getIor("domino", 60000);
+
+        // stale IOR is returned while fresh one is fetched
+        AssertJUnit.assertEquals("IOR:domino:1", cache.getIor("domino", 0));
+
+        for (int i = 0; i < 50 && cache.fetches.get() < 2; i++) {
+            Thread.sleep(20);
+        }
+        AssertJUnit.assertEquals("IOR:domino:2", cache.getIor("domino", 60000));
+    }
+}
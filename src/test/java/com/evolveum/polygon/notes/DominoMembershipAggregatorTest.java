@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes;
+
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+public class DominoMembershipAggregatorTest {
+
+    @Test
+    public void aggregateAddsPerGroup() {
+        DominoMembershipAggregator aggregator = new DominoMembershipAggregator(0);
+        aggregator.add("Sales", "CN=John Doe/O=example");
+        aggregator.add("Sales", "CN=Jane Doe/O=example");
+        aggregator.add("Admins", "CN=John Doe/O=example");
+
+        AssertJUnit.assertTrue(aggregator.isFlushDue());
+
+        Map<String, Set<String>> adds = aggregator.drainAdds();
+        AssertJUnit.assertEquals(2, adds.size());
+        AssertJUnit.assertEquals(2, adds.get("Sales").size());
+        AssertJUnit.assertEquals(1, adds.get("Admins").size());
+
+        AssertJUnit.assertTrue(aggregator.drainRemoves().isEmpty());
+        AssertJUnit.assertTrue(aggregator.isEmpty());
+    }
+
+    @Test
+    public void removeCancelsPendingAdd() {
+        DominoMembershipAggregator aggregator = new DominoMembershipAggregator(0);
+        aggregator.add("Sales", "CN=John Doe/O=example");
+        aggregator.remove("Sales", "CN=John Doe/O=example");
+
+        AssertJUnit.assertTrue(aggregator.isEmpty());
+        AssertJUnit.assertFalse(aggregator.isFlushDue());
+    }
+
+    @Test
+    public void flushWaitsForInterval() {
+        DominoMembershipAggregator aggregator = new DominoMembershipAggregator(60000);
+        aggregator.remove("Sales", "CN=John Doe/O=example");
+
+        AssertJUnit.assertFalse(aggregator.isEmpty());
+        AssertJUnit.assertFalse(aggregator.isFlushDue());
+        AssertJUnit.assertEquals(1, aggregator.drainRemoves().size());
+    }
+
+    @Test
+    public void restoreCancelsAgainstNewerChanges() {
+        DominoMembershipAggregator aggregator = new DominoMembershipAggregator(0);
+        aggregator.add("Sales", "CN=John Doe/O=example");
+        aggregator.add("Sales", "CN=Jane Doe/O=example");
+        aggregator.remove("Support", "CN=John Doe/O=example");
+        Map<String, Set<String>> adds = aggregator.drainAdds();
+        Map<String, Set<String>> removes = aggregator.drainRemoves();
+
+        // changes made while flush was running
+        aggregator.remove("Sales", "CN=Jane Doe/O=example");
+        aggregator.add("Support", "CN=John Doe/O=example");
+
+        aggregator.restore(adds, removes);
+
+        adds = aggregator.drainAdds();
+        AssertJUnit.assertEquals(1, adds.size());
+        AssertJUnit.assertEquals(1, adds.get("Sales").size());
+        AssertJUnit.assertTrue(adds.get("Sales").contains("CN=John Doe/O=example"));
+        AssertJUnit.assertTrue(aggregator.drainRemoves().isEmpty());
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes;
+
+import org.identityconnectors.framework.common.objects.ObjectClass;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+public class DominoObjectClassInfoTest {
+
+    @Test
+    public void attributeMetadata() {
+        DominoObjectClassInfo info = DominoObjectClassInfo.getInfo(ObjectClass.ACCOUNT);
+        AssertJUnit.assertSame(DominoObjectClassInfo.ACCOUNT, info);
+        AssertJUnit.assertSame(DominoAccountAttribute.FULL_NAME, info.getNameAttribute());
+        AssertJUnit.assertSame(DominoAccountAttribute.MAIL_SERVER, info.getAttribute("MailServer"));
+        AssertJUnit.assertNull(info.getAttribute("Members"));
+
+        AssertJUnit.assertEquals(DominoValueConverter.INTEGER,
+                info.getConverter(DominoAccountAttribute.PASSWORD_CHANGE_INTERVAL));
+        AssertJUnit.assertEquals(DominoValueConverter.DEFAULT, info.getConverter(DominoAccountAttribute.CITY));
+
+        info = DominoObjectClassInfo.getInfo(ObjectClass.GROUP);
+        AssertJUnit.assertSame(DominoGroupAttribute.LIST_NAME, info.getNameAttribute());
+        AssertJUnit.assertEquals(DominoValueConverter.ABBREVIATED_NAME,
+                info.getConverter(DominoGroupAttribute.MEMBERS));
+    }
+
+    @Test
+    public void attributesToGet() {
+        DominoAttributesToGet attrs = new DominoAttributesToGet(DominoObjectClassInfo.GROUP,
+                new HashSet<String>(Arrays.asList("Members", "ListName", "$Custom")));
+
+        AssertJUnit.assertTrue(attrs.isWanted(DominoGroupAttribute.MEMBERS));
+        AssertJUnit.assertTrue(attrs.isWanted(DominoGroupAttribute.LIST_NAME));
+        AssertJUnit.assertFalse(attrs.isWanted(DominoGroupAttribute.MEMBER_PEOPLE));
+        AssertJUnit.assertTrue(attrs.isOtherWanted("$Custom"));
+        AssertJUnit.assertFalse(attrs.isOtherWanted("Members"));
+    }
+
+    @Test
+    public void maxValues() {
+        DominoAttributesToGet attrs = new DominoAttributesToGet(DominoObjectClassInfo.ACCOUNT,
+                new HashSet<String>(Arrays.asList("GroupList")), 2);
+        AssertJUnit.assertTrue(attrs.isBelowMaxValues(1));
+        AssertJUnit.assertFalse(attrs.isBelowMaxValues(2));
+
+        attrs = new DominoAttributesToGet(DominoObjectClassInfo.ACCOUNT, new HashSet<String>());
+        AssertJUnit.assertEquals(-1, attrs.getMaxValues());
+        AssertJUnit.assertTrue(attrs.isBelowMaxValues(100000));
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes;
+
+import org.identityconnectors.common.logging.Log;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.Callable;
+
+public class DominoOperationTraceTest {
+
+    private static final Log LOG = Log.getLog(DominoOperationTraceTest.class);
+
+    @Test
+    public void spansAreAggregatedByName() {
+        DominoOperationTrace trace = DominoOperationTrace.start("update __ACCOUNT__", 0);
+        for (int i = 0; i < 3; i++) {
+            DominoOperationTrace.span("search").end();
+        }
+        DominoOperationTrace.span("document.save").end();
+
+        AssertJUnit.assertSame(trace, DominoOperationTrace.current());
+        String breakdown = trace.getBreakdown();
+        AssertJUnit.assertTrue(breakdown, breakdown.contains("search count=3"));
+        AssertJUnit.assertTrue(breakdown, breakdown.contains("document.save count=1"));
+
+        trace.finish(LOG);
+        AssertJUnit.assertNull(DominoOperationTrace.current());
+    }
+
+    @Test
+    public void nestedOperationRecordsToOuterTrace() {
+        DominoOperationTrace outer = DominoOperationTrace.start("executeQuery __ACCOUNT__", 0);
+        DominoOperationTrace inner = DominoOperationTrace.start("count __ACCOUNT__", 0);
+        DominoOperationTrace.span("search").end();
+        inner.finish(LOG);
+
+        AssertJUnit.assertSame(outer, DominoOperationTrace.current());
+        AssertJUnit.assertTrue(outer.getBreakdown().contains("search count=1"));
+        outer.finish(LOG);
+    }
+
+    @Test
+    public void tracedProxyRecordsCalls() throws Exception {
+        Callable<String> target = new Callable<String>() {
+
+            public String call() {
+                return "result";
+            }
+        };
+        AssertJUnit.assertSame(target, DominoOperationTrace.traced(Callable.class, target, "task"));
+
+        DominoOperationTrace trace = DominoOperationTrace.start("create __GROUP__", 1);
+        Callable<String> traced = DominoOperationTrace.traced(Callable.class, target, "task");
+        AssertJUnit.assertEquals("result", traced.call());
+        AssertJUnit.assertTrue(trace.getBreakdown().contains("task.call count=1"));
+        trace.finish(LOG);
+    }
+}
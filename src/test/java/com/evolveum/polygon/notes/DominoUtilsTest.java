@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes;
+
+import com.evolveum.polygon.notes.util.DominoUtils;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Vector;
+
+public class DominoUtilsTest {
+
+    @Test
+    public void abbreviateLocally() {
+        AssertJUnit.assertEquals("John Doe/Sales/Acme/US", DominoUtils.abbreviate("CN=John Doe/OU=Sales/O=Acme/C=US"));
+        AssertJUnit.assertEquals("Acme", DominoUtils.abbreviate("O=Acme"));
+        AssertJUnit.assertEquals("*/Acme", DominoUtils.abbreviate("*/O=Acme"));
+        AssertJUnit.assertEquals("John Doe/Acme", DominoUtils.abbreviate("John Doe/Acme"));
+        AssertJUnit.assertEquals("LocalDomainServers", DominoUtils.abbreviate("LocalDomainServers"));
+    }
+
+    @Test
+    public void abbreviateUnknownComponents() {
+        AssertJUnit.assertNull(DominoUtils.abbreviate("CN=John Doe/G=John/O=Acme"));
+        AssertJUnit.assertNull(DominoUtils.abbreviate("CN=John Doe/O=Acme/"));
+    }
+
+    @Test
+    public void itemValueEquality() {
+        Vector<Object> current = new Vector<Object>(Arrays.asList(30.0));
+        AssertJUnit.assertTrue(DominoUtils.isItemValueEqual(current, 30));
+        AssertJUnit.assertFalse(DominoUtils.isItemValueEqual(current, 31));
+
+        current = new Vector<Object>(Arrays.asList("a", "b"));
+        AssertJUnit.assertTrue(DominoUtils.isItemValueEqual(current, new Vector<Object>(Arrays.asList("a", "b"))));
+        AssertJUnit.assertFalse(DominoUtils.isItemValueEqual(current, new Vector<Object>(Arrays.asList("b", "a"))));
+
+        AssertJUnit.assertTrue(DominoUtils.isItemValueEqual(new Vector<Object>(), null));
+        AssertJUnit.assertTrue(DominoUtils.isItemValueEqual(new Vector<Object>(Arrays.asList("")),
+                new Vector<Object>()));
+        AssertJUnit.assertFalse(DominoUtils.isItemValueEqual(new Vector<Object>(), "a"));
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes;
+
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+
+public class DominoWriteBufferTest {
+
+    @Test
+    public void coalesceWritesPerDocument() {
+        DominoWriteBuffer buffer = new DominoWriteBuffer(60000);
+        AssertJUnit.assertTrue(buffer.isEnabled());
+
+        buffer.put("unid1", "Policy", "/Default");
+        buffer.put("unid1", "Department", "Sales");
+        buffer.put("unid1", "Policy", "/Staff");
+        buffer.put("unid2", "Policy", "/Staff");
+        buffer.put("unid3", "Policy", "/Staff");
+        buffer.discard("unid3");
+
+        AssertJUnit.assertFalse(buffer.isFlushDue());
+
+        Map<String, Map<String, Object>> writes = buffer.drain();
+        AssertJUnit.assertEquals(2, writes.size());
+        AssertJUnit.assertEquals(2, writes.get("unid1").size());
+        AssertJUnit.assertEquals("/Staff", writes.get("unid1").get("Policy"));
+        AssertJUnit.assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void restoreKeepsNewerWrites() {
+        DominoWriteBuffer buffer = new DominoWriteBuffer(60000);
+        buffer.put("unid1", "Policy", "/Default");
+        buffer.put("unid1", "Department", "Sales");
+
+        Map<String, Map<String, Object>> writes = buffer.drain();
+        buffer.put("unid1", "Policy", "/Staff");
+        buffer.restore(writes);
+
+        Map<String, Object> items = buffer.take("unid1");
+        AssertJUnit.assertEquals("/Staff", items.get("Policy"));
+        AssertJUnit.assertEquals("Sales", items.get("Department"));
+    }
+
+    @Test
+    public void disabledWithoutInterval() {
+        AssertJUnit.assertFalse(new DominoWriteBuffer(0).isEnabled());
+    }
+}
@@ -25,6 +25,8 @@ import org.testng.AssertJUnit;
 import org.testng.annotations.Test;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 
 public class SearchOpTest extends BaseDominoTest {
@@ -130,4 +132,103 @@ public class SearchOpTest extends BaseDominoTest {
 
         System.out.println(object);
     }
+
+    @Test
+    public void parallelAccountSearch() throws Exception {
+        final DominoConnector connector = getConnector();
+        final int expected = connector.count(ObjectClass.ACCOUNT, null);
+
+        final List<List<String>> results = Collections.synchronizedList(new ArrayList<List<String>>());
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread() {
+
+                @Override
+                public void run() {
+                    final List<String> uids = new ArrayList<String>();
+                    try {
+                        connector.executeQuery(ObjectClass.ACCOUNT, null, new ResultsHandler() {
+                            public boolean handle(ConnectorObject obj) {
+                                uids.add(obj.getUid().getUidValue());
+                                return true;
+                            }
+                        }, null);
+                        results.add(uids);
+                    } catch (Throwable t) {
+                        errors.add(t);
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        AssertJUnit.assertTrue(errors.toString(), errors.isEmpty());
+        AssertJUnit.assertEquals(4, results.size());
+        for (List<String> uids : results) {
+            AssertJUnit.assertEquals(expected, uids.size());
+            AssertJUnit.assertEquals("Search returned duplicates", uids.size(), new HashSet<String>(uids).size());
+        }
+    }
+
+    @Test
+    public void countAccounts() throws Exception {
+        ConnectorFacade connector = getConnectorFacade();
+
+        final List<ConnectorObject> objects = new ArrayList<ConnectorObject>();
+        ResultsHandler handler = new ResultsHandler() {
+            public boolean handle(ConnectorObject obj) {
+                objects.add(obj);
+                return true;
+            }
+        };
+
+        OperationOptionsBuilder builder = new OperationOptionsBuilder();
+        builder.setOption(DominoOperationOption.COUNT_ONLY.getName(), Boolean.TRUE);
+        SearchResult result = connector.search(ObjectClass.ACCOUNT, null, handler, builder.build());
+
+        AssertJUnit.assertEquals(0, objects.size());
+        AssertJUnit.assertNotNull(result);
+        AssertJUnit.assertTrue(result.getRemainingPagedResults() > 0);
+    }
+
+    @Test
+    public void sortedPagedAccountSearch() throws Exception {
+        ConnectorFacade connector = getConnectorFacade();
+
+        final List<ConnectorObject> objects = new ArrayList<ConnectorObject>();
+        ResultsHandler handler = new ResultsHandler() {
+            public boolean handle(ConnectorObject obj) {
+                objects.add(obj);
+                return true;
+            }
+        };
+
+        connector.search(ObjectClass.ACCOUNT, null, handler, null);
+        int total = objects.size();
+        AssertJUnit.assertTrue(total > 0);
+        objects.clear();
+
+        OperationOptionsBuilder builder = new OperationOptionsBuilder();
+        builder.setSortKeys(new SortKey(DominoAccountAttribute.FULL_NAME.getName(), false));
+        builder.setPagedResultsOffset(1);
+        builder.setPageSize(5);
+        SearchResult result = connector.search(ObjectClass.ACCOUNT, null, handler, builder.build());
+
+        // sort view has entry for every FullName value, page and remaining count are in accounts
+        AssertJUnit.assertEquals(Math.min(5, total), objects.size());
+        AssertJUnit.assertNotNull(result);
+        AssertJUnit.assertEquals(total - objects.size(), result.getRemainingPagedResults());
+        for (int i = 1; i < objects.size(); i++) {
+            String previous = objects.get(i - 1).getName().getNameValue();
+            String current = objects.get(i).getName().getNameValue();
+            AssertJUnit.assertTrue(previous.compareToIgnoreCase(current) >= 0);
+        }
+    }
 }
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes.fake;
+
+import com.evolveum.polygon.notes.DominoAccountAttribute;
+import com.evolveum.polygon.notes.DominoConfiguration;
+import com.evolveum.polygon.notes.DominoConnector;
+import org.identityconnectors.framework.common.objects.Attribute;
+import org.identityconnectors.framework.common.objects.AttributeBuilder;
+import org.identityconnectors.framework.common.objects.AttributeUtil;
+import org.identityconnectors.framework.common.objects.ConnectorObject;
+import org.identityconnectors.framework.common.objects.Name;
+import org.identityconnectors.framework.common.objects.ObjectClass;
+import org.identityconnectors.framework.common.objects.OperationOptions;
+import org.identityconnectors.framework.common.objects.OperationOptionsBuilder;
+import org.identityconnectors.framework.common.objects.ResultsHandler;
+import org.identityconnectors.framework.common.objects.Uid;
+import org.testng.AssertJUnit;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Buffered document writes against fake Domino: they must not be visible as stale data to reads and
+ * must not be kept by idle connector.
+ */
+public class DominoBufferedWriteTest {
+
+    private static final String LOCATION = DominoAccountAttribute.LOCATION.getName();
+
+    private FakeDomino domino;
+    private DominoConnector connector;
+    private List<String> unids;
+
+    @BeforeMethod
+    public void beforeMethod() {
+        domino = new FakeDomino();
+        unids = domino.addDirectory(10, 3, 1, new Random(1));
+
+        DominoConfiguration config = FakeDominoConnector.createConfiguration();
+        config.setDocumentWriteFlushInterval(1);
+        connector = new FakeDominoConnector(domino);
+        connector.init(config);
+    }
+
+    @AfterMethod
+    public void afterMethod() {
+        connector.dispose();
+    }
+
+    private OperationOptions options() {
+        return new OperationOptionsBuilder().build();
+    }
+
+    private void updateLocation(String value) {
+        updateLocation(0, value);
+    }
+
+    private void updateLocation(int index, String value) {
+        connector.update(ObjectClass.ACCOUNT, new Uid(unids.get(index)),
+                Collections.singleton(AttributeBuilder.build(LOCATION, value)), options());
+    }
+
+    private Object getStoredLocation() {
+        return getStoredLocation(0);
+    }
+
+    private Object getStoredLocation(int index) {
+        List<Object> values = domino.get(unids.get(index)).getValues(LOCATION);
+        return values.isEmpty() ? null : values.get(0);
+    }
+
+    private List<Object> getMembers(String group) {
+        return domino.findByItem("ListName", group).getValues("Members");
+    }
+
+    private void search() {
+        connector.executeQuery(ObjectClass.ACCOUNT, null, new ResultsHandler() {
+
+            public boolean handle(ConnectorObject object) {
+                return true;
+            }
+        }, options());
+    }
+
+    @Test
+    public void readFlushesPendingWrites() {
+        updateLocation("Office 1");
+        AssertJUnit.assertNull(getStoredLocation());
+
+        final List<ConnectorObject> objects = new ArrayList<ConnectorObject>();
+        OperationOptions options = new OperationOptionsBuilder().setAttributesToGet(LOCATION).build();
+        connector.executeQuery(ObjectClass.ACCOUNT, "(NoteID=\"" + unids.get(0) + "\")", new ResultsHandler() {
+
+            public boolean handle(ConnectorObject object) {
+                objects.add(object);
+                return true;
+            }
+        }, options);
+
+        AssertJUnit.assertEquals("Office 1", AttributeUtil.getSingleValue(objects.get(0).getAttributeByName(LOCATION)));
+    }
+
+    @Test
+    public void idleConnectorFlushesWrites() throws Exception {
+        updateLocation("Office 2");
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (getStoredLocation() == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        AssertJUnit.assertEquals("Office 2", getStoredLocation());
+    }
+
+    @Test
+    public void groupRenameIsWrittenNow() {
+        String oldName = FakeDomino.getGroupName(0);
+        Uid uid = connector.update(ObjectClass.GROUP, new Uid(oldName),
+                Collections.<Attribute>singleton(new Name("Renamed Group")), options());
+
+        AssertJUnit.assertEquals("Renamed Group", uid.getUidValue());
+        AssertJUnit.assertNotNull(domino.findByItem("ListName", "Renamed Group"));
+        AssertJUnit.assertNull(domino.findByItem("ListName", oldName));
+    }
+
+    @Test
+    public void failedFlushKeepsPendingWrites() {
+        updateLocation(0, "Office 1");
+        updateLocation(1, "Office 2");
+        updateLocation(2, "Office 3");
+
+        domino.failCall("Document.save", 2);
+        try {
+            search();
+            AssertJUnit.fail("Flush should fail");
+        } catch (RuntimeException ex) {
+            // expected, save of second document failed
+        }
+        AssertJUnit.assertEquals("Office 1", getStoredLocation(0));
+        AssertJUnit.assertNull(getStoredLocation(1));
+        AssertJUnit.assertNull(getStoredLocation(2));
+
+        search();
+        AssertJUnit.assertEquals("Office 2", getStoredLocation(1));
+        AssertJUnit.assertEquals("Office 3", getStoredLocation(2));
+    }
+
+    @Test
+    public void failedFlushKeepsPendingMembershipChanges() {
+        List<String> groups = Arrays.asList("Group A", "Group B", "Group C");
+        for (String group : groups) {
+            domino.addGroup(group, Collections.<String>emptyList(), "0");
+        }
+        Object member = domino.get(unids.get(0)).getValues("FullName").get(0);
+
+        domino.failCall("AdministrationProcess.addGroupMembers", 2);
+        try {
+            connector.addAttributeValues(ObjectClass.ACCOUNT, new Uid(unids.get(0)), Collections.singleton(
+                    AttributeBuilder.build(DominoAccountAttribute.GROUP_LIST.getName(), groups)), options());
+            AssertJUnit.fail("Flush should fail");
+        } catch (RuntimeException ex) {
+            // expected, AdminP request for second group failed
+        }
+        AssertJUnit.assertTrue(getMembers("Group A").contains(member));
+        AssertJUnit.assertTrue(getMembers("Group B").isEmpty());
+        AssertJUnit.assertTrue(getMembers("Group C").isEmpty());
+
+        search();
+        AssertJUnit.assertTrue(getMembers("Group B").contains(member));
+        AssertJUnit.assertTrue(getMembers("Group C").contains(member));
+    }
+}
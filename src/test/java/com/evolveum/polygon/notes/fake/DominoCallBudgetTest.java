@@ -0,0 +1,383 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes.fake;
+
+import com.evolveum.polygon.notes.DominoAccountAttribute;
+import com.evolveum.polygon.notes.DominoConfiguration;
+import com.evolveum.polygon.notes.DominoConnector;
+import com.evolveum.polygon.notes.DominoOperationOption;
+import org.identityconnectors.framework.common.objects.Attribute;
+import org.identityconnectors.framework.common.objects.AttributeBuilder;
+import org.identityconnectors.framework.common.objects.AttributeUtil;
+import org.identityconnectors.framework.common.objects.ConnectorObject;
+import org.identityconnectors.framework.common.objects.Name;
+import org.identityconnectors.framework.common.objects.ObjectClass;
+import org.identityconnectors.framework.common.objects.OperationOptions;
+import org.identityconnectors.framework.common.objects.OperationOptionsBuilder;
+import org.identityconnectors.framework.common.objects.OperationalAttributes;
+import org.identityconnectors.framework.common.objects.ResultsHandler;
+import org.identityconnectors.framework.common.objects.SearchResult;
+import org.identityconnectors.framework.common.objects.SortKey;
+import org.identityconnectors.framework.common.objects.Uid;
+import org.identityconnectors.framework.common.objects.filter.EqualsFilter;
+import org.identityconnectors.framework.common.objects.filter.Filter;
+import org.identityconnectors.framework.spi.SearchResultsHandler;
+import org.testng.AssertJUnit;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Checks number of remote calls of connector operations against fake Domino, so that N+1 regressions
+ * are caught without server. Budgets are upper limits, operation may use fewer calls.
+ */
+public class DominoCallBudgetTest {
+
+    private static final int ACCOUNTS = 200;
+    private static final int GROUPS = 20;
+    private static final int FAN_OUT = 3;
+
+    private FakeDomino domino;
+    private DominoConnector connector;
+    private List<String> unids;
+
+    @BeforeMethod
+    public void beforeMethod() {
+        domino = new FakeDomino();
+        unids = domino.addDirectory(ACCOUNTS, GROUPS, FAN_OUT, new Random(1));
+
+        connector = new FakeDominoConnector(domino);
+        connector.init(FakeDominoConnector.createConfiguration());
+        domino.resetCallCounts();
+    }
+
+    @AfterMethod
+    public void afterMethod() {
+        connector.dispose();
+    }
+
+    private void assertCalls(String key, long budget) {
+        long calls = domino.getCallCount(key);
+        AssertJUnit.assertTrue(key + " was called " + calls + " times, budget is " + budget + ", all calls: "
+                + domino.getCallCounts(), calls <= budget);
+    }
+
+    private List<ConnectorObject> search(Filter filter, String... attrsToGet) {
+        OperationOptionsBuilder builder = new OperationOptionsBuilder();
+        if (attrsToGet.length > 0) {
+            builder.setAttributesToGet(attrsToGet);
+        }
+        OperationOptions options = builder.build();
+
+        final List<ConnectorObject> objects = new ArrayList<ConnectorObject>();
+        ResultsHandler handler = new ResultsHandler() {
+
+            public boolean handle(ConnectorObject object) {
+                objects.add(object);
+                return true;
+            }
+        };
+
+        List<String> queries = filter != null
+                ? connector.createFilterTranslator(ObjectClass.ACCOUNT, options).translate(filter)
+                : Collections.<String>singletonList(null);
+        for (String query : queries) {
+            connector.executeQuery(ObjectClass.ACCOUNT, query, handler, options);
+        }
+        return objects;
+    }
+
+    private OperationOptions options() {
+        return new OperationOptionsBuilder().build();
+    }
+
+    @Test
+    public void searchWithoutGroupList() {
+        List<ConnectorObject> objects = search(null, Name.NAME, DominoAccountAttribute.LAST_NAME.getName());
+        AssertJUnit.assertEquals(ACCOUNTS, objects.size());
+
+        assertCalls("Database.search", 1);
+        assertCalls("Database.getDocumentByUNID", 0);
+        assertCalls("Document.getItems", ACCOUNTS);
+        // organization and organizational unit of name
+        assertCalls("Session.createName", 2 * ACCOUNTS);
+    }
+
+    @Test
+    public void searchIdentifiersOnly() {
+        List<ConnectorObject> objects = search(null, Uid.NAME, Name.NAME);
+        AssertJUnit.assertEquals(ACCOUNTS, objects.size());
+        AssertJUnit.assertEquals(domino.getPersonName(unids.get(0)), objects.get(0).getName().getNameValue());
+
+        // UNID and name item only
+        assertCalls("Database.search", 1);
+        assertCalls("Document.getItemValue", ACCOUNTS);
+        assertCalls("Document.getItems", 0);
+        assertCalls("Session.createName", 0);
+    }
+
+    @Test
+    public void getByUidIdentifiersOnly() {
+        List<ConnectorObject> objects = search(new EqualsFilter(new Uid(unids.get(0))), Uid.NAME, Name.NAME);
+        AssertJUnit.assertEquals(1, objects.size());
+        AssertJUnit.assertEquals(unids.get(0), objects.get(0).getUid().getUidValue());
+
+        assertCalls("Database.getDocumentByUNID", 1);
+        assertCalls("Database.search", 0);
+        assertCalls("Document.getItemValue", 1);
+    }
+
+    @Test
+    public void searchWithGroupList() {
+        List<ConnectorObject> objects = search(null, Name.NAME, DominoAccountAttribute.GROUP_LIST.getName());
+        AssertJUnit.assertEquals(ACCOUNTS, objects.size());
+
+        // deny groups are loaded once, one search of groups per account
+        assertCalls("Database.search", 2 + ACCOUNTS);
+        assertCalls("Database.getDocumentByUNID", 0);
+    }
+
+    @Test
+    public void getByUid() {
+        List<ConnectorObject> objects = search(new EqualsFilter(new Uid(unids.get(0))));
+        AssertJUnit.assertEquals(1, objects.size());
+
+        assertCalls("Database.getDocumentByUNID", 1);
+        assertCalls("Database.search", 2);
+    }
+
+    @Test
+    public void getByName() {
+        List<ConnectorObject> objects = search(new EqualsFilter(new Name(domino.getPersonName(unids.get(0)))));
+        AssertJUnit.assertEquals(1, objects.size());
+
+        assertCalls("Database.getDocumentByUNID", 0);
+        assertCalls("Database.search", 3);
+    }
+
+    @Test
+    public void denyGroupDisablesAccount() {
+        String fullName = domino.createFullNames("User0", null, FakeDomino.LAST_NAMES[0], null).get(0);
+        domino.addGroup("Denied", Collections.singletonList(fullName), "3");
+
+        Filter filter = new EqualsFilter(new Uid(unids.get(0)));
+        String groupList = DominoAccountAttribute.GROUP_LIST.getName();
+        ConnectorObject object = search(filter, groupList, OperationalAttributes.ENABLE_NAME).get(0);
+        AssertJUnit.assertEquals(Boolean.FALSE,
+                AttributeUtil.getSingleValue(object.getAttributeByName(OperationalAttributes.ENABLE_NAME)));
+        AssertJUnit.assertFalse(object.getAttributeByName(groupList).getValue().contains("Denied"));
+
+        // deny groups are loaded only once
+        domino.resetCallCounts();
+        search(filter, groupList, OperationalAttributes.ENABLE_NAME);
+        assertCalls("Database.search", 1);
+    }
+
+    @Test
+    public void create() {
+        Set<Attribute> attrs = new HashSet<Attribute>();
+        attrs.add(new Name("New User/" + domino.getOrganization()));
+        attrs.add(AttributeBuilder.build(DominoAccountAttribute.FIRST_NAME.getName(), "New"));
+        attrs.add(AttributeBuilder.build(DominoAccountAttribute.LAST_NAME.getName(), "User"));
+        attrs.add(AttributeBuilder.build(DominoAccountAttribute.CERTIFIER_ORG_HIERARCHY.getName(),
+                domino.getOrganization()));
+        attrs.add(AttributeBuilder.build(DominoAccountAttribute.GROUP_LIST.getName(),
+                FakeDomino.getGroupName(1), FakeDomino.getGroupName(2)));
+        AssertJUnit.assertNotNull(connector.create(ObjectClass.ACCOUNT, attrs, options()));
+
+        // check if user exists, check every group, read created user
+        assertCalls("Database.search", 4);
+        assertCalls("Registration.registerNewUser", 1);
+        assertCalls("Document.save", 1);
+    }
+
+    private List<ConnectorObject> bulkExport(int blockSize, int offset, Integer pageSize, final int stopAfter) {
+        connector.dispose();
+        DominoConfiguration config = FakeDominoConnector.createConfiguration();
+        config.setDxlReadBlockSize(blockSize);
+        connector = new FakeDominoConnector(domino);
+        connector.init(config);
+        domino.resetCallCounts();
+
+        OperationOptionsBuilder builder = new OperationOptionsBuilder()
+                .setOption(DominoOperationOption.BULK_EXPORT.getName(), true);
+        if (pageSize != null) {
+            builder.setPagedResultsOffset(offset).setPageSize(pageSize);
+        }
+        OperationOptions options = builder.build();
+
+        final List<ConnectorObject> objects = new ArrayList<ConnectorObject>();
+        connector.executeQuery(ObjectClass.ACCOUNT, null, new ResultsHandler() {
+
+            public boolean handle(ConnectorObject object) {
+                objects.add(object);
+                return objects.size() < stopAfter;
+            }
+        }, options);
+        return objects;
+    }
+
+    @Test
+    public void bulkExportInBlocks() {
+        List<ConnectorObject> objects = bulkExport(50, 1, null, Integer.MAX_VALUE);
+        AssertJUnit.assertEquals(ACCOUNTS, objects.size());
+        AssertJUnit.assertEquals(unids.get(ACCOUNTS - 1), objects.get(ACCOUNTS - 1).getUid().getUidValue());
+
+        AssertJUnit.assertEquals(ACCOUNTS / 50, domino.getCallCount("DxlExporter.exportDxl"));
+        assertCalls("Database.getDocumentByUNID", 0);
+        assertCalls("Document.getItems", 0);
+    }
+
+    @Test
+    public void bulkExportPage() {
+        List<ConnectorObject> objects = bulkExport(50, 11, 20, Integer.MAX_VALUE);
+        AssertJUnit.assertEquals(20, objects.size());
+        AssertJUnit.assertEquals(unids.get(10), objects.get(0).getUid().getUidValue());
+        AssertJUnit.assertEquals(unids.get(29), objects.get(19).getUid().getUidValue());
+
+        // documents of page only
+        assertCalls("DxlExporter.exportDxl", 1);
+        AssertJUnit.assertEquals(20, domino.getCallCount("DocumentCollection.addDocument"));
+    }
+
+    @Test
+    public void bulkExportStopsWithHandler() {
+        List<ConnectorObject> objects = bulkExport(50, 1, null, 5);
+        AssertJUnit.assertEquals(5, objects.size());
+
+        // next blocks are not exported
+        AssertJUnit.assertEquals(1, domino.getCallCount("DxlExporter.exportDxl"));
+    }
+
+    /**
+     * @return remaining paged results reported by connector
+     */
+    private int sortedPage(boolean ascending, int offset, int pageSize, final List<String> uids) {
+        OperationOptions options = new OperationOptionsBuilder()
+                .setSortKeys(new SortKey(DominoAccountAttribute.FULL_NAME.getName(), ascending))
+                .setPagedResultsOffset(offset).setPageSize(pageSize).build();
+
+        final int[] remaining = {-1};
+        connector.executeQuery(ObjectClass.ACCOUNT, null, new SearchResultsHandler() {
+
+            public boolean handle(ConnectorObject object) {
+                uids.add(object.getUid().getUidValue());
+                return true;
+            }
+
+            public void handleResult(SearchResult result) {
+                remaining[0] = result.getRemainingPagedResults();
+            }
+        }, options);
+        return remaining[0];
+    }
+
+    @Test
+    public void sortedPagesCountDocuments() {
+        // FullName has two values, sort view contains two entries per person
+        for (boolean ascending : new boolean[]{true, false}) {
+            List<String> uids = new ArrayList<String>();
+            for (int offset = 1; offset <= ACCOUNTS; offset += 30) {
+                int size = uids.size();
+                int remaining = sortedPage(ascending, offset, 30, uids);
+
+                AssertJUnit.assertEquals(Math.min(30, ACCOUNTS - offset + 1), uids.size() - size);
+                AssertJUnit.assertEquals(ACCOUNTS - uids.size(), remaining);
+            }
+
+            AssertJUnit.assertEquals(ACCOUNTS, uids.size());
+            AssertJUnit.assertEquals(new HashSet<String>(unids), new HashSet<String>(uids));
+        }
+    }
+
+    @Test
+    public void bulkImportUpdateKeepsOtherItems() {
+        Set<Attribute> attrs = new HashSet<Attribute>(Arrays.asList(new Uid(unids.get(0)),
+                AttributeBuilder.build(DominoAccountAttribute.LOCATION.getName(), "Office 1")));
+        List<Uid> uids = connector.bulkImport(ObjectClass.ACCOUNT, Collections.singletonList(attrs));
+
+        AssertJUnit.assertEquals(Collections.singletonList(new Uid(unids.get(0))), uids);
+        FakeDomino.Note note = domino.get(unids.get(0));
+        AssertJUnit.assertEquals("Office 1", note.getValues(DominoAccountAttribute.LOCATION.getName()).get(0));
+        AssertJUnit.assertFalse(note.getValues("FullName").isEmpty());
+        AssertJUnit.assertFalse(note.getValues("MailFile").isEmpty());
+        AssertJUnit.assertEquals("Person", note.getValues("Type").get(0));
+
+        assertCalls("DxlImporter.importDxl", 0);
+        assertCalls("Document.save", 1);
+    }
+
+    @Test
+    public void bulkImportCreatesDocuments() {
+        Set<Attribute> created = new HashSet<Attribute>(Arrays.<Attribute>asList(
+                new Name("CN=Jane Roe/O=" + domino.getOrganization()),
+                AttributeBuilder.build(DominoAccountAttribute.LAST_NAME.getName(), "Roe")));
+        Set<Attribute> updated = new HashSet<Attribute>(Arrays.asList(new Uid(unids.get(0)),
+                AttributeBuilder.build(DominoAccountAttribute.LOCATION.getName(), "Office 1")));
+        List<Uid> uids = connector.bulkImport(ObjectClass.ACCOUNT, Arrays.asList(created, updated));
+
+        // uids are returned in import order
+        AssertJUnit.assertEquals(2, uids.size());
+        AssertJUnit.assertEquals(unids.get(0), uids.get(1).getUidValue());
+        FakeDomino.Note note = domino.get(uids.get(0).getUidValue());
+        AssertJUnit.assertEquals("Person", note.getValues("Form").get(0));
+        AssertJUnit.assertEquals("Person", note.getValues("Type").get(0));
+        AssertJUnit.assertEquals("Roe", note.getValues(DominoAccountAttribute.LAST_NAME.getName()).get(0));
+
+        assertCalls("DxlImporter.importDxl", 1);
+    }
+
+    @Test
+    public void updateItem() {
+        Set<Attribute> attrs = Collections.singleton(
+                AttributeBuilder.build(DominoAccountAttribute.LOCATION.getName(), "Office 1"));
+        connector.update(ObjectClass.ACCOUNT, new Uid(unids.get(0)), attrs, options());
+
+        assertCalls("Database.getDocumentByUNID", 1);
+        assertCalls("Database.search", 0);
+        assertCalls("Document.save", 1);
+    }
+
+    @Test
+    public void addToGroups() {
+        List<String> groups = Arrays.asList(FakeDomino.getGroupName(1), FakeDomino.getGroupName(2));
+        Set<Attribute> attrs = Collections.singleton(
+                AttributeBuilder.build(DominoAccountAttribute.GROUP_LIST.getName(), groups));
+        connector.addAttributeValues(ObjectClass.ACCOUNT, new Uid(unids.get(0)), attrs, options());
+
+        // current groups of user and check of every new group
+        assertCalls("Database.search", 1 + groups.size());
+        assertCalls("AdministrationProcess.addGroupMembers", groups.size());
+    }
+
+    @Test
+    public void delete() {
+        connector.delete(ObjectClass.ACCOUNT, new Uid(unids.get(0)), options());
+
+        assertCalls("Database.getDocumentByUNID", 1);
+        assertCalls("Database.search", 0);
+        assertCalls("AdministrationProcess.deleteUser", 1);
+    }
+}
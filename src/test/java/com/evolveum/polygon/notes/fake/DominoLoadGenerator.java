@@ -0,0 +1,548 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes.fake;
+
+import com.evolveum.polygon.notes.DominoAccountAttribute;
+import com.evolveum.polygon.notes.DominoConfiguration;
+import com.evolveum.polygon.notes.DominoConnector;
+import org.identityconnectors.framework.common.objects.Attribute;
+import org.identityconnectors.framework.common.objects.AttributeBuilder;
+import org.identityconnectors.framework.common.objects.ConnectorObject;
+import org.identityconnectors.framework.common.objects.Name;
+import org.identityconnectors.framework.common.objects.ObjectClass;
+import org.identityconnectors.framework.common.objects.OperationOptions;
+import org.identityconnectors.framework.common.objects.OperationOptionsBuilder;
+import org.identityconnectors.framework.common.objects.ResultsHandler;
+import org.identityconnectors.framework.common.objects.Uid;
+import org.identityconnectors.framework.common.objects.filter.EqualsFilter;
+import org.identityconnectors.framework.common.objects.filter.Filter;
+import org.identityconnectors.framework.common.objects.filter.StartsWithFilter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load generator which drives {@link DominoConnector} against {@link FakeDomino}. Directory is seeded with
+ * users and groups, then worker threads (every one with its own connector instance, as connector pool
+ * would do) run mix of create, update, search and delete operations. Every remote call to fake server
+ * is delayed by configured latency.
+ * <p/>
+ * Settings are read from system properties, e.g.
+ * <pre>
+ * java -Dload.threads=8 -Dload.duration=60 -Dload.users=5000 -Dload.groups=200 -Dload.fanOut=5 \
+ *      -Dload.latency=500 -Dload.mix=1:4:10:1 com.evolveum.polygon.notes.fake.DominoLoadGenerator
+ * </pre>
+ * Report contains throughput and p50/p99 latency of every operation type and number of remote calls.
+ */
+public class DominoLoadGenerator {
+
+    private static final String PROPERTY_PREFIX = "load.";
+
+    public enum Operation {
+
+        CREATE, UPDATE, SEARCH, DELETE
+    }
+
+    public static class Settings {
+
+        /**
+         * number of worker threads
+         */
+        int threads = 4;
+        /**
+         * number of operations, used if duration is 0
+         */
+        int operations = 1000;
+        /**
+         * duration of run in seconds, 0 means that number of operations is used
+         */
+        int duration = 0;
+        /**
+         * number of users in directory before run
+         */
+        int users = 1000;
+        int groups = 50;
+        /**
+         * number of groups every seeded or created user is member of
+         */
+        int fanOut = 3;
+        /**
+         * latency of every remote call in microseconds
+         */
+        long latency = 200;
+        /**
+         * weights of create, update, search and delete operations
+         */
+        int[] mix = {1, 3, 5, 1};
+        /**
+         * value of maxParallelRequests configuration property
+         */
+        int parallelRequests = 1;
+        long seed = 42;
+
+        public static Settings fromSystemProperties() {
+            Settings settings = new Settings();
+            settings.threads = Integer.getInteger(PROPERTY_PREFIX + "threads", settings.threads);
+            settings.operations = Integer.getInteger(PROPERTY_PREFIX + "operations", settings.operations);
+            settings.duration = Integer.getInteger(PROPERTY_PREFIX + "duration", settings.duration);
+            settings.users = Integer.getInteger(PROPERTY_PREFIX + "users", settings.users);
+            settings.groups = Integer.getInteger(PROPERTY_PREFIX + "groups", settings.groups);
+            settings.fanOut = Integer.getInteger(PROPERTY_PREFIX + "fanOut", settings.fanOut);
+            settings.latency = Long.getLong(PROPERTY_PREFIX + "latency", settings.latency);
+            settings.parallelRequests = Integer.getInteger(PROPERTY_PREFIX + "parallelRequests",
+                    settings.parallelRequests);
+            settings.seed = Long.getLong(PROPERTY_PREFIX + "seed", settings.seed);
+
+            String mix = System.getProperty(PROPERTY_PREFIX + "mix");
+            if (mix != null) {
+                String[] weights = mix.split(":");
+                if (weights.length != Operation.values().length) {
+                    throw new IllegalArgumentException("Mix must have form create:update:search:delete, was '"
+                            + mix + "'.");
+                }
+                for (int i = 0; i < weights.length; i++) {
+                    settings.mix[i] = Integer.parseInt(weights[i].trim());
+                }
+            }
+
+            return settings;
+        }
+
+        @Override
+        public String toString() {
+            return "threads=" + threads + ", operations=" + (duration > 0 ? "-" : operations)
+                    + ", duration=" + duration + "s, users=" + users + ", groups=" + groups + ", fanOut=" + fanOut
+                    + ", latency=" + latency + "us, mix=" + Arrays.toString(mix)
+                    + ", parallelRequests=" + parallelRequests;
+        }
+    }
+
+    /**
+     * Account known to exist. Account is taken from pool for update or delete, so that two workers
+     * never work with the same account.
+     */
+    private static class Account {
+
+        private final Uid uid;
+        private final String name;
+
+        private Account(Uid uid, String name) {
+            this.uid = uid;
+            this.name = name;
+        }
+    }
+
+    private static class AccountPool {
+
+        private final List<Account> accounts = new ArrayList<Account>();
+
+        private synchronized void add(Account account) {
+            accounts.add(account);
+        }
+
+        /**
+         * @return random account removed from pool, null if pool is empty
+         */
+        private synchronized Account take(Random random) {
+            if (accounts.isEmpty()) {
+                return null;
+            }
+
+            int index = random.nextInt(accounts.size());
+            Account account = accounts.get(index);
+            accounts.set(index, accounts.get(accounts.size() - 1));
+            accounts.remove(accounts.size() - 1);
+            return account;
+        }
+
+        /**
+         * @return name of random account, account stays in pool
+         */
+        private synchronized String peekName(Random random) {
+            return accounts.isEmpty() ? null : accounts.get(random.nextInt(accounts.size())).name;
+        }
+    }
+
+    /**
+     * Latencies of one operation type.
+     */
+    public static class Stats {
+
+        private long[] latencies = new long[256];
+        private int count;
+        private int errors;
+        private String firstError;
+
+        private void record(long nanos) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+        }
+
+        private void error(Exception ex) {
+            errors++;
+            if (firstError == null) {
+                firstError = ex.toString();
+            }
+        }
+
+        private void merge(Stats other) {
+            for (int i = 0; i < other.count; i++) {
+                record(other.latencies[i]);
+            }
+            errors += other.errors;
+            if (firstError == null) {
+                firstError = other.firstError;
+            }
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public int getErrors() {
+            return errors;
+        }
+
+        public String getFirstError() {
+            return firstError;
+        }
+
+        /**
+         * @param quantile e.g. 0.99
+         * @return latency in milliseconds
+         */
+        public double getPercentile(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(quantile * count) - 1;
+            return sorted[Math.max(0, index)] / 1000000d;
+        }
+    }
+
+    public static class Report {
+
+        private final Settings settings;
+        private final Map<Operation, Stats> stats = new EnumMap<Operation, Stats>(Operation.class);
+        private long elapsedNanos;
+        private long remoteCalls;
+        private Map<String, Long> callCounts;
+
+        private Report(Settings settings) {
+            this.settings = settings;
+            for (Operation operation : Operation.values()) {
+                stats.put(operation, new Stats());
+            }
+        }
+
+        public Stats getStats(Operation operation) {
+            return stats.get(operation);
+        }
+
+        public int getCount() {
+            int count = 0;
+            for (Stats stat : stats.values()) {
+                count += stat.count;
+            }
+            return count;
+        }
+
+        public int getErrors() {
+            int errors = 0;
+            for (Stats stat : stats.values()) {
+                errors += stat.errors;
+            }
+            return errors;
+        }
+
+        public long getRemoteCalls() {
+            return remoteCalls;
+        }
+
+        public Map<String, Long> getCallCounts() {
+            return callCounts;
+        }
+
+        private double getOpsPerSecond(int count) {
+            return elapsedNanos > 0 ? count * 1000000000d / elapsedNanos : 0;
+        }
+
+        public String format() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Settings: ").append(settings).append('\n');
+            sb.append(String.format("Elapsed %.1f s, %d operations, %.1f ops/s, %d errors, %.1f remote calls/op%n",
+                    elapsedNanos / 1000000000d, getCount(), getOpsPerSecond(getCount()), getErrors(),
+                    getCount() > 0 ? (double) remoteCalls / getCount() : 0d));
+            sb.append(String.format("%-8s %8s %8s %10s %10s %10s%n", "op", "count", "errors", "ops/s",
+                    "p50 ms", "p99 ms"));
+            for (Map.Entry<Operation, Stats> entry : stats.entrySet()) {
+                Stats stat = entry.getValue();
+                sb.append(String.format("%-8s %8d %8d %10.1f %10.2f %10.2f%n", entry.getKey().name().toLowerCase(),
+                        stat.count, stat.errors, getOpsPerSecond(stat.count), stat.getPercentile(0.5),
+                        stat.getPercentile(0.99)));
+            }
+            for (Map.Entry<Operation, Stats> entry : stats.entrySet()) {
+                if (entry.getValue().firstError != null) {
+                    sb.append("First ").append(entry.getKey().name().toLowerCase()).append(" error: ")
+                            .append(entry.getValue().firstError).append('\n');
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    private final Settings settings;
+    private final FakeDomino domino = new FakeDomino();
+    private final AccountPool accounts = new AccountPool();
+    private final List<String> groupNames = new ArrayList<String>();
+    private final AtomicInteger created = new AtomicInteger();
+
+    public DominoLoadGenerator(Settings settings) {
+        this.settings = settings;
+    }
+
+    public FakeDomino getDomino() {
+        return domino;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = Settings.fromSystemProperties();
+        System.out.println("Seeding fake Domino and running load: " + settings);
+
+        Report report = new DominoLoadGenerator(settings).run();
+        System.out.print(report.format());
+        for (Map.Entry<String, Long> entry : report.getCallCounts().entrySet()) {
+            System.out.println("  " + entry.getKey() + ": " + entry.getValue());
+        }
+    }
+
+    public Report run() throws InterruptedException {
+        seed();
+        domino.setLatency(settings.latency);
+        domino.resetCallCounts();
+
+        final Report report = new Report(settings);
+        final AtomicLong remaining = new AtomicLong(settings.duration > 0 ? Long.MAX_VALUE : settings.operations);
+        final long deadline = settings.duration > 0
+                ? System.nanoTime() + TimeUnit.SECONDS.toNanos(settings.duration) : Long.MAX_VALUE;
+
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < settings.threads; i++) {
+            final Random random = new Random(settings.seed + i);
+            Thread thread = new Thread(new Runnable() {
+
+                public void run() {
+                    Map<Operation, Stats> stats = runWorker(random, remaining, deadline);
+                    synchronized (report) {
+                        for (Map.Entry<Operation, Stats> entry : stats.entrySet()) {
+                            report.stats.get(entry.getKey()).merge(entry.getValue());
+                        }
+                    }
+                }
+            }, "load-" + i);
+            threads.add(thread);
+        }
+
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        report.elapsedNanos = System.nanoTime() - start;
+        report.remoteCalls = domino.getCallCount();
+        report.callCounts = domino.getCallCounts();
+
+        return report;
+    }
+
+    /**
+     * Creates groups and users directly in fake store, every user is member of fan out random groups.
+     */
+    private void seed() {
+        Random random = new Random(settings.seed);
+        for (String unid : domino.addDirectory(settings.users, settings.groups, settings.fanOut, random)) {
+            accounts.add(new Account(new Uid(unid), domino.getPersonName(unid)));
+        }
+        for (int i = 0; i < settings.groups; i++) {
+            groupNames.add(FakeDomino.getGroupName(i));
+        }
+    }
+
+    private Map<Operation, Stats> runWorker(Random random, AtomicLong remaining, long deadline) {
+        Map<Operation, Stats> stats = new EnumMap<Operation, Stats>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new Stats());
+        }
+
+        DominoConfiguration config = FakeDominoConnector.createConfiguration();
+        config.setMaxParallelRequests(settings.parallelRequests);
+
+        DominoConnector connector = new FakeDominoConnector(domino);
+        connector.init(config);
+        try {
+            while (remaining.getAndDecrement() > 0 && System.nanoTime() < deadline) {
+                Operation operation = pickOperation(random);
+                long start = System.nanoTime();
+                try {
+                    execute(connector, operation, random);
+                    stats.get(operation).record(System.nanoTime() - start);
+                } catch (RuntimeException ex) {
+                    stats.get(operation).error(ex);
+                }
+            }
+        } finally {
+            connector.dispose();
+        }
+
+        return stats;
+    }
+
+    private Operation pickOperation(Random random) {
+        int total = 0;
+        for (int weight : settings.mix) {
+            total += weight;
+        }
+
+        int value = random.nextInt(total);
+        for (Operation operation : Operation.values()) {
+            value -= settings.mix[operation.ordinal()];
+            if (value < 0) {
+                return operation;
+            }
+        }
+        return Operation.SEARCH;
+    }
+
+    private void execute(DominoConnector connector, Operation operation, Random random) {
+        OperationOptions options = new OperationOptionsBuilder().build();
+        switch (operation) {
+            case CREATE:
+                create(connector, random, options);
+                break;
+            case UPDATE:
+                Account account = accounts.take(random);
+                if (account == null) {
+                    create(connector, random, options);
+                    break;
+                }
+                try {
+                    update(connector, account, random, options);
+                } finally {
+                    accounts.add(account);
+                }
+                break;
+            case SEARCH:
+                search(connector, random, options);
+                break;
+            case DELETE:
+                account = accounts.take(random);
+                if (account == null) {
+                    create(connector, random, options);
+                    break;
+                }
+                connector.delete(ObjectClass.ACCOUNT, account.uid, options);
+                break;
+        }
+    }
+
+    private void create(DominoConnector connector, Random random, OperationOptions options) {
+        String firstName = "Created" + created.incrementAndGet();
+        String lastName = FakeDomino.LAST_NAMES[random.nextInt(FakeDomino.LAST_NAMES.length)];
+        String name = firstName + " " + lastName + "/" + domino.getOrganization();
+
+        List<String> groups = new ArrayList<String>();
+        for (int group : FakeDomino.pickGroups(settings.groups, settings.fanOut, random)) {
+            groups.add(groupNames.get(group));
+        }
+
+        Set<Attribute> attrs = new HashSet<Attribute>();
+        attrs.add(new Name(name));
+        attrs.add(AttributeBuilder.build(DominoAccountAttribute.FIRST_NAME.getName(), firstName));
+        attrs.add(AttributeBuilder.build(DominoAccountAttribute.LAST_NAME.getName(), lastName));
+        attrs.add(AttributeBuilder.build(DominoAccountAttribute.CERTIFIER_ORG_HIERARCHY.getName(),
+                domino.getOrganization()));
+        attrs.add(AttributeBuilder.build(DominoAccountAttribute.LOCATION.getName(), "Office " + random.nextInt(10)));
+        if (!groups.isEmpty()) {
+            attrs.add(AttributeBuilder.build(DominoAccountAttribute.GROUP_LIST.getName(), groups));
+        }
+
+        Uid uid = connector.create(ObjectClass.ACCOUNT, attrs, options);
+        if (uid == null) {
+            throw new IllegalStateException("Account " + name + " wasn't created.");
+        }
+        accounts.add(new Account(uid, name));
+    }
+
+    /**
+     * Replaces location, every other update adds account to another group.
+     */
+    private void update(DominoConnector connector, Account account, Random random, OperationOptions options) {
+        if (random.nextBoolean() && !groupNames.isEmpty()) {
+            String group = groupNames.get(random.nextInt(groupNames.size()));
+            connector.addAttributeValues(ObjectClass.ACCOUNT, account.uid, Collections.singleton(
+                    AttributeBuilder.build(DominoAccountAttribute.GROUP_LIST.getName(), group)), options);
+            return;
+        }
+
+        connector.update(ObjectClass.ACCOUNT, account.uid, Collections.singleton(AttributeBuilder.build(
+                DominoAccountAttribute.LOCATION.getName(), "Office " + random.nextInt(10))), options);
+    }
+
+    /**
+     * Looks up account by name (as reconciliation of single account does) or searches accounts by last
+     * name prefix (as search in administration UI does).
+     */
+    private void search(DominoConnector connector, Random random, OperationOptions options) {
+        Filter filter;
+        String name = random.nextBoolean() ? accounts.peekName(random) : null;
+        if (name != null) {
+            filter = new EqualsFilter(new Name(name));
+        } else {
+            String lastName = FakeDomino.LAST_NAMES[random.nextInt(FakeDomino.LAST_NAMES.length)];
+            filter = new StartsWithFilter(AttributeBuilder.build(DominoAccountAttribute.LAST_NAME.getName(),
+                    lastName.substring(0, 3)));
+        }
+
+        ResultsHandler handler = new ResultsHandler() {
+
+            public boolean handle(ConnectorObject object) {
+                return true;
+            }
+        };
+
+        for (String query : connector.createFilterTranslator(ObjectClass.ACCOUNT, options).translate(filter)) {
+            connector.executeQuery(ObjectClass.ACCOUNT, query, handler, options);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes.fake;
+
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+
+public class DominoLoadGeneratorTest {
+
+    @Test
+    public void smallLoadRunsWithoutErrors() throws Exception {
+        DominoLoadGenerator.Settings settings = new DominoLoadGenerator.Settings();
+        settings.threads = 2;
+        settings.operations = 60;
+        settings.users = 40;
+        settings.groups = 5;
+        settings.fanOut = 2;
+        settings.latency = 0;
+
+        DominoLoadGenerator generator = new DominoLoadGenerator(settings);
+        DominoLoadGenerator.Report report = generator.run();
+
+        AssertJUnit.assertEquals(report.format(), 0, report.getErrors());
+        AssertJUnit.assertEquals(60, report.getCount());
+        AssertJUnit.assertTrue(report.getRemoteCalls() > 0);
+    }
+
+    @Test
+    public void formulaSubset() throws Exception {
+        FakeDomino domino = new FakeDomino();
+        domino.addPerson("John", "Doe");
+        domino.addGroup("Admins", Collections.singletonList("CN=John Doe/O=Acme"), "0");
+
+        AssertJUnit.assertEquals(1, domino.search(FakeFormula.parse(
+                "(@GetField(\"form\") = \"Person\")&(@LowerCase(FullName)=\"cn=john doe/o=acme\")"), null).size());
+        AssertJUnit.assertEquals(1, domino.search(FakeFormula.parse(
+                "(form='Group')&@Contains(@LowerCase(Members); \"cn=john doe\")"), null).size());
+        AssertJUnit.assertEquals(0, domino.search(FakeFormula.parse(
+                "(form='Person')&!@Begins(@LowerCase(LastName); \"do\")"), null).size());
+        AssertJUnit.assertEquals(2, domino.search(FakeFormula.parse("Form = \"Person\":\"Group\""), null).size());
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes.fake;
+
+import com.evolveum.polygon.notes.DominoConnection;
+import com.evolveum.polygon.notes.DominoConnector;
+import lotus.domino.NotesError;
+import lotus.domino.NotesException;
+import lotus.domino.Session;
+import org.identityconnectors.framework.common.objects.ConnectorObject;
+import org.identityconnectors.framework.common.objects.ObjectClass;
+import org.identityconnectors.framework.common.objects.OperationOptionsBuilder;
+import org.identityconnectors.framework.common.objects.ResultsHandler;
+import org.testng.AssertJUnit;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Reconnect of session contexts against fake Domino.
+ */
+public class DominoReconnectTest {
+
+    private static Session openSession(final DominoConnection connection) throws InterruptedException {
+        final AtomicReference<Session> session = new AtomicReference<Session>();
+        Thread thread = new Thread() {
+
+            @Override
+            public void run() {
+                connection.acquire();
+                try {
+                    session.set(connection.getSession());
+                } finally {
+                    connection.release();
+                }
+            }
+        };
+        thread.start();
+        thread.join();
+
+        return session.get();
+    }
+
+    @Test
+    public void reconnectReplacesOtherSessionsOnAcquire() throws Exception {
+        DominoConnection connection = new FakeDominoConnection(FakeDominoConnector.createConfiguration(),
+                new FakeDomino());
+
+        // context of other thread is idle now
+        Session other = openSession(connection);
+
+        connection.acquire();
+        try {
+            Session broken = connection.getSession();
+            AssertJUnit.assertTrue(connection.reconnect(
+                    new NotesException(NotesError.NOTES_ERR_SESSION_CLOSED, "Session has been closed"), 0));
+
+            // current context keeps its lease, only its session is replaced
+            Session reopened = connection.getSession();
+            AssertJUnit.assertNotSame(broken, reopened);
+            AssertJUnit.assertSame(reopened, connection.getSession());
+
+            AssertJUnit.assertNotSame(other, openSession(connection));
+        } finally {
+            connection.release();
+            connection.dispose();
+        }
+    }
+
+    @Test
+    public void resumedSearchReturnsEveryObjectOnce() {
+        final FakeDomino domino = new FakeDomino();
+        final List<String> unids = domino.addDirectory(20, 0, 0, new Random(1));
+
+        DominoConnector connector = new FakeDominoConnector(domino);
+        connector.init(FakeDominoConnector.createConfiguration());
+        try {
+            final List<String> returned = new ArrayList<String>();
+            connector.executeQuery(ObjectClass.ACCOUNT, null, new ResultsHandler() {
+
+                public boolean handle(ConnectorObject object) {
+                    returned.add(object.getUid().getUidValue());
+                    if (returned.size() == 5) {
+                        // document before resume position is deleted while connection is broken
+                        domino.remove(returned.get(1));
+                        domino.failNextCall("DocumentCollection.getNextDocument");
+                    }
+                    return true;
+                }
+            }, new OperationOptionsBuilder().build());
+
+            AssertJUnit.assertEquals(unids, returned);
+        } finally {
+            connector.dispose();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes.fake;
+
+import com.evolveum.polygon.notes.DominoConnector;
+import com.evolveum.polygon.notes.DominoGroupAttribute;
+import org.identityconnectors.framework.common.objects.Attribute;
+import org.identityconnectors.framework.common.objects.ObjectClass;
+import org.identityconnectors.framework.common.objects.OperationOptionsBuilder;
+import org.identityconnectors.framework.common.objects.SyncDelta;
+import org.identityconnectors.framework.common.objects.SyncDeltaType;
+import org.identityconnectors.framework.common.objects.SyncToken;
+import org.identityconnectors.framework.spi.SyncTokenResultsHandler;
+import org.testng.AssertJUnit;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Sync of group member changes against fake Domino.
+ */
+public class DominoSyncTest {
+
+    private static final int ACCOUNTS = 20;
+    private static final int GROUPS = 5;
+
+    private FakeDomino domino;
+    private DominoConnector connector;
+    private List<String> unids;
+
+    private static class CollectingHandler implements SyncTokenResultsHandler {
+
+        private final Map<String, SyncDelta> deltas = new HashMap<String, SyncDelta>();
+        private final int stopAfter;
+        private SyncToken token;
+
+        private CollectingHandler(int stopAfter) {
+            this.stopAfter = stopAfter;
+        }
+
+        public boolean handle(SyncDelta delta) {
+            deltas.put(delta.getUid().getUidValue(), delta);
+            return deltas.size() < stopAfter;
+        }
+
+        public void handleResult(SyncToken token) {
+            this.token = token;
+        }
+    }
+
+    @BeforeMethod
+    public void beforeMethod() {
+        domino = new FakeDomino();
+        unids = domino.addDirectory(ACCOUNTS, GROUPS, 2, new Random(1));
+
+        connector = new FakeDominoConnector(domino);
+        connector.init(FakeDominoConnector.createConfiguration());
+    }
+
+    @AfterMethod
+    public void afterMethod() {
+        connector.dispose();
+    }
+
+    private CollectingHandler sync(SyncToken token) {
+        return sync(token, Integer.MAX_VALUE);
+    }
+
+    private CollectingHandler sync(SyncToken token, int stopAfter) {
+        CollectingHandler handler = new CollectingHandler(stopAfter);
+        connector.sync(ObjectClass.GROUP, token, handler, new OperationOptionsBuilder().build());
+        return handler;
+    }
+
+    private static List<Object> getValues(SyncDelta delta, DominoGroupAttribute attr) {
+        if (delta.getObject() == null) {
+            return Collections.emptyList();
+        }
+        Attribute attribute = delta.getObject().getAttributeByName(attr.getName());
+        return attribute != null ? attribute.getValue() : Collections.emptyList();
+    }
+
+    @Test
+    public void memberChanges() {
+        SyncToken token = connector.getLatestSyncToken(ObjectClass.GROUP);
+
+        String newUnid = domino.addPerson("New", "Member");
+        String newMember = domino.createFullNames("New", null, "Member", null).get(0);
+        String group0 = domino.findByItem("ListName", FakeDomino.getGroupName(0)).unid;
+        domino.addToItem(group0, "Members", Collections.singletonList(newMember));
+
+        String removedMember = domino.createFullNames("User1", null, FakeDomino.LAST_NAMES[1], null).get(0);
+        domino.removeFromItems("Members", removedMember);
+
+        domino.addGroup("Group New", Collections.singletonList(newMember), "0");
+        domino.remove(domino.findByItem("ListName", FakeDomino.getGroupName(4)).unid);
+
+        domino.resetCallCounts();
+        CollectingHandler handler = sync(token);
+        // changed groups are compared with members known from previous sync, UNIDs of all groups find deletes
+        AssertJUnit.assertTrue(domino.getCallCounts().toString(), domino.getCallCount("Database.search") <= 3);
+
+        SyncDelta updated = handler.deltas.get(FakeDomino.getGroupName(0));
+        AssertJUnit.assertEquals(SyncDeltaType.UPDATE, updated.getDeltaType());
+        AssertJUnit.assertEquals(Arrays.<Object>asList(domino.getPersonName(newUnid)),
+                getValues(updated, DominoGroupAttribute.MEMBERS_ADDED));
+        AssertJUnit.assertNull(updated.getObject().getAttributeByName(DominoGroupAttribute.MEMBERS.getName()));
+
+        String removedName = domino.getPersonName(unids.get(1));
+        int removed = 0;
+        for (SyncDelta delta : handler.deltas.values()) {
+            if (getValues(delta, DominoGroupAttribute.MEMBERS_REMOVED).contains(removedName)) {
+                removed++;
+            }
+        }
+        AssertJUnit.assertTrue(removed > 0);
+
+        SyncDelta created = handler.deltas.get("Group New");
+        AssertJUnit.assertEquals(SyncDeltaType.CREATE, created.getDeltaType());
+        AssertJUnit.assertEquals(Arrays.<Object>asList(domino.getPersonName(newUnid)),
+                getValues(created, DominoGroupAttribute.MEMBERS));
+
+        SyncDelta deleted = handler.deltas.get(FakeDomino.getGroupName(4));
+        AssertJUnit.assertEquals(SyncDeltaType.DELETE, deleted.getDeltaType());
+
+        AssertJUnit.assertEquals(connector.getLatestSyncToken(ObjectClass.GROUP), handler.token);
+        AssertJUnit.assertTrue(sync(handler.token).deltas.isEmpty());
+
+        // number of groups doesn't change
+        domino.remove(domino.findByItem("ListName", FakeDomino.getGroupName(3)).unid);
+        domino.addGroup("Group Newer", Collections.<String>emptyList(), "0");
+
+        handler = sync(handler.token);
+        AssertJUnit.assertEquals(2, handler.deltas.size());
+        AssertJUnit.assertEquals(SyncDeltaType.DELETE, handler.deltas.get(FakeDomino.getGroupName(3)).getDeltaType());
+        AssertJUnit.assertEquals(SyncDeltaType.CREATE, handler.deltas.get("Group Newer").getDeltaType());
+    }
+
+    @Test
+    public void withoutToken() {
+        CollectingHandler handler = sync(null);
+        AssertJUnit.assertEquals(GROUPS, handler.deltas.size());
+
+        List<Object> members = new ArrayList<Object>();
+        for (SyncDelta delta : handler.deltas.values()) {
+            AssertJUnit.assertEquals(SyncDeltaType.CREATE_OR_UPDATE, delta.getDeltaType());
+            members.addAll(getValues(delta, DominoGroupAttribute.MEMBERS));
+        }
+        AssertJUnit.assertEquals(ACCOUNTS * 2, members.size());
+        AssertJUnit.assertEquals(connector.getLatestSyncToken(ObjectClass.GROUP), handler.token);
+    }
+
+    @Test
+    public void unknownToken() {
+        CollectingHandler handler = sync(new SyncToken("unknown:1"));
+        AssertJUnit.assertEquals(GROUPS, handler.deltas.size());
+    }
+
+    @Test
+    public void stoppedSnapshot() {
+        // incomplete snapshot must not be skipped by next sync
+        CollectingHandler handler = sync(new SyncToken("unknown:1"), 2);
+        AssertJUnit.assertEquals(2, handler.deltas.size());
+        AssertJUnit.assertEquals(new SyncToken("unknown:1"), handler.token);
+        for (SyncDelta delta : handler.deltas.values()) {
+            AssertJUnit.assertEquals(new SyncToken("unknown:1"), delta.getToken());
+        }
+
+        AssertJUnit.assertNull(sync(null, 2).token);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void syncAccounts() {
+        connector.sync(ObjectClass.ACCOUNT, null, new CollectingHandler(Integer.MAX_VALUE),
+                new OperationOptionsBuilder().build());
+    }
+}
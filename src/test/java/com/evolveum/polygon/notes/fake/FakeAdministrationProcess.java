@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes.fake;
+
+import lotus.domino.NotesError;
+import lotus.domino.NotesException;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Vector;
+
+/**
+ * Backing object of {@link lotus.domino.AdministrationProcess} proxy. Requests which change directory
+ * are processed immediately (as with immediate AdminP processing), other requests are only accepted.
+ * Every request gets new note id.
+ */
+class FakeAdministrationProcess {
+
+    private final FakeDomino domino;
+
+    FakeAdministrationProcess(FakeDomino domino) {
+        this.domino = domino;
+    }
+
+    public String addGroupMembers(String group, Vector<?> members) throws NotesException {
+        FakeDomino.Note note = domino.findByItem("ListName", group);
+        if (note == null) {
+            throw new NotesException(NotesError.NOTES_ERR_NOSUCH_GROUP, "Group " + group + " not found.");
+        }
+
+        domino.addToItem(note.unid, "Members", members);
+        return domino.nextNoteId();
+    }
+
+    public String deleteUser(String user, boolean immediate, int mailFileAction, String denyGroup,
+                             boolean deleteWindowsUser) throws NotesException {
+        String canonical = new FakeName(user).getCanonical();
+        FakeDomino.Note note = domino.findByItem("FullName", canonical);
+        if (note == null) {
+            throw new NotesException(NotesError.NOTES_ERR_BAD_UNID, "User " + user + " not found.");
+        }
+
+        domino.remove(note.unid);
+        domino.removeFromItems("Members", canonical);
+        if (denyGroup != null) {
+            FakeDomino.Note group = domino.findByItem("ListName", denyGroup);
+            if (group != null) {
+                domino.addToItem(group.unid, "Members", Collections.singletonList(canonical));
+            }
+        }
+        return domino.nextNoteId();
+    }
+
+    public String deleteGroup(String group, boolean immediate) throws NotesException {
+        FakeDomino.Note note = domino.findByItem("ListName", group);
+        if (note == null) {
+            throw new NotesException(NotesError.NOTES_ERR_NOSUCH_GROUP, "Group " + group + " not found.");
+        }
+
+        domino.remove(note.unid);
+        domino.removeFromItems("Members", group);
+        return domino.nextNoteId();
+    }
+
+    public String setUserPasswordSettings(String user, Integer checkPassword, Integer changeInterval,
+                                          Integer gracePeriod, Boolean requirePassword) throws NotesException {
+        FakeDomino.Note note = domino.findByItem("FullName", new FakeName(user).getCanonical());
+        if (note == null) {
+            throw new NotesException(NotesError.NOTES_ERR_BAD_UNID, "User " + user + " not found.");
+        }
+
+        Map<String, Object> values = new LinkedHashMap<String, Object>();
+        if (checkPassword != null) {
+            values.put("CheckPassword", checkPassword.toString());
+        }
+        if (changeInterval != null) {
+            values.put("PasswordChangeInterval", changeInterval);
+        }
+        if (gracePeriod != null) {
+            values.put("PasswordGracePeriod", gracePeriod);
+        }
+
+        if (!values.isEmpty()) {
+            Map<String, FakeItem> items = new LinkedHashMap<String, FakeItem>(note.items);
+            items.putAll(FakeDomino.createItems(values));
+            domino.save(note.unid, items);
+        }
+        return domino.nextNoteId();
+    }
+
+    public String renameNotesUser(String user, String lastName, String firstName, String middleInitial,
+                                  String orgUnit, String altCommonName, String altOrgUnit, String altLanguage,
+                                  boolean renameInternetAddress) {
+        return domino.nextNoteId();
+    }
+
+    public String moveMailUser(String user, String newHomeServer, String newHomeServerMailPath) {
+        return domino.nextNoteId();
+    }
+
+    public String recertifyUser(String user) {
+        return domino.nextNoteId();
+    }
+
+    public String changeHTTPPassword(String user, String oldPassword, String newPassword) {
+        return domino.nextNoteId();
+    }
+}
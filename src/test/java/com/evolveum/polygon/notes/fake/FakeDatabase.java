@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes.fake;
+
+import lotus.domino.DateTime;
+import lotus.domino.Document;
+import lotus.domino.DocumentCollection;
+import lotus.domino.NotesError;
+import lotus.domino.NotesException;
+import lotus.domino.Session;
+import lotus.domino.View;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Backing object of {@link lotus.domino.Database} proxy. All databases of fake server share one document
+ * store, documents of different databases are distinguished only by their Form item.
+ */
+class FakeDatabase {
+
+    private final FakeDomino domino;
+    private final Session session;
+    private final String filePath;
+
+    FakeDatabase(FakeDomino domino, Session session, String filePath) {
+        this.domino = domino;
+        this.session = session;
+        this.filePath = filePath;
+    }
+
+    public Session getParent() {
+        return session;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public String getReplicaID() {
+        return domino.getReplicaId();
+    }
+
+    public boolean isOpen() {
+        return true;
+    }
+
+    public int getSizeQuota() {
+        return 0;
+    }
+
+    public long getSizeWarning() {
+        return 0;
+    }
+
+    public DocumentCollection search(String formula) {
+        return search(formula, null, 0);
+    }
+
+    public DocumentCollection search(String formula, DateTime since) {
+        return search(formula, since, 0);
+    }
+
+    public DocumentCollection search(String formula, DateTime since, int max) {
+        FakeDateTime date = FakeDomino.unwrap(since, FakeDateTime.class);
+        List<String> unids = domino.search(FakeFormula.parse(formula), date != null ? date.toJavaDate() : null);
+        if (max > 0 && unids.size() > max) {
+            unids = unids.subList(0, max);
+        }
+        return domino.proxy(DocumentCollection.class, new FakeDocumentCollection(domino, unids));
+    }
+
+    public DocumentCollection createDocumentCollection() {
+        return domino.proxy(DocumentCollection.class, new FakeDocumentCollection(domino, new ArrayList<String>()));
+    }
+
+    public Document getDocumentByUNID(String unid) throws NotesException {
+        FakeDomino.Note note = domino.get(unid);
+        if (note == null) {
+            throw new NotesException(NotesError.NOTES_ERR_BAD_UNID, "Invalid universal id");
+        }
+        return domino.proxy(Document.class, new FakeDocument(domino, note));
+    }
+
+    public Document getDocumentByID(String noteId) {
+        FakeDomino.Note note = domino.getByNoteId(noteId);
+        return note != null ? domino.proxy(Document.class, new FakeDocument(domino, note)) : null;
+    }
+
+    public Document createDocument() {
+        return domino.proxy(Document.class, new FakeDocument(domino, null));
+    }
+
+    public View getView(String name) {
+        String item = domino.getViewItem(name);
+        return item != null ? domino.proxy(View.class, new FakeView(domino, name, item)) : null;
+    }
+
+    @Override
+    public String toString() {
+        return filePath;
+    }
+}
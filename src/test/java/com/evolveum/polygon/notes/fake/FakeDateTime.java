@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes.fake;
+
+import java.util.Date;
+
+/**
+ * Backing object of {@link lotus.domino.DateTime} proxy.
+ */
+class FakeDateTime {
+
+    private long time;
+
+    FakeDateTime(Date date) {
+        this.time = date.getTime();
+    }
+
+    public Date toJavaDate() {
+        return new Date(time);
+    }
+
+    public void setNow() {
+        time = System.currentTimeMillis();
+    }
+
+    public void adjustDay(int days) {
+        time += days * 86400000L;
+    }
+
+    public void adjustSecond(int seconds) {
+        time += seconds * 1000L;
+    }
+
+    @Override
+    public String toString() {
+        return toJavaDate().toString();
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes.fake;
+
+import lotus.domino.DateTime;
+import lotus.domino.Item;
+import lotus.domino.NotesError;
+import lotus.domino.NotesException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Vector;
+
+/**
+ * Backing object of {@link lotus.domino.Document} proxy. Document is a working copy of stored note,
+ * changes are visible to other sessions after {@link #save()}.
+ */
+class FakeDocument {
+
+    private final FakeDomino domino;
+
+    private String unid;
+    private String noteId;
+    private DateTime lastModified;
+    private final Map<String, FakeItem> items;
+
+    /**
+     * @param note stored note, null for new document
+     */
+    FakeDocument(FakeDomino domino, FakeDomino.Note note) {
+        this.domino = domino;
+        if (note != null) {
+            this.unid = note.unid;
+            this.noteId = note.noteId;
+            this.lastModified = domino.proxy(DateTime.class, new FakeDateTime(note.lastModified));
+            this.items = new LinkedHashMap<String, FakeItem>(note.items);
+        } else {
+            this.items = new LinkedHashMap<String, FakeItem>();
+        }
+    }
+
+    String getUnid() {
+        return unid;
+    }
+
+    public String getUniversalID() {
+        return unid;
+    }
+
+    public String getNoteID() {
+        return noteId;
+    }
+
+    public boolean isNewNote() {
+        return unid == null;
+    }
+
+    public DateTime getLastModified() {
+        return lastModified;
+    }
+
+    public Vector<Item> getItems() {
+        Vector<Item> result = new Vector<Item>();
+        for (FakeItem item : items.values()) {
+            result.add(domino.proxy(Item.class, item));
+        }
+        return result;
+    }
+
+    public Item getFirstItem(String name) {
+        FakeItem item = items.get(name.toLowerCase());
+        return item != null ? domino.proxy(Item.class, item) : null;
+    }
+
+    public boolean hasItem(String name) {
+        return items.containsKey(name.toLowerCase());
+    }
+
+    public Vector<Object> getItemValue(String name) {
+        FakeItem item = items.get(name.toLowerCase());
+        return item != null ? item.getValues() : new Vector<Object>();
+    }
+
+    public String getItemValueString(String name) {
+        FakeItem item = items.get(name.toLowerCase());
+        return item != null ? item.getValueString() : null;
+    }
+
+    public int getItemValueInteger(String name) {
+        FakeItem item = items.get(name.toLowerCase());
+        Object value = item != null && !item.getValueList().isEmpty() ? item.getValueList().get(0) : null;
+        return value instanceof Number ? ((Number) value).intValue() : 0;
+    }
+
+    public Item replaceItemValue(String name, Object value) {
+        FakeItem item = new FakeItem(name, value);
+        items.put(name.toLowerCase(), item);
+        return domino.proxy(Item.class, item);
+    }
+
+    /**
+     * Domino creates another item with the same name, fake appends values to existing item instead.
+     */
+    public Item appendItemValue(String name, Object value) {
+        FakeItem old = items.get(name.toLowerCase());
+        if (old == null) {
+            return replaceItemValue(name, value);
+        }
+
+        Vector<Object> values = old.getValues();
+        values.add(value);
+        return replaceItemValue(old.getName(), values);
+    }
+
+    public void removeItem(String name) {
+        items.remove(name.toLowerCase());
+    }
+
+    public void sign() {
+    }
+
+    public boolean save() {
+        FakeDomino.Note note = domino.save(unid, items);
+        unid = note.unid;
+        noteId = note.noteId;
+        lastModified = domino.proxy(DateTime.class, new FakeDateTime(note.lastModified));
+        return true;
+    }
+
+    public boolean save(boolean force, boolean createResponse) {
+        return save();
+    }
+
+    public boolean remove(boolean force) throws NotesException {
+        if (unid == null || !domino.remove(unid)) {
+            throw new NotesException(NotesError.NOTES_ERR_BAD_UNID, "Document has been deleted.");
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return unid + items.values();
+    }
+}
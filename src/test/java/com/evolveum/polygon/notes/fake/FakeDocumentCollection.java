@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes.fake;
+
+import lotus.domino.Base;
+import lotus.domino.Document;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Backing object of {@link lotus.domino.DocumentCollection} proxy. Collection keeps UNIDs, documents are
+ * opened when navigated to, documents deleted in the meantime are skipped.
+ */
+class FakeDocumentCollection {
+
+    private final FakeDomino domino;
+    private final List<String> unids;
+    private int position = -1;
+
+    FakeDocumentCollection(FakeDomino domino, List<String> unids) {
+        this.domino = domino;
+        this.unids = new ArrayList<String>(unids);
+    }
+
+    List<String> getUnids() {
+        return unids;
+    }
+
+    public int getCount() {
+        return unids.size();
+    }
+
+    public Document getFirstDocument() {
+        position = -1;
+        return getNextDocument();
+    }
+
+    public Document getNextDocument() {
+        while (++position < unids.size()) {
+            Document document = open(unids.get(position));
+            if (document != null) {
+                return document;
+            }
+        }
+        return null;
+    }
+
+    public Document getNextDocument(Document document) {
+        return getNextDocument();
+    }
+
+    public Document getNthDocument(int n) {
+        position = n - 2;
+        return getNextDocument();
+    }
+
+    public Document getLastDocument() {
+        for (position = unids.size() - 1; position >= 0; position--) {
+            Document document = open(unids.get(position));
+            if (document != null) {
+                return document;
+            }
+        }
+        return null;
+    }
+
+    private Document open(String unid) {
+        FakeDomino.Note note = domino.get(unid);
+        return note != null ? domino.proxy(Document.class, new FakeDocument(domino, note)) : null;
+    }
+
+    public void addDocument(Document document) {
+        FakeDocument fake = FakeDomino.unwrap(document, FakeDocument.class);
+        if (fake != null && fake.getUnid() != null && !unids.contains(fake.getUnid())) {
+            unids.add(fake.getUnid());
+        }
+    }
+
+    public boolean contains(Base base) {
+        FakeDocument fake = FakeDomino.unwrap(base, FakeDocument.class);
+        return fake != null && unids.contains(fake.getUnid());
+    }
+
+    public void intersect(Base base) {
+        FakeDocumentCollection other = FakeDomino.unwrap(base, FakeDocumentCollection.class);
+        Set<String> retained = new HashSet<String>(other != null ? other.unids : new ArrayList<String>());
+        unids.retainAll(retained);
+    }
+
+    @Override
+    public String toString() {
+        return unids.toString();
+    }
+}
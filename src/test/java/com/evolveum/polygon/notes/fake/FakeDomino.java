@@ -0,0 +1,606 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes.fake;
+
+import lotus.domino.NotesError;
+import lotus.domino.NotesException;
+import lotus.domino.Session;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-process fake of Domino server used by load generator and tests. Documents are kept in memory,
+ * {@code lotus.domino} objects are dynamic proxies backed by fake classes of this package. Every call
+ * of proxy is counted (per interface and method) and delayed by configured latency, which simulates
+ * DIIOP round trip.
+ * <p/>
+ * Only the part of API which is used by connector is implemented, other methods throw
+ * {@link UnsupportedOperationException}. Setters without backing method and recycle calls are ignored.
+ */
+public class FakeDomino {
+
+    public static final String DEFAULT_ORGANIZATION = "Acme";
+
+    static final String[] LAST_NAMES = {"Smith", "Johnson", "Williams", "Brown", "Jones", "Miller",
+            "Davis", "Garcia", "Wilson", "Moore", "Taylor", "Anderson", "Thomas", "Jackson", "White", "Harris",
+            "Martin", "Thompson", "Clark", "Lewis"};
+
+    /**
+     * Stored version of document, replaced as a whole when document is saved.
+     */
+    static final class Note {
+
+        final String unid;
+        final String noteId;
+        final Date lastModified;
+        /**
+         * lower case item name -> item
+         */
+        final Map<String, FakeItem> items;
+
+        Note(String unid, String noteId, Date lastModified, Map<String, FakeItem> items) {
+            this.unid = unid;
+            this.noteId = noteId;
+            this.lastModified = lastModified;
+            this.items = items;
+        }
+
+        FakeItem getItem(String name) {
+            return items.get(name.toLowerCase());
+        }
+
+        List<Object> getValues(String name) {
+            FakeItem item = getItem(name);
+            return item != null ? item.getValueList() : Collections.emptyList();
+        }
+    }
+
+    private static final AtomicInteger REPLICA_IDS = new AtomicInteger();
+
+    private final String organization;
+    private final String replicaId = String.format("%016X", REPLICA_IDS.incrementAndGet());
+
+    private final Map<String, Note> notes = new LinkedHashMap<String, Note>();
+    private final Map<String, String> views = new HashMap<String, String>();
+    private final AtomicInteger noteIds = new AtomicInteger(0x8F6);
+    private long lastModified;
+
+    private final ConcurrentMap<String, AtomicLong> calls = new ConcurrentHashMap<String, AtomicLong>();
+    private final ConcurrentMap<Method, Method> dispatch = new ConcurrentHashMap<Method, Method>();
+    private volatile long latencyNanos;
+    private volatile String failingCall;
+    private final AtomicInteger failingCallCountdown = new AtomicInteger();
+
+    public FakeDomino() {
+        this(DEFAULT_ORGANIZATION);
+    }
+
+    public FakeDomino(String organization) {
+        this.organization = organization;
+
+        addView("($VIMPeople)", "FullName");
+        addView("($VIMGroups)", "ListName");
+        addView("($ServerAccess)", "Members");
+    }
+
+    public String getOrganization() {
+        return organization;
+    }
+
+    /**
+     * @return replica id shared by all databases of fake server, unique for every instance
+     */
+    String getReplicaId() {
+        return replicaId;
+    }
+
+    /**
+     * @param latency delay of every remote call in microseconds
+     */
+    public void setLatency(long latency) {
+        this.latencyNanos = TimeUnit.MICROSECONDS.toNanos(latency);
+    }
+
+    /**
+     * Next call of method fails as if session was closed by server.
+     *
+     * @param key has form {@code Interface.method}, e.g. {@code DocumentCollection.getNextDocument}
+     */
+    public void failNextCall(String key) {
+        failCall(key, 1);
+    }
+
+    /**
+     * N-th next call of method fails as if session was closed by server, previous calls succeed.
+     */
+    public void failCall(String key, int n) {
+        failingCallCountdown.set(n);
+        this.failingCall = key;
+    }
+
+    /**
+     * Adds view sorted by first value of item. Document is in view once for every value of item.
+     */
+    public synchronized void addView(String name, String item) {
+        views.put(name.toLowerCase(), item);
+    }
+
+    synchronized String getViewItem(String name) {
+        return views.get(name.toLowerCase());
+    }
+
+    public Session createSession() {
+        return proxy(Session.class, new FakeSession(this));
+    }
+
+    /**
+     * Creates person document directly in store, without remote call.
+     *
+     * @return UNID of person document
+     */
+    public String addPerson(String firstName, String lastName) {
+        Map<String, Object> items = new LinkedHashMap<String, Object>();
+        items.put("Form", "Person");
+        items.put("Type", "Person");
+        items.put("FullName", new Vector<Object>(createFullNames(firstName, null, lastName, null)));
+        items.put("FirstName", firstName);
+        items.put("LastName", lastName);
+        items.put("MailFile", "mail/" + (firstName + lastName).toLowerCase());
+
+        return save(null, createItems(items)).unid;
+    }
+
+    /**
+     * Creates group document directly in store, without remote call.
+     *
+     * @return UNID of group document
+     */
+    public String addGroup(String name, Collection<String> members, String groupType) {
+        Map<String, Object> items = new LinkedHashMap<String, Object>();
+        items.put("Form", "Group");
+        items.put("Type", "Group");
+        items.put("ListName", name);
+        items.put("GroupType", groupType);
+        items.put("Members", new Vector<Object>(members));
+
+        return save(null, createItems(items)).unid;
+    }
+
+    /**
+     * Creates users "User{i} {last name}" and groups "Group {i}", every user is member of fan out random groups.
+     *
+     * @return UNIDs of person documents
+     */
+    public List<String> addDirectory(int users, int groups, int fanOut, Random random) {
+        List<List<String>> members = new ArrayList<List<String>>();
+        for (int i = 0; i < groups; i++) {
+            members.add(new ArrayList<String>());
+        }
+
+        List<String> unids = new ArrayList<String>();
+        for (int i = 0; i < users; i++) {
+            String firstName = "User" + i;
+            String lastName = LAST_NAMES[i % LAST_NAMES.length];
+            unids.add(addPerson(firstName, lastName));
+
+            String fullName = createFullNames(firstName, null, lastName, null).get(0);
+            for (int group : pickGroups(groups, fanOut, random)) {
+                members.get(group).add(fullName);
+            }
+        }
+
+        for (int i = 0; i < groups; i++) {
+            addGroup(getGroupName(i), members.get(i), "0");
+        }
+
+        return unids;
+    }
+
+    public static String getGroupName(int index) {
+        return "Group " + index;
+    }
+
+    /**
+     * @return indexes of fan out distinct random groups
+     */
+    static Set<Integer> pickGroups(int groups, int fanOut, Random random) {
+        Set<Integer> picked = new HashSet<Integer>();
+        int count = Math.min(fanOut, groups);
+        while (picked.size() < count) {
+            picked.add(random.nextInt(groups));
+        }
+        return picked;
+    }
+
+    /**
+     * @return abbreviated name of person, e.g. John Doe/Acme
+     */
+    public String getPersonName(String unid) {
+        Note note = get(unid);
+        return note != null ? new FakeName(String.valueOf(note.getValues("FullName").get(0))).getAbbreviated() : null;
+    }
+
+    /**
+     * @return canonical and common name of person, in the same form as they're stored in FullName item
+     */
+    List<String> createFullNames(String firstName, String middleInitial, String lastName, String orgUnit) {
+        StringBuilder common = new StringBuilder();
+        for (String part : new String[]{firstName, middleInitial, lastName}) {
+            if (part == null || part.isEmpty()) {
+                continue;
+            }
+            if (common.length() > 0) {
+                common.append(' ');
+            }
+            common.append(part);
+        }
+
+        StringBuilder canonical = new StringBuilder("CN=").append(common);
+        if (orgUnit != null && !orgUnit.isEmpty()) {
+            canonical.append("/OU=").append(orgUnit);
+        }
+        canonical.append("/O=").append(organization);
+
+        List<String> names = new ArrayList<String>();
+        names.add(canonical.toString());
+        names.add(common.toString());
+        return names;
+    }
+
+    static Map<String, FakeItem> createItems(Map<String, Object> values) {
+        Map<String, FakeItem> items = new LinkedHashMap<String, FakeItem>();
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            items.put(entry.getKey().toLowerCase(), new FakeItem(entry.getKey(), entry.getValue()));
+        }
+        return items;
+    }
+
+    String nextNoteId() {
+        return Integer.toHexString(noteIds.getAndIncrement()).toUpperCase();
+    }
+
+    synchronized Note get(String unid) {
+        return unid != null ? notes.get(unid.toUpperCase()) : null;
+    }
+
+    synchronized Note getByNoteId(String noteId) {
+        for (Note note : notes.values()) {
+            if (note.noteId.equalsIgnoreCase(noteId)) {
+                return note;
+            }
+        }
+        return null;
+    }
+
+    synchronized int size() {
+        return notes.size();
+    }
+
+    /**
+     * @param since only documents modified after this date are returned, may be null
+     * @return UNIDs of documents matching formula
+     */
+    synchronized List<String> search(FakeFormula formula, Date since) {
+        List<String> result = new ArrayList<String>();
+        for (Note note : notes.values()) {
+            if (since != null && !note.lastModified.after(since)) {
+                continue;
+            }
+            if (formula.matches(note)) {
+                result.add(note.unid);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return UNIDs of documents sorted by (case insensitive) value of item, document is listed
+     * once for every value of item
+     */
+    synchronized List<String> sort(String itemName, String key, boolean exact) {
+        TreeMap<String, List<String>> sorted = new TreeMap<String, List<String>>();
+        for (Note note : notes.values()) {
+            for (Object value : note.getValues(itemName)) {
+                String text = String.valueOf(value).toLowerCase();
+                if (key != null && !(exact ? text.equals(key.toLowerCase()) : text.startsWith(key.toLowerCase()))) {
+                    continue;
+                }
+
+                List<String> unids = sorted.get(text);
+                if (unids == null) {
+                    unids = new ArrayList<String>();
+                    sorted.put(text, unids);
+                }
+                unids.add(note.unid);
+            }
+        }
+
+        List<String> result = new ArrayList<String>();
+        for (List<String> unids : sorted.values()) {
+            result.addAll(unids);
+        }
+        return result;
+    }
+
+    /**
+     * Stores new version of document.
+     *
+     * @param unid null if document is new
+     */
+    synchronized Note save(String unid, Map<String, FakeItem> items) {
+        Note old = unid != null ? notes.get(unid) : null;
+        String noteId = old != null ? old.noteId : nextNoteId();
+        if (unid == null) {
+            unid = createUnid();
+        }
+
+        // every save gets unique modification time, so that incremental searches can't miss it
+        lastModified = Math.max(System.currentTimeMillis(), lastModified + 1);
+        Note note = new Note(unid, noteId, new Date(lastModified), new LinkedHashMap<String, FakeItem>(items));
+        notes.put(unid, note);
+
+        return note;
+    }
+
+    synchronized boolean remove(String unid) {
+        return notes.remove(unid) != null;
+    }
+
+    /**
+     * @return first document where item contains value (case insensitive), null if there's no such document
+     */
+    synchronized Note findByItem(String itemName, String value) {
+        for (Note note : notes.values()) {
+            if (containsIgnoreCase(note.getValues(itemName), value)) {
+                return note;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes value from item in all documents which contain it.
+     */
+    synchronized void removeFromItems(String itemName, String value) {
+        for (Note note : new ArrayList<Note>(notes.values())) {
+            List<Object> values = note.getValues(itemName);
+            if (!containsIgnoreCase(values, value)) {
+                continue;
+            }
+
+            Vector<Object> remaining = new Vector<Object>();
+            for (Object item : values) {
+                if (!String.valueOf(item).equalsIgnoreCase(value)) {
+                    remaining.add(item);
+                }
+            }
+            Map<String, FakeItem> items = new LinkedHashMap<String, FakeItem>(note.items);
+            items.put(itemName.toLowerCase(), new FakeItem(note.getItem(itemName).getName(), remaining));
+            save(note.unid, items);
+        }
+    }
+
+    /**
+     * Adds values to item of document, values which are already there are skipped.
+     */
+    synchronized void addToItem(String unid, String itemName, Collection<?> values) {
+        Note note = notes.get(unid);
+        Vector<Object> merged = new Vector<Object>(note.getValues(itemName));
+        for (Object value : values) {
+            if (!containsIgnoreCase(merged, String.valueOf(value))) {
+                merged.add(value);
+            }
+        }
+
+        Map<String, FakeItem> items = new LinkedHashMap<String, FakeItem>(note.items);
+        FakeItem old = note.getItem(itemName);
+        items.put(itemName.toLowerCase(), new FakeItem(old != null ? old.getName() : itemName, merged));
+        save(note.unid, items);
+    }
+
+    private static boolean containsIgnoreCase(List<Object> values, String value) {
+        for (Object item : values) {
+            if (String.valueOf(item).equalsIgnoreCase(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String createUnid() {
+        String unid;
+        do {
+            unid = (Long.toHexString(Double.doubleToLongBits(Math.random()))
+                    + Long.toHexString(System.nanoTime()) + "0000000000000000").substring(0, 32).toUpperCase();
+        } while (notes.containsKey(unid));
+        return unid;
+    }
+
+    /**
+     * @return number of calls of method, key has form {@code Interface.method}, e.g. {@code Database.search}
+     */
+    public long getCallCount(String key) {
+        AtomicLong count = calls.get(key);
+        return count != null ? count.get() : 0;
+    }
+
+    /**
+     * @return number of all remote calls, recycle calls are not counted
+     */
+    public long getCallCount() {
+        long total = 0;
+        for (AtomicLong count : calls.values()) {
+            total += count.get();
+        }
+        return total;
+    }
+
+    /**
+     * @return copy of call counters sorted by key
+     */
+    public Map<String, Long> getCallCounts() {
+        Map<String, Long> result = new TreeMap<String, Long>();
+        for (Map.Entry<String, AtomicLong> entry : calls.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().get());
+        }
+        return result;
+    }
+
+    public void resetCallCounts() {
+        calls.clear();
+    }
+
+    private void recordCall(String key) throws NotesException {
+        if (key.equals(failingCall) && failingCallCountdown.decrementAndGet() == 0) {
+            failingCall = null;
+            throw new NotesException(NotesError.NOTES_ERR_SESSION_CLOSED, "Session has been closed");
+        }
+
+        AtomicLong count = calls.get(key);
+        if (count == null) {
+            calls.putIfAbsent(key, new AtomicLong());
+            count = calls.get(key);
+        }
+        count.incrementAndGet();
+
+        long latency = latencyNanos;
+        if (latency > 0) {
+            LockSupport.parkNanos(latency);
+        }
+    }
+
+    /**
+     * Creates proxy of {@code lotus.domino} interface. Calls are dispatched to public method of target
+     * with the same name and compatible parameters.
+     */
+    <T> T proxy(Class<T> type, Object target) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class[]{type},
+                new FakeHandler(type, target)));
+    }
+
+    /**
+     * @return backing object of proxy created by {@link #proxy(Class, Object)}, null if object isn't such proxy
+     */
+    static <T> T unwrap(Object proxy, Class<T> type) {
+        if (proxy == null || !Proxy.isProxyClass(proxy.getClass())) {
+            return null;
+        }
+
+        InvocationHandler handler = Proxy.getInvocationHandler(proxy);
+        if (!(handler instanceof FakeHandler)) {
+            return null;
+        }
+
+        Object target = ((FakeHandler) handler).target;
+        return type.isInstance(target) ? type.cast(target) : null;
+    }
+
+    private class FakeHandler implements InvocationHandler {
+
+        private final Class<?> type;
+        private final Object target;
+
+        private FakeHandler(Class<?> type, Object target) {
+            this.type = type;
+            this.target = target;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                if ("equals".equals(method.getName())) {
+                    return proxy == args[0];
+                }
+                if ("hashCode".equals(method.getName())) {
+                    return System.identityHashCode(proxy);
+                }
+                return type.getSimpleName() + "[" + target + "]";
+            }
+
+            String name = method.getName();
+            if ("recycle".equals(name)) {
+                return null;
+            }
+
+            recordCall(type.getSimpleName() + "." + name);
+
+            Method backing = getBackingMethod(target.getClass(), method);
+            if (backing == null) {
+                if (name.startsWith("set") && method.getReturnType() == void.class) {
+                    return null;
+                }
+                throw new UnsupportedOperationException(type.getSimpleName() + "." + name
+                        + " is not supported by fake Domino.");
+            }
+
+            try {
+                return backing.invoke(target, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        }
+    }
+
+    private Method getBackingMethod(Class<?> targetClass, Method method) {
+        Method backing = dispatch.get(method);
+        if (backing != null && backing.getDeclaringClass().isAssignableFrom(targetClass)) {
+            return backing;
+        }
+
+        Class<?>[] types = method.getParameterTypes();
+        for (Method candidate : targetClass.getMethods()) {
+            if (!candidate.getName().equals(method.getName())
+                    || candidate.getParameterTypes().length != types.length) {
+                continue;
+            }
+
+            boolean compatible = true;
+            for (int i = 0; i < types.length && compatible; i++) {
+                compatible = candidate.getParameterTypes()[i].isAssignableFrom(types[i]);
+            }
+
+            if (compatible) {
+                candidate.setAccessible(true);
+                dispatch.put(method, candidate);
+                return candidate;
+            }
+        }
+
+        return null;
+    }
+}
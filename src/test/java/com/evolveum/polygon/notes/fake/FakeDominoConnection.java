@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes.fake;
+
+import com.evolveum.polygon.notes.DominoConfiguration;
+import com.evolveum.polygon.notes.DominoConnection;
+import lotus.domino.Session;
+
+/**
+ * Connection which opens sessions on {@link FakeDomino} instead of remote server.
+ */
+public class FakeDominoConnection extends DominoConnection {
+
+    private final FakeDomino domino;
+
+    public FakeDominoConnection(DominoConfiguration config, FakeDomino domino) {
+        super(config);
+        this.domino = domino;
+    }
+
+    @Override
+    protected Session createSession() {
+        return domino.createSession();
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes.fake;
+
+import com.evolveum.polygon.notes.DominoConfiguration;
+import com.evolveum.polygon.notes.DominoConnection;
+import com.evolveum.polygon.notes.DominoConnector;
+import org.identityconnectors.common.security.GuardedString;
+
+/**
+ * Connector working with {@link FakeDomino}.
+ */
+public class FakeDominoConnector extends DominoConnector {
+
+    private final FakeDomino domino;
+
+    public FakeDominoConnector(FakeDomino domino) {
+        this.domino = domino;
+    }
+
+    /**
+     * @return configuration which passes connector checks, server names don't matter for fake
+     */
+    public static DominoConfiguration createConfiguration() {
+        DominoConfiguration config = new DominoConfiguration();
+        config.setIorHost("fake");
+        config.setAdminName("CN=Admin/O=" + FakeDomino.DEFAULT_ORGANIZATION);
+        config.setAdminPassword(new GuardedString("admin".toCharArray()));
+        config.setCertifierPassword(new GuardedString("certifier".toCharArray()));
+        config.setRegistrationServer("CN=Fake/O=" + FakeDomino.DEFAULT_ORGANIZATION);
+        config.setAdministrationServer("CN=Fake/O=" + FakeDomino.DEFAULT_ORGANIZATION);
+        config.setMailServer("CN=Fake/O=" + FakeDomino.DEFAULT_ORGANIZATION);
+
+        return config;
+    }
+
+    @Override
+    protected DominoConnection createConnection(DominoConfiguration config) {
+        return new FakeDominoConnection(config, domino);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes.fake;
+
+import com.evolveum.polygon.notes.DominoDocumentData;
+import com.evolveum.polygon.notes.DominoDxlWriter;
+import lotus.domino.DocumentCollection;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Backing object of {@link lotus.domino.DxlExporter} proxy. Documents of collection are written by
+ * {@link DominoDxlWriter}, therefore date time values are exported as text.
+ */
+class FakeDxlExporter {
+
+    private final FakeDomino domino;
+
+    FakeDxlExporter(FakeDomino domino) {
+        this.domino = domino;
+    }
+
+    public String exportDxl(DocumentCollection collection) throws XMLStreamException {
+        FakeDocumentCollection fake = FakeDomino.unwrap(collection, FakeDocumentCollection.class);
+
+        StringWriter dxl = new StringWriter();
+        DominoDxlWriter writer = new DominoDxlWriter(dxl);
+        for (String unid : fake.getUnids()) {
+            FakeDomino.Note note = domino.get(unid);
+            if (note == null) {
+                continue;
+            }
+
+            List<DominoDocumentData.ItemData> items = new ArrayList<DominoDocumentData.ItemData>();
+            for (FakeItem item : note.items.values()) {
+                items.add(new DominoDocumentData.ItemData(item.getName(), item.getType(), item.getValueList()));
+            }
+            Object form = note.getValues("Form").isEmpty() ? "Document" : note.getValues("Form").get(0);
+            writer.writeDocument(form.toString(), unid, items);
+        }
+        writer.close();
+
+        return dxl.toString();
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes.fake;
+
+import com.evolveum.polygon.notes.DominoDocumentData;
+import com.evolveum.polygon.notes.DominoDxlReader;
+import lotus.domino.Database;
+import lotus.domino.DxlImporter;
+import lotus.domino.NotesException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Backing object of {@link DxlImporter} proxy. Only creating of documents is supported, documents are
+ * read by {@link DominoDxlReader} and form attribute of document is stored as Form item.
+ */
+class FakeDxlImporter {
+
+    private final FakeDomino domino;
+    private final List<String> noteIds = new ArrayList<String>();
+    private int documentImportOption = DxlImporter.DXLIMPORTOPTION_CREATE;
+
+    FakeDxlImporter(FakeDomino domino) {
+        this.domino = domino;
+    }
+
+    public void setDocumentImportOption(int option) {
+        this.documentImportOption = option;
+    }
+
+    public void importDxl(String dxl, Database database) throws NotesException, XMLStreamException {
+        if (documentImportOption != DxlImporter.DXLIMPORTOPTION_CREATE) {
+            throw new UnsupportedOperationException("Import option " + documentImportOption
+                    + " is not supported by fake Domino.");
+        }
+
+        List<String> forms = readForms(dxl);
+        List<DominoDocumentData> documents = DominoDxlReader.read(new StringReader(dxl));
+        for (int i = 0; i < documents.size(); i++) {
+            Map<String, Object> values = new LinkedHashMap<String, Object>();
+            values.put("Form", forms.get(i));
+            for (DominoDocumentData.ItemData item : documents.get(i).getItems()) {
+                values.put(item.getName(), item.getValues());
+            }
+            noteIds.add(domino.save(null, FakeDomino.createItems(values)).noteId);
+        }
+    }
+
+    public int getImportedNoteCount() {
+        return noteIds.size();
+    }
+
+    public String getFirstImportedNoteID() {
+        return noteIds.isEmpty() ? null : noteIds.get(0);
+    }
+
+    public String getNextImportedNoteID(String noteId) {
+        int index = noteIds.indexOf(noteId) + 1;
+        return index > 0 && index < noteIds.size() ? noteIds.get(index) : null;
+    }
+
+    public String getLog() {
+        return "";
+    }
+
+    private static List<String> readForms(String dxl) throws XMLStreamException {
+        List<String> forms = new ArrayList<String>();
+        XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(new StringReader(dxl));
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && "document".equals(reader.getLocalName())) {
+                    forms.add(reader.getAttributeValue(null, "form"));
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return forms;
+    }
+}
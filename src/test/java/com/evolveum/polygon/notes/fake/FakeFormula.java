@@ -0,0 +1,379 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes.fake;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Evaluator of the subset of Notes selection formulas created by connector: item names, text and number
+ * constants, lists ({@code :}), comparisons, {@code ! & |}, parentheses and functions {@code @LowerCase},
+ * {@code @UpperCase}, {@code @Contains}, {@code @Begins}, {@code @Ends} and {@code @GetField}.
+ * <p/>
+ * Values are lists, comparison is true if any pair of values matches, as in Notes. Text comparison
+ * is case sensitive. Item {@code NoteID} is evaluated as document UNID. Formula which can't be parsed
+ * is error of connector, {@link IllegalArgumentException} is thrown.
+ */
+class FakeFormula {
+
+    private static final ConcurrentMap<String, FakeFormula> CACHE = new ConcurrentHashMap<String, FakeFormula>();
+
+    private static final List<Object> TRUE = Collections.<Object>singletonList(1d);
+    private static final List<Object> FALSE = Collections.<Object>singletonList(0d);
+
+    private interface Node {
+
+        List<Object> evaluate(FakeDomino.Note note);
+    }
+
+    private final String formula;
+    private final Node root;
+    private int position;
+
+    private FakeFormula(String formula) {
+        this.formula = formula;
+        this.root = parseOr();
+
+        skipSpaces();
+        if (position < formula.length()) {
+            throw error("unexpected '" + formula.charAt(position) + "'");
+        }
+    }
+
+    static FakeFormula parse(String formula) {
+        FakeFormula parsed = CACHE.get(formula);
+        if (parsed == null) {
+            parsed = new FakeFormula(formula);
+            CACHE.putIfAbsent(formula, parsed);
+        }
+        return parsed;
+    }
+
+    boolean matches(FakeDomino.Note note) {
+        return isTrue(root.evaluate(note));
+    }
+
+    private static boolean isTrue(List<Object> values) {
+        for (Object value : values) {
+            if (value instanceof Number && ((Number) value).doubleValue() != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Formula error: " + message + " at " + position + " in " + formula);
+    }
+
+    private void skipSpaces() {
+        while (position < formula.length() && Character.isWhitespace(formula.charAt(position))) {
+            position++;
+        }
+    }
+
+    private boolean accept(String token) {
+        skipSpaces();
+        if (formula.startsWith(token, position)) {
+            position += token.length();
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String token) {
+        if (!accept(token)) {
+            throw error("expected '" + token + "'");
+        }
+    }
+
+    private Node parseOr() {
+        Node node = parseAnd();
+        while (accept("|")) {
+            final Node left = node;
+            final Node right = parseAnd();
+            node = new Node() {
+
+                public List<Object> evaluate(FakeDomino.Note note) {
+                    return isTrue(left.evaluate(note)) || isTrue(right.evaluate(note)) ? TRUE : FALSE;
+                }
+            };
+        }
+        return node;
+    }
+
+    private Node parseAnd() {
+        Node node = parseNot();
+        while (accept("&")) {
+            final Node left = node;
+            final Node right = parseNot();
+            node = new Node() {
+
+                public List<Object> evaluate(FakeDomino.Note note) {
+                    return isTrue(left.evaluate(note)) && isTrue(right.evaluate(note)) ? TRUE : FALSE;
+                }
+            };
+        }
+        return node;
+    }
+
+    private Node parseNot() {
+        skipSpaces();
+        if (formula.startsWith("!", position) && !formula.startsWith("!=", position)) {
+            position++;
+            final Node operand = parseNot();
+            return new Node() {
+
+                public List<Object> evaluate(FakeDomino.Note note) {
+                    return isTrue(operand.evaluate(note)) ? FALSE : TRUE;
+                }
+            };
+        }
+        return parseComparison();
+    }
+
+    private Node parseComparison() {
+        final Node left = parseList();
+
+        final String operator;
+        if (accept("!=") || accept("<>")) {
+            operator = "!=";
+        } else if (accept("<=")) {
+            operator = "<=";
+        } else if (accept(">=")) {
+            operator = ">=";
+        } else if (accept("=")) {
+            operator = "=";
+        } else if (accept("<")) {
+            operator = "<";
+        } else if (accept(">")) {
+            operator = ">";
+        } else {
+            return left;
+        }
+
+        final Node right = parseList();
+        return new Node() {
+
+            public List<Object> evaluate(FakeDomino.Note note) {
+                List<Object> leftValues = left.evaluate(note);
+                List<Object> rightValues = right.evaluate(note);
+                if ("!=".equals(operator)) {
+                    // Notes "!=" is true only if no pair of values is equal
+                    return compareAny(leftValues, rightValues, "=") ? FALSE : TRUE;
+                }
+                return compareAny(leftValues, rightValues, operator) ? TRUE : FALSE;
+            }
+        };
+    }
+
+    private static boolean compareAny(List<Object> left, List<Object> right, String operator) {
+        for (Object l : left) {
+            for (Object r : right) {
+                int result = compare(l, r);
+                if (("=".equals(operator) && result == 0) || ("<".equals(operator) && result < 0)
+                        || (">".equals(operator) && result > 0) || ("<=".equals(operator) && result <= 0)
+                        || (">=".equals(operator) && result >= 0)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static int compare(Object left, Object right) {
+        if (left instanceof Number && right instanceof Number) {
+            return Double.compare(((Number) left).doubleValue(), ((Number) right).doubleValue());
+        }
+        if (left instanceof Date && right instanceof Date) {
+            return ((Date) left).compareTo((Date) right);
+        }
+        return String.valueOf(left).compareTo(String.valueOf(right));
+    }
+
+    private Node parseList() {
+        final List<Node> nodes = new ArrayList<Node>();
+        nodes.add(parsePrimary());
+        while (accept(":")) {
+            nodes.add(parsePrimary());
+        }
+
+        if (nodes.size() == 1) {
+            return nodes.get(0);
+        }
+        return new Node() {
+
+            public List<Object> evaluate(FakeDomino.Note note) {
+                List<Object> values = new ArrayList<Object>();
+                for (Node node : nodes) {
+                    values.addAll(node.evaluate(note));
+                }
+                return values;
+            }
+        };
+    }
+
+    private Node parsePrimary() {
+        skipSpaces();
+        if (position >= formula.length()) {
+            throw error("unexpected end");
+        }
+
+        char c = formula.charAt(position);
+        if (c == '(') {
+            position++;
+            Node node = parseOr();
+            expect(")");
+            return node;
+        }
+        if (c == '"' || c == '\'') {
+            return constant(parseString(c));
+        }
+        if (Character.isDigit(c) || c == '-') {
+            int start = position++;
+            while (position < formula.length()
+                    && (Character.isDigit(formula.charAt(position)) || formula.charAt(position) == '.')) {
+                position++;
+            }
+            return constant(Double.valueOf(formula.substring(start, position)));
+        }
+        if (c == '@') {
+            position++;
+            return parseFunction(parseIdentifier());
+        }
+
+        final String field = parseIdentifier();
+        return new Node() {
+
+            public List<Object> evaluate(FakeDomino.Note note) {
+                return getField(note, field);
+            }
+        };
+    }
+
+    private static List<Object> getField(FakeDomino.Note note, String field) {
+        if ("NoteID".equalsIgnoreCase(field)) {
+            return Collections.<Object>singletonList(note.unid);
+        }
+
+        List<Object> values = note.getValues(field);
+        // missing item evaluates to empty text
+        return values.isEmpty() ? Collections.<Object>singletonList("") : values;
+    }
+
+    private Node constant(Object value) {
+        final List<Object> values = Collections.singletonList(value);
+        return new Node() {
+
+            public List<Object> evaluate(FakeDomino.Note note) {
+                return values;
+            }
+        };
+    }
+
+    private String parseString(char quote) {
+        position++;
+        StringBuilder sb = new StringBuilder();
+        while (position < formula.length()) {
+            char c = formula.charAt(position++);
+            if (c == '\\' && position < formula.length()) {
+                sb.append(formula.charAt(position++));
+            } else if (c == quote) {
+                return sb.toString();
+            } else {
+                sb.append(c);
+            }
+        }
+        throw error("unterminated string");
+    }
+
+    private String parseIdentifier() {
+        skipSpaces();
+        int start = position;
+        while (position < formula.length() && (Character.isLetterOrDigit(formula.charAt(position))
+                || formula.charAt(position) == '_' || formula.charAt(position) == '$')) {
+            position++;
+        }
+        if (start == position) {
+            throw error("expected identifier");
+        }
+        return formula.substring(start, position);
+    }
+
+    private Node parseFunction(final String name) {
+        final List<Node> args = new ArrayList<Node>();
+        if (accept("(")) {
+            if (!accept(")")) {
+                do {
+                    args.add(parseOr());
+                } while (accept(";"));
+                expect(")");
+            }
+        }
+
+        final String function = name.toLowerCase();
+        if (function.equals("lowercase") || function.equals("uppercase") || function.equals("getfield")) {
+            checkArguments(name, args, 1);
+        } else if (function.equals("contains") || function.equals("begins") || function.equals("ends")) {
+            checkArguments(name, args, 2);
+        } else {
+            throw error("unsupported function @" + name);
+        }
+
+        return new Node() {
+
+            public List<Object> evaluate(FakeDomino.Note note) {
+                List<Object> first = args.get(0).evaluate(note);
+                if (function.equals("getfield")) {
+                    return getField(note, String.valueOf(first.get(0)));
+                }
+                if (function.equals("lowercase") || function.equals("uppercase")) {
+                    List<Object> values = new ArrayList<Object>(first.size());
+                    for (Object value : first) {
+                        String text = String.valueOf(value);
+                        values.add(function.equals("lowercase") ? text.toLowerCase() : text.toUpperCase());
+                    }
+                    return values;
+                }
+
+                List<Object> second = args.get(1).evaluate(note);
+                for (Object value : first) {
+                    String text = String.valueOf(value);
+                    for (Object pattern : second) {
+                        String part = String.valueOf(pattern);
+                        if ((function.equals("contains") && text.contains(part))
+                                || (function.equals("begins") && text.startsWith(part))
+                                || (function.equals("ends") && text.endsWith(part))) {
+                            return TRUE;
+                        }
+                    }
+                }
+                return FALSE;
+            }
+        };
+    }
+
+    private void checkArguments(String name, List<Node> args, int count) {
+        if (args.size() != count) {
+            throw error("@" + name + " expects " + count + " arguments");
+        }
+    }
+}
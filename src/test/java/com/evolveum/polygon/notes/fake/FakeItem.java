@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes.fake;
+
+import lotus.domino.DateTime;
+import lotus.domino.Item;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Vector;
+
+/**
+ * Backing object of {@link Item} proxy, immutable. Numbers are stored as doubles and dates as {@link Date},
+ * same as Domino returns them.
+ */
+class FakeItem {
+
+    private final String name;
+    private final List<Object> values;
+    private final int type;
+
+    FakeItem(String name, Object value) {
+        this.name = name;
+
+        List<Object> list = new ArrayList<Object>();
+        if (value instanceof Collection) {
+            for (Object item : (Collection<?>) value) {
+                list.add(normalize(item));
+            }
+        } else if (value != null) {
+            list.add(normalize(value));
+        }
+        this.values = Collections.unmodifiableList(list);
+        this.type = getType(list);
+    }
+
+    private static Object normalize(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value instanceof DateTime) {
+            FakeDateTime dateTime = FakeDomino.unwrap(value, FakeDateTime.class);
+            if (dateTime != null) {
+                return dateTime.toJavaDate();
+            }
+        }
+        return value;
+    }
+
+    private static int getType(List<Object> values) {
+        Object first = values.isEmpty() ? null : values.get(0);
+        if (first instanceof Number) {
+            return Item.NUMBERS;
+        }
+        if (first instanceof Date) {
+            return Item.DATETIMES;
+        }
+        return Item.TEXT;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    List<Object> getValueList() {
+        return values;
+    }
+
+    /**
+     * @return copy of values, dates are returned as {@link Date}, connector converts both dates and
+     * {@link DateTime} objects
+     */
+    public Vector<Object> getValues() {
+        return new Vector<Object>(values);
+    }
+
+    public String getValueString() {
+        return values.isEmpty() || values.get(0) == null ? "" : values.get(0).toString();
+    }
+
+    public String getText() {
+        StringBuilder sb = new StringBuilder();
+        for (Object value : values) {
+            if (sb.length() > 0) {
+                sb.append(';');
+            }
+            sb.append(value);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return name + "=" + values;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes.fake;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Backing object of {@link lotus.domino.Name} proxy. Hierarchical name is parsed from canonical
+ * (CN=John Doe/OU=Sales/O=Acme) or abbreviated (John Doe/Sales/Acme) form, flat name is kept as is.
+ */
+class FakeName {
+
+    private final String value;
+    private String common;
+    private String organization;
+    private final List<String> orgUnits = new ArrayList<String>();
+
+    FakeName(String value) {
+        this.value = value;
+
+        String[] parts = value.split("/");
+        if (parts.length == 1 && !value.contains("=")) {
+            return;
+        }
+
+        for (int i = 0; i < parts.length; i++) {
+            String part = parts[i].trim();
+            int index = part.indexOf('=');
+            String key = index > 0 ? part.substring(0, index).trim().toUpperCase() : null;
+            String text = index > 0 ? part.substring(index + 1).trim() : part;
+
+            if ("CN".equals(key) || (key == null && i == 0)) {
+                common = text;
+            } else if ("O".equals(key) || (key == null && i == parts.length - 1)) {
+                organization = text;
+            } else {
+                orgUnits.add(text);
+            }
+        }
+    }
+
+    private boolean isHierarchical() {
+        return common != null && organization != null;
+    }
+
+    public String getCanonical() {
+        if (!isHierarchical()) {
+            return value;
+        }
+
+        StringBuilder sb = new StringBuilder("CN=").append(common);
+        for (String orgUnit : orgUnits) {
+            sb.append("/OU=").append(orgUnit);
+        }
+        return sb.append("/O=").append(organization).toString();
+    }
+
+    public String getAbbreviated() {
+        if (!isHierarchical()) {
+            return value;
+        }
+
+        StringBuilder sb = new StringBuilder(common);
+        for (String orgUnit : orgUnits) {
+            sb.append('/').append(orgUnit);
+        }
+        return sb.append('/').append(organization).toString();
+    }
+
+    public String getCommon() {
+        return common != null ? common : value;
+    }
+
+    public String getOrganization() {
+        return organization != null ? organization : "";
+    }
+
+    public String getOrgUnit1() {
+        return getOrgUnit(1);
+    }
+
+    public String getOrgUnit2() {
+        return getOrgUnit(2);
+    }
+
+    public String getOrgUnit3() {
+        return getOrgUnit(3);
+    }
+
+    public String getOrgUnit4() {
+        return getOrgUnit(4);
+    }
+
+    /**
+     * @param level 1 is organizational unit next to common name
+     */
+    private String getOrgUnit(int level) {
+        return orgUnits.size() >= level ? orgUnits.get(level - 1) : "";
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes.fake;
+
+import lotus.domino.NotesException;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+
+/**
+ * Backing object of {@link lotus.domino.Registration} proxy. New user is registered immediately, person
+ * document is created and user is added to groups from group list. ID and mail files are not created.
+ */
+class FakeRegistration {
+
+    private final FakeDomino domino;
+    private String orgUnit;
+    private Vector<?> groupList;
+
+    FakeRegistration(FakeDomino domino) {
+        this.domino = domino;
+    }
+
+    public void setOrgUnit(String orgUnit) {
+        this.orgUnit = orgUnit;
+    }
+
+    public void setGroupList(Vector<?> groupList) {
+        this.groupList = groupList;
+    }
+
+    /**
+     * @return false if person with the same full name already exists
+     */
+    public boolean registerNewUser(String lastName, String idFile, String server, String firstName, String middle,
+                                   String certPassword, String location, String comment, String mailDbPath,
+                                   String forward, String userPassword, String altName, String altNameLang)
+            throws NotesException {
+        List<String> fullNames = domino.createFullNames(firstName, middle, lastName, orgUnit);
+        if (domino.findByItem("FullName", fullNames.get(0)) != null) {
+            return false;
+        }
+
+        Map<String, Object> items = new LinkedHashMap<String, Object>();
+        items.put("Form", "Person");
+        items.put("Type", "Person");
+        items.put("FullName", new Vector<Object>(fullNames));
+        items.put("FirstName", firstName);
+        items.put("MiddleInitial", middle);
+        items.put("LastName", lastName);
+        items.put("MailServer", server);
+        items.put("MailFile", mailDbPath);
+        items.put("Location", location);
+        items.put("Comment", comment);
+        domino.save(null, FakeDomino.createItems(items));
+
+        if (groupList != null) {
+            for (Object group : groupList) {
+                FakeDomino.Note note = domino.findByItem("ListName", String.valueOf(group));
+                if (note != null) {
+                    domino.addToItem(note.unid, "Members", fullNames.subList(0, 1));
+                }
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes.fake;
+
+import lotus.domino.AdministrationProcess;
+import lotus.domino.Database;
+import lotus.domino.DateTime;
+import lotus.domino.DxlExporter;
+import lotus.domino.DxlImporter;
+import lotus.domino.Name;
+import lotus.domino.Registration;
+import lotus.domino.Session;
+
+import java.util.Date;
+
+/**
+ * Backing object of {@link Session} proxy.
+ */
+class FakeSession {
+
+    private final FakeDomino domino;
+    private Session session;
+
+    FakeSession(FakeDomino domino) {
+        this.domino = domino;
+    }
+
+    private Session getSession() {
+        if (session == null) {
+            session = domino.proxy(Session.class, this);
+        }
+        return session;
+    }
+
+    public boolean isValid() {
+        return true;
+    }
+
+    public String getServerName() {
+        return "CN=Fake/O=" + domino.getOrganization();
+    }
+
+    public Name createName(String name) {
+        return domino.proxy(Name.class, new FakeName(name));
+    }
+
+    /**
+     * Only "Today" and "Now" are supported as text date.
+     */
+    public DateTime createDateTime(String time) {
+        if (!"Today".equalsIgnoreCase(time) && !"Now".equalsIgnoreCase(time)) {
+            throw new UnsupportedOperationException("Date '" + time + "' is not supported by fake Domino.");
+        }
+        return createDateTime(new Date());
+    }
+
+    public DateTime createDateTime(Date date) {
+        return domino.proxy(DateTime.class, new FakeDateTime(date));
+    }
+
+    public Database getDatabase(String server, String filePath) {
+        return getDatabase(server, filePath, false);
+    }
+
+    public Database getDatabase(String server, String filePath, boolean createOnFail) {
+        return domino.proxy(Database.class, new FakeDatabase(domino, getSession(), filePath));
+    }
+
+    public Registration createRegistration() {
+        return domino.proxy(Registration.class, new FakeRegistration(domino));
+    }
+
+    public DxlExporter createDxlExporter() {
+        return domino.proxy(DxlExporter.class, new FakeDxlExporter(domino));
+    }
+
+    public DxlImporter createDxlImporter() {
+        return domino.proxy(DxlImporter.class, new FakeDxlImporter(domino));
+    }
+
+    public AdministrationProcess createAdministrationProcess(String server) {
+        return domino.proxy(AdministrationProcess.class, new FakeAdministrationProcess(domino));
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2014 Evolveum
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.evolveum.polygon.notes.fake;
+
+import lotus.domino.Base;
+import lotus.domino.Document;
+import lotus.domino.DocumentCollection;
+import lotus.domino.ViewEntry;
+import lotus.domino.ViewEntryCollection;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Backing object of {@link lotus.domino.View} proxy. View is sorted by one item, entries are computed
+ * from current documents on every call, so fake view is always up to date.
+ */
+class FakeView {
+
+    private final FakeDomino domino;
+    private final String name;
+    private final String item;
+
+    FakeView(FakeDomino domino, String name, String item) {
+        this.domino = domino;
+        this.name = name;
+        this.item = item;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void refresh() {
+    }
+
+    public int getEntryCount() {
+        return domino.sort(item, null, false).size();
+    }
+
+    public DocumentCollection getAllDocumentsByKey(Object key, boolean exact) {
+        List<String> unids = new ArrayList<String>();
+        for (String unid : domino.sort(item, String.valueOf(key), exact)) {
+            if (!unids.contains(unid)) {
+                unids.add(unid);
+            }
+        }
+        return domino.proxy(DocumentCollection.class, new FakeDocumentCollection(domino, unids));
+    }
+
+    public ViewEntryCollection getAllEntriesByKey(Object key, boolean exact) {
+        return domino.proxy(ViewEntryCollection.class,
+                new FakeEntries(domino, domino.sort(item, String.valueOf(key), exact)));
+    }
+
+    public ViewEntryCollection getAllEntries() {
+        return domino.proxy(ViewEntryCollection.class, new FakeEntries(domino, domino.sort(item, null, false)));
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * Backing object of {@link ViewEntryCollection} proxy.
+     */
+    static class FakeEntries {
+
+        private final FakeDomino domino;
+        private final List<String> unids;
+        private int position = -1;
+
+        FakeEntries(FakeDomino domino, List<String> unids) {
+            this.domino = domino;
+            this.unids = new ArrayList<String>(unids);
+        }
+
+        public int getCount() {
+            return unids.size();
+        }
+
+        public ViewEntry getFirstEntry() {
+            return getEntry(0);
+        }
+
+        public ViewEntry getLastEntry() {
+            return getEntry(unids.size() - 1);
+        }
+
+        public ViewEntry getNextEntry() {
+            return getEntry(position + 1);
+        }
+
+        public ViewEntry getNextEntry(ViewEntry entry) {
+            return getNextEntry();
+        }
+
+        public ViewEntry getPrevEntry() {
+            return getEntry(position - 1);
+        }
+
+        public ViewEntry getPrevEntry(ViewEntry entry) {
+            return getPrevEntry();
+        }
+
+        public ViewEntry getNthEntry(int n) {
+            return getEntry(n - 1);
+        }
+
+        private ViewEntry getEntry(int index) {
+            if (index < 0 || index >= unids.size()) {
+                position = index < 0 ? -1 : unids.size();
+                return null;
+            }
+
+            position = index;
+            return domino.proxy(ViewEntry.class, new FakeEntry(domino, unids.get(index)));
+        }
+
+        public void intersect(Base base) {
+            FakeDocumentCollection other = FakeDomino.unwrap(base, FakeDocumentCollection.class);
+            Set<String> retained = new HashSet<String>(other != null ? other.getUnids() : new ArrayList<String>());
+            unids.retainAll(retained);
+        }
+    }
+
+    /**
+     * Backing object of {@link ViewEntry} proxy.
+     */
+    static class FakeEntry {
+
+        private final FakeDomino domino;
+        private final String unid;
+
+        FakeEntry(FakeDomino domino, String unid) {
+            this.domino = domino;
+            this.unid = unid;
+        }
+
+        public boolean isDocument() {
+            return true;
+        }
+
+        public String getUniversalID() {
+            return unid;
+        }
+
+        public String getNoteID() {
+            FakeDomino.Note note = domino.get(unid);
+            return note != null ? note.noteId : null;
+        }
+
+        public Document getDocument() {
+            FakeDomino.Note note = domino.get(unid);
+            return note != null ? domino.proxy(Document.class, new FakeDocument(domino, note)) : null;
+        }
+    }
+}